@@ -0,0 +1,80 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jrebirth.forge.utils.TemplateSettings;
+
+/**
+ * Builds the template settings used by the benchmarks.
+ */
+final class BenchmarkSettings {
+
+    /** The top level package of the generated project. */
+    static final String TOP_LEVEL_PACKAGE = "com.example.benchmark";
+
+    /**
+     * Private constructor.
+     */
+    private BenchmarkSettings() {
+    }
+
+    /**
+     * Builds the context of a UI group as ui-create does.
+     *
+     * @param name the UI group name
+     * @return the context
+     */
+    static Map<String, TemplateSettings> uiContext(final String name) {
+        final TemplateSettings settings = new TemplateSettings(name, TOP_LEVEL_PACKAGE);
+        settings.setTopLevelPacakge(TOP_LEVEL_PACKAGE + ".ui." + name.toLowerCase(Locale.ENGLISH));
+        settings.setControllerCreate(true);
+        settings.setBeanCreate(true);
+        settings.setFXMLCreate(false);
+        settings.setCommandType("DefaultCommand");
+        final Map<String, TemplateSettings> context = new HashMap<String, TemplateSettings>();
+        context.put("settings", settings);
+        return context;
+    }
+
+    /**
+     * Creates an empty temporary project folder.
+     *
+     * @return the project folder
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    static File createTempProject() throws IOException {
+        return Files.createTempDirectory("jrebirth-bench").toFile();
+    }
+
+    /**
+     * Deletes a file or a folder with all its content.
+     *
+     * @param file the file
+     */
+    static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
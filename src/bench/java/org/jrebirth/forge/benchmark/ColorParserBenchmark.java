@@ -0,0 +1,142 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jrebirth.forge.helper.ColorParser;
+import org.jrebirth.forge.helper.ColorValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the validation and the code emission of a palette of colors of every type, by the {@link ColorParser} and by
+ * the former regular expressions compiled on each call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorParserBenchmark {
+
+    /** The number of colors of the palette. */
+    private static final int PALETTE_SIZE = 100000;
+
+    /** The former patterns, by type. */
+    private static final String[][] LEGACY_PATTERNS = {
+            { "web", "[0-9A-F]{6}" },
+            { "gray", "(0\\.[0-9]|1\\.0)" },
+            { "hsb", "((0\\.[0-9]*|([012]?[0-9]?[0-9]|3[0-5][0-9])\\.[0-9]*|360.0))(_0\\.[0-9]|1\\.0){2}" },
+            { "rgb01", "((0\\.[0-9]*|1\\.0)\\s*?_\\s*?){2}(0\\.[0-9]*|1\\.0)" },
+            { "rgb255", "(([01]?[0-9]?[0-9]|2[0-4][0-9]|25[0-5])\\s*?_\\s*?){2}([01]?[0-9]?[0-9]|2[0-4][0-9]|25[0-5])" } };
+
+    /** The color types of the palette. */
+    private final String[] types = new String[PALETTE_SIZE];
+
+    /** The color values of the palette. */
+    private final String[] values = new String[PALETTE_SIZE];
+
+    /**
+     * Builds the same palette for every run, one fifth of each type.
+     */
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            final String type = LEGACY_PATTERNS[i % LEGACY_PATTERNS.length][0];
+            this.types[i] = type;
+            if ("web".equals(type)) {
+                this.values[i] = String.format(Locale.ENGLISH, "%06X", random.nextInt(0x1000000));
+            } else if ("gray".equals(type)) {
+                this.values[i] = unit(random);
+            } else if ("hsb".equals(type)) {
+                this.values[i] = random.nextInt(360) + "." + random.nextInt(10) + "_" + unit(random) + "_" + unit(random);
+            } else if ("rgb01".equals(type)) {
+                this.values[i] = unit(random) + "_" + unit(random) + "_" + unit(random);
+            } else {
+                this.values[i] = random.nextInt(256) + "_" + random.nextInt(256) + "_" + random.nextInt(256);
+            }
+        }
+    }
+
+    /**
+     * Builds a random decimal from 0.0 to 0.9.
+     *
+     * @param random the random generator
+     * @return the decimal
+     */
+    private static String unit(final Random random) {
+        return "0." + random.nextInt(10);
+    }
+
+    /**
+     * Validates and emits each color with the color parser.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(PALETTE_SIZE)
+    public void parser(final Blackhole blackhole) {
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            final ColorValue color = ColorParser.parse(this.types[i], this.values[i]);
+            blackhole.consume(color == null ? null : color.toConstructor(1.0D));
+        }
+    }
+
+    /**
+     * Validates each color with a pattern compiled on each call and emits it by splitting its value, as the resource
+     * helper formerly did.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(PALETTE_SIZE)
+    public void legacy(final Blackhole blackhole) {
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            final String type = this.types[i];
+            String regex = null;
+            for (final String[] pattern : LEGACY_PATTERNS) {
+                if (type.equalsIgnoreCase(pattern[0])) {
+                    regex = pattern[1];
+                }
+            }
+            final String value = this.values[i];
+            if (regex == null || !Pattern.compile(regex).matcher(value).matches()) {
+                blackhole.consume(null);
+            } else if (type.equalsIgnoreCase("web")) {
+                blackhole.consume("create(new WebColor(\"" + value.toUpperCase() + "\"));");
+            } else if (type.equalsIgnoreCase("gray")) {
+                blackhole.consume("create(new GrayColor(" + value + "));");
+            } else {
+                final String[] components = value.split("_");
+                blackhole.consume("create(new " + type.toUpperCase() + "Color(" + components[0] + ", " + components[1] + ", "
+                        + components[2] + "));");
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.jrebirth.forge.helper.ColorParser;
+import org.jrebirth.forge.helper.ColorValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the startup of an application declaring thousands of color constants, generated as written by color-add
+ * (HSB, gray and RGB colors converted when the application starts) and precomputed into web colors by
+ * color-precompute.
+ *
+ * JRebirth and JavaFX are not on the benchmark class path, so the application is compiled against a small stand-in of
+ * the JRebirth color resources: a lazy ColorItem holder which converts its color on first use, as JRebirth does. Each
+ * invocation loads the application in a new class loader, initializes its Colors interface and resolves every color.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class ColorStartupBenchmark {
+
+    /** The package of the generated application. */
+    private static final String APP_PACKAGE = BenchmarkSettings.TOP_LEVEL_PACKAGE + ".resource";
+
+    /** The stand-in of the JRebirth color resources, converting each color on its first use. */
+    private static final String RESOURCES_SOURCE = "package rt;\n"
+            + "import java.util.ArrayList;\n"
+            + "import java.util.List;\n"
+            + "public final class Resources {\n"
+            + "    private static final List<ColorItem> ITEMS = new ArrayList<ColorItem>();\n"
+            + "    public interface ColorParams { int toArgb(); }\n"
+            + "    public static final class ColorItem {\n"
+            + "        private final ColorParams params;\n"
+            + "        private Integer color;\n"
+            + "        ColorItem(final ColorParams params) { this.params = params; }\n"
+            + "        public int get() { if (this.color == null) { this.color = this.params.toArgb(); } return this.color; }\n"
+            + "    }\n"
+            + "    public static ColorItem create(final ColorParams params) {\n"
+            + "        final ColorItem item = new ColorItem(params); ITEMS.add(item); return item;\n"
+            + "    }\n"
+            + "    public static int resolveAll() { int hash = 0; for (final ColorItem item : ITEMS) { hash ^= item.get(); } return hash; }\n"
+            + "    static int pack(final double o, final double r, final double g, final double b) {\n"
+            + "        return c(o) << 24 | c(r) << 16 | c(g) << 8 | c(b);\n"
+            + "    }\n"
+            + "    static int c(final double v) { return (int) Math.round(Math.max(0.0, Math.min(1.0, v)) * 255.0); }\n"
+            + "    public static final class WebColor implements ColorParams {\n"
+            + "        private final String hex; private final double o;\n"
+            + "        public WebColor(final String hex) { this(hex, 1.0); }\n"
+            + "        public WebColor(final String hex, final double o) { this.hex = hex; this.o = o; }\n"
+            + "        public int toArgb() { return c(this.o) << 24 | Integer.parseInt(this.hex, 16); }\n"
+            + "    }\n"
+            + "    public static final class GrayColor implements ColorParams {\n"
+            + "        private final double g; private final double o;\n"
+            + "        public GrayColor(final double g) { this(g, 1.0); }\n"
+            + "        public GrayColor(final double g, final double o) { this.g = g; this.o = o; }\n"
+            + "        public int toArgb() { return pack(this.o, this.g, this.g, this.g); }\n"
+            + "    }\n"
+            + "    public static final class RGB01Color implements ColorParams {\n"
+            + "        private final double r; private final double g; private final double b; private final double o;\n"
+            + "        public RGB01Color(final double r, final double g, final double b) { this(r, g, b, 1.0); }\n"
+            + "        public RGB01Color(final double r, final double g, final double b, final double o) { this.r = r; this.g = g; this.b = b; this.o = o; }\n"
+            + "        public int toArgb() { return pack(this.o, this.r, this.g, this.b); }\n"
+            + "    }\n"
+            + "    public static final class RGB255Color implements ColorParams {\n"
+            + "        private final int r; private final int g; private final int b; private final double o;\n"
+            + "        public RGB255Color(final int r, final int g, final int b) { this(r, g, b, 1.0); }\n"
+            + "        public RGB255Color(final int r, final int g, final int b, final double o) { this.r = r; this.g = g; this.b = b; this.o = o; }\n"
+            + "        public int toArgb() { return pack(this.o, this.r / 255.0, this.g / 255.0, this.b / 255.0); }\n"
+            + "    }\n"
+            + "    public static final class HSBColor implements ColorParams {\n"
+            + "        private final double h; private final double s; private final double v; private final double o;\n"
+            + "        public HSBColor(final double h, final double s, final double v) { this(h, s, v, 1.0); }\n"
+            + "        public HSBColor(final double h, final double s, final double v, final double o) { this.h = h; this.s = s; this.v = v; this.o = o; }\n"
+            + "        public int toArgb() {\n"
+            + "            if (this.s == 0.0) { return pack(this.o, this.v, this.v, this.v); }\n"
+            + "            final double n = ((this.h % 360.0 + 360.0) % 360.0) / 360.0;\n"
+            + "            final double x = (n - Math.floor(n)) * 6.0; final double f = x - Math.floor(x);\n"
+            + "            final double p = this.v * (1.0 - this.s); final double q = this.v * (1.0 - this.s * f);\n"
+            + "            final double t = this.v * (1.0 - this.s * (1.0 - f));\n"
+            + "            switch ((int) x) {\n"
+            + "                case 0: return pack(this.o, this.v, t, p);\n"
+            + "                case 1: return pack(this.o, q, this.v, p);\n"
+            + "                case 2: return pack(this.o, p, this.v, t);\n"
+            + "                case 3: return pack(this.o, p, q, this.v);\n"
+            + "                case 4: return pack(this.o, t, p, this.v);\n"
+            + "                default: return pack(this.o, this.v, p, q);\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    /** The color types written in the Colors interface, web colors being a fifth of them. */
+    private static final String[] TYPES = { "web", "gray", "hsb", "rgb01", "rgb255" };
+
+    /** The generation mode: runtime as written by color-add, or precomputed. */
+    @Param({ "runtime", "precomputed" })
+    public String mode;
+
+    /** The number of color constants, kept under the 64 KB limit of the interface initializer. */
+    @Param({ "1000", "2500" })
+    public int count;
+
+    /** The folder of the compiled application. */
+    private File classesFolder;
+
+    /** The class path of the compiled application. */
+    private URL[] classPath;
+
+    /**
+     * Generates the Colors interface of the application in the benchmarked mode and compiles it.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Setup
+    public void setup() throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The benchmark must run on a JDK to compile the application");
+        }
+        this.classesFolder = BenchmarkSettings.createTempProject();
+        final File sourceFolder = new File(this.classesFolder, "src");
+        final File resources = write(new File(sourceFolder, "rt/Resources.java"), RESOURCES_SOURCE);
+        final File colors = write(new File(sourceFolder, APP_PACKAGE.replace('.', '/') + "/BenchmarkColors.java"),
+                colorsSource("precomputed".equals(this.mode)));
+
+        final int status = compiler.run(null, null, null, "-nowarn", "-d", this.classesFolder.getPath(),
+                resources.getPath(), colors.getPath());
+        if (status != 0) {
+            throw new IllegalStateException("Unable to compile the generated application");
+        }
+        this.classPath = new URL[] { this.classesFolder.toURI().toURL() };
+    }
+
+    /**
+     * Deletes the compiled application.
+     */
+    @TearDown
+    public void tearDown() {
+        BenchmarkSettings.delete(this.classesFolder);
+    }
+
+    /**
+     * Loads the application in a new class loader, initializes its Colors interface and resolves every color, as the
+     * first scene of the application would.
+     *
+     * @return a hash of the resolved colors
+     * @throws Exception if the application cannot be loaded
+     */
+    @Benchmark
+    public int startup() throws Exception {
+        final URLClassLoader loader = new URLClassLoader(this.classPath, ColorStartupBenchmark.class.getClassLoader().getParent());
+        try {
+            Class.forName(APP_PACKAGE + ".BenchmarkColors", true, loader);
+            return (Integer) loader.loadClass("rt.Resources").getMethod("resolveAll").invoke(null);
+        } finally {
+            loader.close();
+        }
+    }
+
+    /**
+     * Builds the Colors interface with the code emitted by the plugin, the same colors for both modes.
+     *
+     * @param precompute true to emit the colors converted into web colors, as color-precompute does
+     * @return the java source
+     */
+    private String colorsSource(final boolean precompute) {
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder(this.count * 64)
+                .append("package ").append(APP_PACKAGE).append(";\n")
+                .append("import static rt.Resources.create;\n")
+                .append("import rt.Resources.*;\n")
+                .append("public interface BenchmarkColors {\n");
+        for (int i = 0; i < this.count; i++) {
+            final String type = TYPES[i % TYPES.length];
+            final ColorValue color = ColorParser.parse(type, randomValue(type, random));
+            final double opacity = i % 10 == 0 ? 0.5D : 1.0D;
+            sb.append("    ColorItem COLOR_").append(i).append(" = ")
+                    .append((precompute ? color.toWeb() : color).toConstructor(opacity)).append('\n');
+        }
+        return sb.append("}\n").toString();
+    }
+
+    /**
+     * Builds a random color value written as color-add expects it.
+     *
+     * @param type the color type
+     * @param random the random generator
+     * @return the color value
+     */
+    private static String randomValue(final String type, final Random random) {
+        if ("web".equals(type)) {
+            return String.format("%06X", random.nextInt(0x1000000));
+        } else if ("gray".equals(type)) {
+            return "0." + random.nextInt(10);
+        } else if ("hsb".equals(type)) {
+            return random.nextInt(360) + "." + random.nextInt(10) + "_0." + random.nextInt(10) + "_0." + random.nextInt(10);
+        } else if ("rgb01".equals(type)) {
+            return "0." + random.nextInt(10) + "_0." + random.nextInt(10) + "_0." + random.nextInt(10);
+        }
+        return random.nextInt(256) + "_" + random.nextInt(256) + "_" + random.nextInt(256);
+    }
+
+    /**
+     * Writes a source file in UTF-8.
+     *
+     * @param file the file
+     * @param content the content
+     * @return the file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static File write(final File file, final String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
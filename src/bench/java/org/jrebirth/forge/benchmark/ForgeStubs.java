@@ -0,0 +1,149 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.jboss.forge.parser.java.JavaSource;
+import org.jboss.forge.project.Project;
+import org.jboss.forge.project.facets.JavaSourceFacet;
+import org.jboss.forge.project.facets.MetadataFacet;
+import org.jboss.forge.resources.DirectoryResource;
+
+/**
+ * Builds a Forge project outside of the Forge container, so the benchmarks run the plugin code itself.
+ *
+ * The project only answers what the generation code asks: its root folder, the java source folder of the java source
+ * facet, which saves sources as plain files, and the top level package and name of the metadata facet. Any other call
+ * fails.
+ */
+final class ForgeStubs {
+
+    /** The project name. */
+    static final String PROJECT_NAME = "benchmark";
+
+    /**
+     * Private constructor.
+     */
+    private ForgeStubs() {
+    }
+
+    /**
+     * Builds a project rooted in a folder.
+     *
+     * @param root the project root
+     * @return the project
+     */
+    static Project project(final File root) {
+        final DirectoryResource rootResource = new DirectoryResource(null, root);
+        final File sourceFolder = new File(root, "src/main/java");
+        final JavaSourceFacet java = stub(JavaSourceFacet.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws IOException {
+                if ("getSourceFolder".equals(method.getName())) {
+                    return new DirectoryResource(null, sourceFolder);
+                }
+                if ("saveJavaSource".equals(method.getName())) {
+                    saveJavaSource(sourceFolder, (JavaSource<?>) args[0]);
+                    return null;
+                }
+                return unsupported(method);
+            }
+        });
+        final MetadataFacet metadata = stub(MetadataFacet.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getTopLevelPackage".equals(method.getName())) {
+                    return BenchmarkSettings.TOP_LEVEL_PACKAGE;
+                }
+                if ("getProjectName".equals(method.getName())) {
+                    return PROJECT_NAME;
+                }
+                return unsupported(method);
+            }
+        });
+        return stub(Project.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getProjectRoot".equals(method.getName())) {
+                    return rootResource;
+                }
+                if ("getFacet".equals(method.getName()) && args[0] == JavaSourceFacet.class) {
+                    return java;
+                }
+                if ("getFacet".equals(method.getName()) && args[0] == MetadataFacet.class) {
+                    return metadata;
+                }
+                return unsupported(method);
+            }
+        });
+    }
+
+    /**
+     * Writes a java source in its package folder, as the java source facet does.
+     *
+     * @param sourceFolder the source folder
+     * @param source the java source
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void saveJavaSource(final File sourceFolder, final JavaSource<?> source) throws IOException {
+        final File folder = new File(sourceFolder, source.getPackage().replace('.', File.separatorChar));
+        folder.mkdirs();
+        Files.write(new File(folder, source.getName() + ".java").toPath(), source.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds a proxy of a Forge interface.
+     *
+     * @param type the interface
+     * @param handler the handler of the calls
+     * @return the proxy
+     */
+    private static <T> T stub(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ForgeStubs.class.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if ("equals".equals(method.getName()) && method.getParameterTypes().length == 1) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName()) && method.getParameterTypes().length == 0) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("toString".equals(method.getName()) && method.getParameterTypes().length == 0) {
+                    return type.getSimpleName();
+                }
+                return handler.invoke(proxy, method, args);
+            }
+        }));
+    }
+
+    /**
+     * Rejects a call the generation code is not expected to make.
+     *
+     * @param method the called method
+     * @return never returns
+     */
+    private static Object unsupported(final Method method) {
+        throw new UnsupportedOperationException(method.getName() + " is not available outside of the Forge container");
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jrebirth.forge.utils.PluginUtils;
+import org.jrebirth.forge.utils.TemplateSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Compares the direct write of a rendered class with the validated mode which parses it before saving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationModeBenchmark {
+
+    /** The class template to generate. */
+    @Param({ "TemplateApplication.ftl", "TemplateModel.ftl", "TemplateView.ftl", "TemplateController.ftl" })
+    private String templateName;
+
+    /** The template context. */
+    private Map<String, TemplateSettings> context;
+
+    /** The generated file. */
+    private File target;
+
+    /**
+     * Prepares the template context and the target file.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Setup
+    public void setup() throws IOException {
+        this.context = BenchmarkSettings.uiContext("Intro");
+        this.target = File.createTempFile("jrebirth-generation", ".java");
+    }
+
+    /**
+     * Deletes the target file.
+     */
+    @TearDown
+    public void tearDown() {
+        this.target.delete();
+    }
+
+    /**
+     * Renders and writes the text as is.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public void direct() throws IOException, TemplateException {
+        write(PluginUtils.renderTemplate(this.templateName, this.context));
+    }
+
+    /**
+     * Renders, parses and writes the printed source.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public void validated() throws IOException, TemplateException {
+        final JavaClass javaClass = JavaParser.parse(JavaClass.class, PluginUtils.renderTemplate(this.templateName, this.context));
+        write(javaClass.toString());
+    }
+
+    /**
+     * Writes the target file.
+     *
+     * @param content the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void write(final String content) throws IOException {
+        final FileWriter writer = new FileWriter(this.target);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.project.Project;
+import org.jrebirth.forge.helper.ArtifactPlanner;
+import org.jrebirth.forge.utils.GenerationBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Measures the whole generation of a UI group (Model, View, Controller and Bean) into a temporary project, planned by
+ * the {@link ArtifactPlanner} and written by a {@link GenerationBatch} as ui-create does. The project is a
+ * {@link ForgeStubs} project, whose java source facet writes the validated sources as plain files.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationPipelineBenchmark {
+
+    /** Parse the sources before writing them, as the validated mode does. */
+    @Param({ "false", "true" })
+    private boolean validate;
+
+    /** The temporary project folder. */
+    private File projectRoot;
+
+    /** The project. */
+    private Project project;
+
+    /**
+     * Creates an empty project before each generation, which refuses to overwrite existing files.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        this.projectRoot = BenchmarkSettings.createTempProject();
+        this.project = ForgeStubs.project(this.projectRoot);
+    }
+
+    /**
+     * Deletes the project after each generation.
+     */
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        BenchmarkSettings.delete(this.projectRoot);
+    }
+
+    /**
+     * Plans and generates the files of the UI group.
+     *
+     * @return the written files
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public List<File> generateUiGroup() throws IOException, TemplateException {
+        final GenerationBatch batch = new GenerationBatch(this.project).setValidate(this.validate);
+        new ArtifactPlanner(this.project).planUiGroup(batch, "Intro", true, true, false, true, true);
+        return batch.commit();
+    }
+}
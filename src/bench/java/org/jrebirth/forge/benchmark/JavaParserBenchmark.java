@@ -0,0 +1,88 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jboss.forge.parser.java.JavaEnum;
+import org.jboss.forge.parser.java.JavaInterface;
+import org.jboss.forge.parser.java.JavaSource;
+import org.jrebirth.forge.utils.PluginUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Measures the parsing of rendered sources by the Forge {@link JavaParser}, as done in validated mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavaParserBenchmark {
+
+    /** The java template whose output is parsed. */
+    @Param({ "TemplateApplication.ftl", "TemplateBean.ftl", "TemplateColorResource.ftl", "TemplateCommand.ftl",
+            "TemplateController.ftl", "TemplateFontNamesResource.ftl", "TemplateFontsResource.ftl",
+            "TemplateImagesResource.ftl", "TemplateModel.ftl", "TemplateService.ftl", "TemplateView.ftl" })
+    private String templateName;
+
+    /** The rendered source. */
+    private String source;
+
+    /** The parsed type. */
+    private Class<? extends JavaSource<?>> sourceType;
+
+    /**
+     * Renders the source once.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Setup
+    public void setup() throws IOException, TemplateException {
+        this.source = PluginUtils.renderTemplate(this.templateName, BenchmarkSettings.uiContext("Intro"));
+        if (this.templateName.endsWith("FontNamesResource.ftl")) {
+            this.sourceType = JavaEnum.class;
+        } else if (this.templateName.endsWith("Resource.ftl")) {
+            this.sourceType = JavaInterface.class;
+        } else {
+            this.sourceType = JavaClass.class;
+        }
+    }
+
+    /**
+     * Parses the rendered source.
+     *
+     * @return the parsed source
+     */
+    @Benchmark
+    public JavaSource<?> parse() {
+        return JavaParser.parse(this.sourceType, this.source);
+    }
+}
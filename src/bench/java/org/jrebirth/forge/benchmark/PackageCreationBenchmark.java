@@ -0,0 +1,107 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.project.Project;
+import org.jrebirth.forge.utils.GenerationBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Measures the creation of deep packages by a {@link GenerationBatch}, which plans one folder per missing package
+ * segment and creates them when committed. The project is a {@link ForgeStubs} project in a temporary folder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackageCreationBenchmark {
+
+    /** The number of package segments. */
+    @Param({ "3", "6", "12" })
+    private int depth;
+
+    /** The package to create. */
+    private String fullPackageName;
+
+    /** The project root folder. */
+    private File root;
+
+    /** The project. */
+    private Project project;
+
+    /**
+     * Builds the package name.
+     */
+    @Setup
+    public void setup() {
+        final StringBuilder sb = new StringBuilder("com");
+        for (int i = 1; i < this.depth; i++) {
+            sb.append(".segment").append(i);
+        }
+        this.fullPackageName = sb.toString();
+    }
+
+    /**
+     * Creates an empty project before each creation.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Setup(Level.Invocation)
+    public void createRoot() throws IOException {
+        this.root = BenchmarkSettings.createTempProject();
+        this.project = ForgeStubs.project(this.root);
+    }
+
+    /**
+     * Deletes the project after each creation.
+     */
+    @TearDown(Level.Invocation)
+    public void deleteRoot() {
+        BenchmarkSettings.delete(this.root);
+    }
+
+    /**
+     * Plans and creates every missing folder of the package.
+     *
+     * @return the created folders
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public List<File> createFullPackage() throws IOException, TemplateException {
+        final GenerationBatch batch = new GenerationBatch(this.project).addPackages(new File(this.root, "src/main/java"), this.fullPackageName);
+        batch.commit();
+        return batch.getPackages();
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jrebirth.forge.utils.TemplateContext;
+import org.jrebirth.forge.utils.TemplateRegistry;
+import org.jrebirth.forge.utils.TemplateSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+/**
+ * Compares the rendering of a template through the reflective {@link freemarker.template.DefaultObjectWrapper} with
+ * the rendering through a precomputed {@link TemplateContext}. Run with <code>-prof gc</code> to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateModelBenchmark {
+
+    /** The template to render, the View and Controller templates read the settings the most. */
+    @Param({ "TemplateView.ftl", "TemplateController.ftl", "TemplateModel.ftl", "TemplateFXML.ftl" })
+    private String templateName;
+
+    /** The template. */
+    private Template template;
+
+    /** The settings. */
+    private TemplateSettings settings;
+
+    /** The map context read through the object wrapper. */
+    private Map<String, TemplateSettings> mapContext;
+
+    /** The precomputed context. */
+    private TemplateContext context;
+
+    /**
+     * Loads the template and builds both contexts.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Setup
+    public void setup() throws IOException {
+        this.template = TemplateRegistry.INSTANCE.getTemplate(this.templateName);
+        this.mapContext = BenchmarkSettings.uiContext("Intro");
+        this.settings = this.mapContext.get(TemplateContext.SETTINGS);
+        this.context = new TemplateContext(this.settings);
+    }
+
+    /**
+     * Renders with the object wrapper, as before the precomputed contexts.
+     *
+     * @return the rendered text
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public String objectWrapper() throws IOException, TemplateException {
+        final StringWriter writer = new StringWriter();
+        this.template.process(this.mapContext, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Renders with a context shared by all renderings, as a generation batch does.
+     *
+     * @return the rendered text
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public String sharedContext() throws IOException, TemplateException {
+        final StringWriter writer = new StringWriter();
+        this.template.process(this.context, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Renders with a context built for the rendering.
+     *
+     * @return the rendered text
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public String newContext() throws IOException, TemplateException {
+        final StringWriter writer = new StringWriter();
+        this.template.process(new TemplateContext(this.settings), writer);
+        return writer.toString();
+    }
+}
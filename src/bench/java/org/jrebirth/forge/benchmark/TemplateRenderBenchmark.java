@@ -0,0 +1,75 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.benchmark;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jrebirth.forge.utils.PluginUtils;
+import org.jrebirth.forge.utils.TemplateSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Measures the FreeMarker rendering of every template shipped with the plugin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateRenderBenchmark {
+
+    /** The template to render. */
+    @Param({ "TemplateApplication.ftl", "TemplateBean.ftl", "TemplateColorResource.ftl", "TemplateCommand.ftl",
+            "TemplateController.ftl", "TemplateFXML.ftl", "TemplateFontNamesResource.ftl", "TemplateFontsResource.ftl",
+            "TemplateImagesResource.ftl", "TemplateMainProperties.ftl", "TemplateModel.ftl", "TemplateService.ftl",
+            "TemplateView.ftl" })
+    private String templateName;
+
+    /** The template context. */
+    private Map<String, TemplateSettings> context;
+
+    /**
+     * Prepares the template context.
+     */
+    @Setup
+    public void setup() {
+        this.context = BenchmarkSettings.uiContext("Intro");
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @return the rendered text
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TemplateException the template exception
+     */
+    @Benchmark
+    public String render() throws IOException, TemplateException {
+        return PluginUtils.renderTemplate(this.templateName, this.context);
+    }
+}
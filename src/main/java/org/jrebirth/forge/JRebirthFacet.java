@@ -14,24 +14,31 @@ package org.jrebirth.forge;
 
 import static org.jrebirth.forge.helper.MavenProfilePluginHelper.setupMavenProjectProfiles;
 import static org.jrebirth.forge.utils.PluginUtils.createJNLPConfiguration;
-import static org.jrebirth.forge.utils.PluginUtils.createJavaFileUsingTemplate;
-import static org.jrebirth.forge.utils.PluginUtils.createResourceFileUsingTemplate;
 import static org.jrebirth.forge.utils.PluginUtils.firstLetterCaps;
 import static org.jrebirth.forge.utils.PluginUtils.installDependencies;
-import static org.jrebirth.forge.utils.PluginUtils.javafxDependency;
 import static org.jrebirth.forge.utils.PluginUtils.jrebirthCoreDependency;
 import static org.jrebirth.forge.utils.PluginUtils.messages;
+import static org.jrebirth.forge.utils.PluginUtils.parseJavaSource;
+import static org.jrebirth.forge.utils.PluginUtils.renderTemplate;
+import static org.jrebirth.forge.utils.PluginUtils.saveJavaSource;
 import static org.jrebirth.forge.utils.PluginUtils.slf4jDependency;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
 
+import org.jboss.forge.maven.MavenCoreFacet;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jboss.forge.project.dependencies.DependencyBuilder;
 import org.jboss.forge.project.facets.BaseFacet;
 import org.jboss.forge.project.facets.DependencyFacet;
+import org.jboss.forge.project.facets.JavaSourceFacet;
 import org.jboss.forge.project.facets.MetadataFacet;
 import org.jboss.forge.project.facets.ResourceFacet;
 import org.jboss.forge.resources.DirectoryResource;
@@ -40,6 +47,15 @@ import org.jboss.forge.shell.ShellPrintWriter;
 import org.jboss.forge.shell.ShellPrompt;
 import org.jboss.forge.shell.plugins.Alias;
 import org.jboss.forge.shell.plugins.RequiresFacet;
+import org.jboss.forge.shell.util.Packages;
+import org.jrebirth.forge.utils.AtomicFileWriter;
+import org.jrebirth.forge.utils.GenerationException;
+import org.jrebirth.forge.utils.InstallStateCache;
+import org.jrebirth.forge.utils.PomSession;
+import org.jrebirth.forge.utils.RenderEngine;
+import org.jrebirth.forge.utils.SetupJournal;
+import org.jrebirth.forge.utils.StageMetrics;
+import org.jrebirth.forge.utils.TaskGraph;
 import org.jrebirth.forge.utils.TemplateSettings;
 
 import freemarker.template.TemplateException;
@@ -53,6 +69,9 @@ import freemarker.template.TemplateException;
 @RequiresFacet({ DependencyFacet.class })
 public class JRebirthFacet extends BaseFacet {
 
+    /** The step writing the POM, which records every POM step in the setup journal. */
+    private static final String POM_STEP = "pom";
+
     /** The shell. */
     @Inject
     private ShellPrompt shell;
@@ -66,82 +85,224 @@ public class JRebirthFacet extends BaseFacet {
 
     /**
      * {@inheritDoc}
+     *
+     * The setup runs as a {@link TaskGraph}. The application class and the properties templates are rendered on the
+     * {@link RenderEngine} while the other steps run one after another on the calling thread, since the Forge facets
+     * and resources are not thread-safe: the POM edits, made in a single {@link PomSession} written once at the end,
+     * then the writes of the files. The critical path of the setup is printed once done.
+     *
+     * Every step is recorded in the {@link SetupJournal} of the project with the files it produced. The steps found
+     * done are not run again, so a failed setup resumes with the failed and missing steps only. The POM steps run again
+     * when the POM has changed since, which only adds what it lacks, while the generated files edited since are kept.
      */
     @Override
     public boolean install() {
         this.dependencyFacet = this.project.getFacet(DependencyFacet.class);
 
-        this.dependencyFacet.addRepository(messages.getKeyValue("jrebirthReleaseRepoName"), messages.getKeyValue("jrebirthReleaseRepoUrl"));
-
-        installDependencies(this.project, this.shell, this.writer, jrebirthCoreDependency(), false);
-        installDependencies(this.project, this.shell, this.writer, javafxDependency(), false);
-        installDependencies(this.project, this.shell, this.writer, slf4jDependency(), false);
-
         final MetadataFacet metadata = this.project
                 .getFacet(MetadataFacet.class);
+        final ResourceFacet resourceFacet = this.project
+                .getFacet(ResourceFacet.class);
 
-        TemplateSettings settings = new TemplateSettings(
+        final TemplateSettings settings = new TemplateSettings(
                 firstLetterCaps(metadata.getProjectName()) + "App",
                 metadata.getTopLevelPackage());
         final Map<String, TemplateSettings> context = new HashMap<String, TemplateSettings>();
         settings.setTopLevelPacakge(metadata.getTopLevelPackage());
-
         context.put("settings", settings);
-        try {
-            createJavaFileUsingTemplate(this.project,
-                    "TemplateApplication.ftl", context);
-        } catch (IOException | TemplateException e) {
-            ShellMessages.error(writer, messages.getMessage("unable.to.create.mainapp"));
+
+        final File projectRoot = this.project.getProjectRoot().getUnderlyingResourceObject();
+        final File pomFile = this.project.getFacet(MavenCoreFacet.class).getPOMFile().getUnderlyingResourceObject();
+        final File mainAppFile = new File(this.project.getFacet(JavaSourceFacet.class).getSourceFolder().getUnderlyingResourceObject(),
+                Packages.toFileSyntax(metadata.getTopLevelPackage()) + File.separator + settings.getName() + ".java");
+        final File rbPropertiesFile = resourceFacet.getResource("jrebirth.properties").getUnderlyingResourceObject();
+        final DirectoryResource resourceFolder = resourceFacet.getResourceFolder();
+        final File jnlpFile = new File(projectRoot, "src/main/jnlp/template.vm");
+
+        final SetupJournal journal = SetupJournal.open(projectRoot);
+        journal.setComplete(false);
+
+        final boolean pomDone = journal.isDone(POM_STEP, false);
+        final boolean mainAppDone = journal.isDone("main-app", true);
+        final boolean propertiesDone = journal.isDone("properties", true);
+        final boolean resourceFoldersDone = journal.isDone("resource-folders", true);
+        final boolean jnlpDone = journal.isDone("jnlp", true);
+
+        if (!journal.getSkipped().isEmpty()) {
+            ShellMessages.info(this.writer, messages.getMessage("install.resumed", journal.getSkipped().size(), journal.getSkipped()));
         }
 
-        final ResourceFacet resourceFacet = this.project
-                .getFacet(ResourceFacet.class);
-        final File rbPropertiesFile = resourceFacet.createResource(
-                new char[0], "jrebirth.properties")
-                .getUnderlyingResourceObject();
+        // Only the templates are rendered concurrently, Forge facets and resources are not thread-safe
+        final Rendering mainAppSource = new Rendering("TemplateApplication.ftl", context);
+        final Rendering rbProperties = new Rendering("TemplateMainProperties.ftl", context);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        final TaskGraph graph = new TaskGraph();
+        if (!mainAppDone) {
+            graph.add("render-main-app", mainAppSource);
+        }
+        if (!propertiesDone) {
+            graph.add("render-properties", rbProperties);
+        }
 
-        settings = new TemplateSettings("jrebirth.properties", "");
+        if (!pomDone) {
+            graph.addSerial(POM_STEP, journaled(journal, POM_STEP, failures, new TaskGraph.Step() {
 
-        try {
-            createResourceFileUsingTemplate(this.project,
-                    "TemplateMainProperties.ftl", rbPropertiesFile, context);
-        } catch (IOException | TemplateException e) {
-            ShellMessages.error(writer, messages.getMessage("unable.to.create.jrproperties"));
+                @Override
+                public void run() {
+                    final PomSession pom = PomSession.open(JRebirthFacet.this.project);
+                    pom.addRepository(messages.getKeyValue("jrebirthReleaseRepoName"), messages.getKeyValue("jrebirthReleaseRepoUrl"));
+                    for (final DependencyBuilder dependency : Arrays.asList(jrebirthCoreDependency(), slf4jDependency())) {
+                        installDependencies(JRebirthFacet.this.project, pom, JRebirthFacet.this.shell, JRebirthFacet.this.writer, dependency, false, false);
+                    }
+                    if (setupMavenProjectProfiles(pom, metadata.getTopLevelPackage(), metadata.getProjectName())) {
+                        ShellMessages.info(JRebirthFacet.this.writer, messages.getMessage("javafx.dependency.removed"));
+                    }
+                    pom.commit();
+                }
+            }, pomFile));
+        }
+
+        if (!mainAppDone) {
+            graph.addSerial("main-app", journaled(journal, "main-app", failures, new TaskGraph.Step() {
+
+                @Override
+                public void run() throws Exception {
+                    try {
+                        final String content = mainAppSource.getContent();
+                        saveJavaSource(JRebirthFacet.this.project.getFacet(JavaSourceFacet.class),
+                                parseJavaSource(JavaClass.class, content), content.length());
+                    } catch (final Exception e) {
+                        ShellMessages.error(JRebirthFacet.this.writer, messages.getMessage("unable.to.create.mainapp"));
+                        throw e;
+                    }
+                }
+            }, mainAppFile), "render-main-app");
+        }
+
+        if (!propertiesDone) {
+            graph.addSerial("properties", journaled(journal, "properties", failures, new TaskGraph.Step() {
+
+                @Override
+                public void run() throws Exception {
+                    try {
+                        AtomicFileWriter.writeAtomically(rbPropertiesFile, rbProperties.getContent());
+                    } catch (final Exception e) {
+                        ShellMessages.error(JRebirthFacet.this.writer, messages.getMessage("unable.to.create.jrproperties"));
+                        throw e;
+                    }
+                }
+            }, rbPropertiesFile), "render-properties");
+        }
+
+        if (!resourceFoldersDone) {
+            final File[] folders = new File[] { resourceFolder.getChildDirectory("fonts").getUnderlyingResourceObject(),
+                    resourceFolder.getChildDirectory("images").getUnderlyingResourceObject(),
+                    resourceFolder.getChildDirectory("styles").getUnderlyingResourceObject() };
+            graph.addSerial("resource-folders", journaled(journal, "resource-folders", failures, new TaskGraph.Step() {
+
+                @Override
+                public void run() {
+                    final long mkdirStart = System.nanoTime();
+                    resourceFolder.getChildDirectory("fonts").mkdir();
+                    resourceFolder.getChildDirectory("images").mkdir();
+                    resourceFolder.getChildDirectory("styles").mkdir();
+                    StageMetrics.INSTANCE.record(StageMetrics.Stage.MKDIR, mkdirStart, 3);
+                }
+            }, folders));
         }
 
-        final DirectoryResource directory = resourceFacet
-                .getResourceFolder();
-        directory.getChildDirectory("fonts").mkdir();
-        directory.getChildDirectory("images").mkdir();
-        directory.getChildDirectory("styles").mkdir();
+        if (!jnlpDone) {
+            graph.addSerial("jnlp", journaled(journal, "jnlp", failures, new TaskGraph.Step() {
 
+                @Override
+                public void run() throws Exception {
+                    try {
+                        createJNLPConfiguration(JRebirthFacet.this.project);
+                        ShellMessages.warn(JRebirthFacet.this.writer,
+                                messages.getMessage("jnlp.dependency.is.setup"));
+                    } catch (IOException | TemplateException e) {
+                        ShellMessages.error(JRebirthFacet.this.writer, messages.getMessage("unable.to.create.jnlp"));
+                        throw e;
+                    }
+                }
+            }, jnlpFile));
+        }
+
+        TaskGraph.Report report = null;
         try {
-            createJNLPConfiguration(this.project);
-            ShellMessages.warn(writer,
-                    messages.getMessage("jnlp.dependency.is.setup"));
-        } catch (IOException | TemplateException e) {
-            ShellMessages.error(writer, messages.getMessage("unable.to.create.jnlp"));
+            report = graph.run(RenderEngine.INSTANCE);
+        } catch (final GenerationException e) {
+            failures.add(e);
         }
 
-        setupMavenProjectProfiles(this.project,
-                metadata.getTopLevelPackage(), metadata.getProjectName());
+        final boolean complete = failures.isEmpty();
+        if (complete) {
+            ShellMessages.info(this.writer, messages.getMessage("install.done", report.getWallMillis(), report.getTotalMillis(),
+                    report.getCriticalPathMillis(), report.getCriticalPath()));
+        } else {
+            for (final Throwable failure : failures) {
+                ShellMessages.error(this.writer, messages.getMessage("install.failed",
+                        failure.getMessage() == null ? failure.toString() : failure.getMessage()));
+            }
+        }
+        journal.setComplete(complete);
+        try {
+            journal.save();
+        } catch (final IOException e) {
+            ShellMessages.warn(this.writer, messages.getMessage("install.journal.not.saved", e.getMessage()));
+        }
 
-        return true;
+        return complete;
+    }
+
+    /**
+     * Wraps a setup step to record it in the setup journal. A failed step does not stop the other steps, which do not
+     * depend on it, its failure is only collected.
+     *
+     * @param journal the setup journal
+     * @param name the step name
+     * @param failures the failures of the steps, the failure of this step is added to
+     * @param step the step, run on the shell thread
+     * @param results the files and folders produced by the step
+     * @return the journaled step
+     */
+    private static TaskGraph.Step journaled(final SetupJournal journal, final String name, final List<Throwable> failures,
+            final TaskGraph.Step step, final File... results) {
+        return new TaskGraph.Step() {
+
+            @Override
+            public void run() {
+                try {
+                    step.run();
+                } catch (final Exception e) {
+                    journal.markFailed(name);
+                    failures.add(e);
+                    return;
+                }
+                journal.markDone(name, results);
+            }
+        };
     }
 
     /**
      * {@inheritDoc}
+     *
+     * Forge asks for it before each command, so the state is kept in the {@link InstallStateCache} until the POM
+     * changes.
      */
     @Override
     public boolean isInstalled() {
 
-        final DependencyFacet dFacet = this.project.getFacet(DependencyFacet.class);
-
-        if (dFacet.hasDirectDependency(jrebirthCoreDependency()) && dFacet.hasRepository(messages.getKeyValue("jrebirthReleaseRepoUrl"))) {
-            return true;
+        final File pomFile = this.project.getFacet(MavenCoreFacet.class).getPOMFile().getUnderlyingResourceObject();
+        final Boolean cached = InstallStateCache.INSTANCE.get(pomFile);
+        if (cached != null) {
+            return cached;
         }
 
-        return false;
+        final PomSession pom = PomSession.open(this.project);
+        final boolean installed = pom.hasDependency(jrebirthCoreDependency()) && pom.hasRepository(messages.getKeyValue("jrebirthReleaseRepoUrl"));
+        InstallStateCache.INSTANCE.put(pomFile, installed);
+        return installed;
     }
 
     /**
@@ -166,4 +327,58 @@ public class JRebirthFacet extends BaseFacet {
 
     }
 
+    /**
+     * The rendering of a template, whose failure is only reported by the step using it.
+     */
+    private static final class Rendering implements TaskGraph.Step {
+
+        /** The template name. */
+        private final String templateName;
+
+        /** The template context. */
+        private final Map<String, TemplateSettings> context;
+
+        /** The rendered content. */
+        private String content;
+
+        /** The rendering failure. */
+        private Exception failure;
+
+        /**
+         * Instantiates a new rendering.
+         *
+         * @param templateName the template name
+         * @param context the template context
+         */
+        Rendering(final String templateName, final Map<String, TemplateSettings> context) {
+            this.templateName = templateName;
+            this.context = context;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            try {
+                this.content = renderTemplate(this.templateName, this.context);
+            } catch (final Exception e) {
+                this.failure = e;
+            }
+        }
+
+        /**
+         * Gets the rendered content.
+         *
+         * @return the content
+         * @throws Exception the rendering failure
+         */
+        String getContent() throws Exception {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            return this.content;
+        }
+    }
+
 }
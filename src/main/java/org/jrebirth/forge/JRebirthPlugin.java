@@ -17,24 +17,19 @@
  */
 package org.jrebirth.forge;
 
-import static org.jrebirth.forge.utils.PluginUtils.createFullPackageIfNotExist;
-import static org.jrebirth.forge.utils.PluginUtils.createJavaEnumUsingTemplate;
-import static org.jrebirth.forge.utils.PluginUtils.createJavaInterfaceUsingTemplate;
-import static org.jrebirth.forge.utils.PluginUtils.createPackageIfNotExist;
-import static org.jrebirth.forge.utils.PluginUtils.determineFileAvailabilty;
-import static org.jrebirth.forge.utils.PluginUtils.determinePackageAvailability;
-import static org.jrebirth.forge.utils.PluginUtils.firstLetterCaps;
+import static org.jrebirth.forge.utils.PluginUtils.commitBatch;
 import static org.jrebirth.forge.utils.PluginUtils.installDependencies;
 import static org.jrebirth.forge.utils.PluginUtils.jrebirthPresentationDependency;
 import static org.jrebirth.forge.utils.PluginUtils.messages;
+import static org.jrebirth.forge.utils.PluginUtils.printPlan;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.List;
 import java.util.Properties;
 
 import javax.enterprise.event.Event;
@@ -43,10 +38,9 @@ import javax.inject.Inject;
 import org.jboss.forge.project.Project;
 import org.jboss.forge.project.facets.DependencyFacet;
 import org.jboss.forge.project.facets.JavaSourceFacet;
-import org.jboss.forge.project.facets.MetadataFacet;
 import org.jboss.forge.project.facets.ResourceFacet;
 import org.jboss.forge.project.facets.events.InstallFacets;
-import org.jboss.forge.resources.DirectoryResource;
+import org.jboss.forge.resources.Resource;
 import org.jboss.forge.shell.Shell;
 import org.jboss.forge.shell.ShellMessages;
 import org.jboss.forge.shell.ShellPrompt;
@@ -60,13 +54,24 @@ import org.jboss.forge.shell.plugins.Plugin;
 import org.jboss.forge.shell.plugins.RequiresFacet;
 import org.jboss.forge.shell.plugins.RequiresProject;
 import org.jboss.forge.shell.plugins.SetupCommand;
-import org.jboss.forge.shell.util.Packages;
 import org.jrebirth.forge.completer.AppPropertyCompleter;
 import org.jrebirth.forge.completer.ColorTypeCompleter;
+import org.jrebirth.forge.helper.ArtifactPlanner;
+import org.jrebirth.forge.helper.ColorParser;
+import org.jrebirth.forge.helper.ColorValue;
+import org.jrebirth.forge.helper.PaletteHelper;
 import org.jrebirth.forge.helper.ResourceHelper;
+import org.jrebirth.forge.helper.ScaffoldHelper;
+import org.jrebirth.forge.utils.AtomicFileWriter;
+import org.jrebirth.forge.utils.GenerationBatch;
+import org.jrebirth.forge.utils.InstallStateCache;
 import org.jrebirth.forge.utils.PluginUtils;
 import org.jrebirth.forge.utils.PluginUtils.CreationType;
-import org.jrebirth.forge.utils.TemplateSettings;
+import org.jrebirth.forge.utils.ResourceModelCache;
+import org.jrebirth.forge.utils.SetupJournal;
+import org.jrebirth.forge.utils.StageMetrics;
+import org.jrebirth.forge.utils.TemplateRegistry;
+import org.jrebirth.forge.utils.VersionCache;
 
 import freemarker.template.TemplateException;
 
@@ -104,6 +109,9 @@ public class JRebirthPlugin implements Plugin {
      * 
      * @param out the out
      * @param moduleName the module name
+     * @param addSnapshotRepository the add snapshot repository
+     * @param removeSnapshotRepository the remove snapshot repository
+     * @param offline the offline
      * @throws IOException Signals that an I/O exception has occurred.
      * @throws TemplateException the template exception
      */
@@ -115,11 +123,16 @@ public class JRebirthPlugin implements Plugin {
             @Option(name = "addSnapshotRepository", shortName = "a", help = "Adds JRebirth Snapshot Repository", defaultValue = "false", flagOnly = true)
             final boolean addSnapshotRepository,
             @Option(name = "removeSnapshotRepository", shortName = "r", help = "Removes JRebirth Snapshot Repository", defaultValue = "false", flagOnly = true)
-            final boolean removeSnapshotRepository)
+            final boolean removeSnapshotRepository,
+            @Option(name = "offline", shortName = "o", help = "Chooses module versions among the cached and locally installed ones only", defaultValue = "false", flagOnly = true)
+            final boolean offline)
             throws IOException, TemplateException {
 
         if (!this.project.hasFacet(JRebirthFacet.class)) {
             this.install.fire(new InstallFacets(JRebirthFacet.class));
+        } else if (!SetupJournal.open(this.project.getProjectRoot().getUnderlyingResourceObject()).isComplete()) {
+            // A previous setup has failed, run its failed and missing steps
+            this.project.getFacet(JRebirthFacet.class).install();
         }
 
         final JRebirthFacet jrebirthFacet = this.project
@@ -135,7 +148,7 @@ public class JRebirthPlugin implements Plugin {
             if ("Presentation".equalsIgnoreCase(moduleName)) {
 
                 installDependencies(this.project, this.shellPrompt, out,
-                        jrebirthPresentationDependency(), true);
+                        jrebirthPresentationDependency(), true, offline || Boolean.getBoolean(VersionCache.OFFLINE_PROPERTY));
             }
         }
     }
@@ -160,6 +173,9 @@ public class JRebirthPlugin implements Plugin {
             ShellMessages.warn(out,
                     messages.getMessage("jrebirth.is.not.installed"));
         }
+        ShellMessages.info(out, TemplateRegistry.INSTANCE.getStatistics());
+        ShellMessages.info(out, InstallStateCache.INSTANCE.getStatistics());
+        ShellMessages.info(out, ResourceModelCache.INSTANCE.getStatistics());
 
     }
 
@@ -171,6 +187,10 @@ public class JRebirthPlugin implements Plugin {
      * @param controllerGenerate the controller generate
      * @param beanGenerate the bean generate
      * @param fxmlGenerate the fxml generate
+     * @param modelGenerate the model generate
+     * @param validate the validate
+     * @param incremental the incremental
+     * @param plan the plan
      */
     @Command(value = "ui-create", help = "Create Model,View and Controller for the given name")
     public void createMVC(
@@ -186,10 +206,15 @@ public class JRebirthPlugin implements Plugin {
             @Option(name = "fxmlGenerate", shortName = "f", required = false, flagOnly = true, defaultValue = "false", help = "If true, FXML document will be generated for the MVC.")
             final boolean fxmlGenerate,
             @Option(name = "modelGenerate", shortName = "m", required = false, flagOnly = true, defaultValue = "false", help = "If true, Model will be generated for the MVC.")
-            final boolean modelGenerate
-            ) {
-        createUiFiles(out, CreationType.UI, name, controllerGenerate,
-                beanGenerate, fxmlGenerate, modelGenerate,generateAll);
+            final boolean modelGenerate,
+            @Option(name = "validate", shortName = "va", required = false, flagOnly = true, defaultValue = "false", help = "If true, generated sources are parsed and saved through the Java source facet.")
+            final boolean validate,
+            @Option(name = "incremental", shortName = "in", required = false, flagOnly = true, defaultValue = "false", help = "If true, unchanged generated files are skipped and stale ones regenerated.")
+            final boolean incremental,
+            @Option(name = "plan", shortName = "pl", required = false, flagOnly = true, defaultValue = "false", help = "If true, nothing is written and the planned packages, files and conflicts are printed as JSON.")
+            final boolean plan) {
+        createUiFiles(out, name, controllerGenerate,
+                beanGenerate, fxmlGenerate, modelGenerate,generateAll, validate, incremental, plan);
     }
 
     /**
@@ -197,19 +222,33 @@ public class JRebirthPlugin implements Plugin {
      * 
      * @param out the out
      * @param commandName the command name
+     * @param validate the validate
+     * @param incremental the incremental
+     * @param plan the plan
      */
     @Command(value = "command-create", help = "Create a command for the given name")
     public void createCommand(
             final PipeOut out,
             @Option(name = "name", shortName = "n", required = true, help = "Name of the Command to be created.")
-            final String commandName) {
-
-        final int choiceIndex = this.shellPrompt.promptChoice(
-                "Which type of Command you like to create ?",
-                PluginUtils.COMMAND_TYPES);
+            final String commandName,
+            @Option(name = "validate", shortName = "va", required = false, flagOnly = true, defaultValue = "false", help = "If true, generated sources are parsed and saved through the Java source facet.")
+            final boolean validate,
+            @Option(name = "incremental", shortName = "in", required = false, flagOnly = true, defaultValue = "false", help = "If true, unchanged generated files are skipped and stale ones regenerated.")
+            final boolean incremental,
+            @Option(name = "plan", shortName = "pl", required = false, flagOnly = true, defaultValue = "false", help = "If true, nothing is written and the planned packages, files and conflicts are printed as JSON.")
+            final boolean plan) {
+
+        // The command type does not change the planned files
+        String commandType = null;
+        if (plan == false) {
+            final int choiceIndex = this.shellPrompt.promptChoice(
+                    "Which type of Command you like to create ?",
+                    PluginUtils.COMMAND_TYPES);
+            commandType = (String) PluginUtils.COMMAND_TYPES[choiceIndex];
+        }
 
         createNonUiFiles(CreationType.COMMAND, commandName, out,
-                (String) PluginUtils.COMMAND_TYPES[choiceIndex]);
+                commandType, validate, incremental, plan);
     }
 
     /**
@@ -217,13 +256,22 @@ public class JRebirthPlugin implements Plugin {
      * 
      * @param out the out
      * @param serviceName the service name
+     * @param validate the validate
+     * @param incremental the incremental
+     * @param plan the plan
      */
     @Command(value = "service-create", help = "Create a service for the given name")
     public void createService(
             final PipeOut out,
             @Option(name = "name", shortName = "n", required = true, help = "Name of the Service to be created.")
-            final String serviceName) {
-        createNonUiFiles(CreationType.SERVICE, serviceName, out, null);
+            final String serviceName,
+            @Option(name = "validate", shortName = "va", required = false, flagOnly = true, defaultValue = "false", help = "If true, generated sources are parsed and saved through the Java source facet.")
+            final boolean validate,
+            @Option(name = "incremental", shortName = "in", required = false, flagOnly = true, defaultValue = "false", help = "If true, unchanged generated files are skipped and stale ones regenerated.")
+            final boolean incremental,
+            @Option(name = "plan", shortName = "pl", required = false, flagOnly = true, defaultValue = "false", help = "If true, nothing is written and the planned packages, files and conflicts are printed as JSON.")
+            final boolean plan) {
+        createNonUiFiles(CreationType.SERVICE, serviceName, out, null, validate, incremental, plan);
     }
 
     /**
@@ -234,6 +282,9 @@ public class JRebirthPlugin implements Plugin {
      * @param colorGenerate the color generate
      * @param fontGenerate the font generate
      * @param imageGenerate the image generate
+     * @param validate the validate
+     * @param incremental the incremental
+     * @param plan the plan
      */
     @Command(value = "resource-create", help = "Create a resource for the given name")
     public void createResource(
@@ -245,9 +296,46 @@ public class JRebirthPlugin implements Plugin {
             @Option(name = "fontGenerate", shortName = "fg", flagOnly = true, required = false, help = "Generate resource for Fonts")
             final boolean fontGenerate,
             @Option(name = "imageGenerate", shortName = "ig", flagOnly = true, required = false, help = "Generate resource for Images")
-            final boolean imageGenerate) {
+            final boolean imageGenerate,
+            @Option(name = "validate", shortName = "va", required = false, flagOnly = true, defaultValue = "false", help = "If true, generated sources are parsed and saved through the Java source facet.")
+            final boolean validate,
+            @Option(name = "incremental", shortName = "in", required = false, flagOnly = true, defaultValue = "false", help = "If true, unchanged generated files are skipped and stale ones regenerated.")
+            final boolean incremental,
+            @Option(name = "plan", shortName = "pl", required = false, flagOnly = true, defaultValue = "false", help = "If true, nothing is written and the planned packages, files and conflicts are printed as JSON.")
+            final boolean plan) {
         createResourceFiles(out, allResource, colorGenerate, fontGenerate,
-                imageGenerate);
+                imageGenerate, validate, incremental, plan);
+    }
+
+    /**
+     * Generates all the artifacts described by a manifest file, without any prompt.
+     * 
+     * @param out the out
+     * @param manifest the manifest
+     * @param validate the validate
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Command(value = "scaffold", help = "Create all the UI groups, commands, services, beans and resources described in a manifest")
+    public void scaffold(
+            final PipeOut out,
+            @Option(name = "from", shortName = "f", required = true, help = "Manifest file, one artifact per line as properties or JSON.")
+            final Resource<?> manifest,
+            @Option(name = "validate", shortName = "va", required = false, flagOnly = true, defaultValue = "false", help = "If true, generated sources are parsed and saved through the Java source facet.")
+            final boolean validate,
+            @Option(name = "incremental", shortName = "in", required = false, flagOnly = true, defaultValue = "false", help = "If true, unchanged generated files are skipped and stale ones regenerated.")
+            final boolean incremental) throws IOException {
+
+        if (manifest == null || manifest.exists() == false) {
+            ShellMessages.error(out, messages.getMessage("scaffold.manifest.not.found"));
+            return;
+        }
+
+        final Reader reader = new InputStreamReader(manifest.getResourceInputStream(), PluginUtils.TEMPLATE_UNICODE);
+        try {
+            ScaffoldHelper.scaffold(this.project, reader, out, validate, incremental);
+        } finally {
+            reader.close();
+        }
     }
 
     /**
@@ -265,6 +353,7 @@ public class JRebirthPlugin implements Plugin {
      * @param colorValue the color value
      * @param colorType the color type
      * @param opacityValue the opacity value
+     * @param precompute the precompute
      */
     @Command(value = "color-add", help = "Add a color variable in Color Resource")
     public void colorAdd(
@@ -276,7 +365,9 @@ public class JRebirthPlugin implements Plugin {
             @Option(name = "colorType", shortName = "t", completer = ColorTypeCompleter.class, required = true, help = "Type of the color you like to add")
             final String colorType,
             @Option(name = "opacity", shortName = "o", required = false, defaultValue = "1.0", help = "Color's opacity value")
-            final double opacityValue) {
+            final double opacityValue,
+            @Option(name = "precompute", shortName = "pc", required = false, flagOnly = true, defaultValue = "false", help = "If true, the color is written as a web color converted now instead of when the application starts.")
+            final boolean precompute) {
 
         if (ColorTypeCompleter.isColorTypeExist(colorType) == false) {
             ShellMessages.error(out,
@@ -284,7 +375,8 @@ public class JRebirthPlugin implements Plugin {
             return;
         }
 
-        if (ResourceHelper.validateColorValueUsingType(colorType, colorValue) == false) {
+        final ColorValue color = ColorParser.parse(colorType, colorValue);
+        if (color == null) {
             ShellMessages
                     .error(out,
                             messages.getMessage(
@@ -295,7 +387,72 @@ public class JRebirthPlugin implements Plugin {
         }
 
         ResourceHelper.manageColorResource(this.project, this.shell, out, colorName,
-                colorValue, colorType, opacityValue);
+                precompute ? color.toWeb() : color, opacityValue);
+    }
+
+    /**
+     * Imports all the colors of a palette file into the color resource, parsed and saved once.
+     * 
+     * @param out the out
+     * @param palette the palette file
+     * @param format the palette format
+     * @param overwrite the overwrite
+     * @param precompute the precompute
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Command(value = "color-import", help = "Add all the colors of a palette file in Color Resource")
+    public void colorImport(
+            final PipeOut out,
+            @Option(name = "from", shortName = "f", required = true, help = "Palette file, as CSS custom properties, JSON or CSV.")
+            final Resource<?> palette,
+            @Option(name = "format", shortName = "fo", required = false, help = "css, json or csv, guessed from the file extension by default.")
+            final String format,
+            @Option(name = "overwrite", shortName = "ow", required = false, flagOnly = true, defaultValue = "false", help = "If true, the color constants already declared are replaced.")
+            final boolean overwrite,
+            @Option(name = "precompute", shortName = "pc", required = false, flagOnly = true, defaultValue = "false", help = "If true, the colors are written as web colors converted now instead of when the application starts.")
+            final boolean precompute) throws IOException {
+
+        if (palette == null || palette.exists() == false) {
+            ShellMessages.error(out, messages.getMessage("color.import.not.found"));
+            return;
+        }
+        final PaletteHelper.Format paletteFormat = format == null ? PaletteHelper.Format.fromFileName(palette.getName())
+                : PaletteHelper.Format.fromName(format);
+        if (paletteFormat == null) {
+            ShellMessages.error(out, messages.getMessage("color.import.unknown.format", format == null ? palette.getName() : format));
+            return;
+        }
+
+        final Reader reader = new InputStreamReader(palette.getResourceInputStream(), PluginUtils.TEMPLATE_UNICODE);
+        try {
+            PaletteHelper.importPalette(this.project, this.shell, out, reader, paletteFormat, overwrite, precompute);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Lists the color constants declaring the same color, and optionally replaces them by aliases.
+     * 
+     * @param out the out
+     * @param merge the merge
+     */
+    @Command(value = "color-duplicates", help = "List the constants of Color Resource declaring the same color")
+    public void colorDuplicates(
+            final PipeOut out,
+            @Option(name = "merge", shortName = "m", required = false, flagOnly = true, defaultValue = "false", help = "If true, the constants repeating a color are replaced by aliases of the first one.")
+            final boolean merge) {
+        ResourceHelper.manageColorDuplicates(this.project, this.shell, out, merge);
+    }
+
+    /**
+     * Converts the HSB, gray and RGB color constants into precomputed web colors.
+     * 
+     * @param out the out
+     */
+    @Command(value = "color-precompute", help = "Convert the colors of Color Resource into web colors, so the application does not convert them when it starts")
+    public void colorPrecompute(final PipeOut out) {
+        ResourceHelper.precomputeColors(this.project, this.shell, out);
     }
 
     /**
@@ -346,10 +503,11 @@ public class JRebirthPlugin implements Plugin {
             }
 
             prop.setProperty(key, value);
-            final File fxmlFile = resourceFacet.createResource(new char[0],
-                    "jrebirth.properties").getUnderlyingResourceObject();
-            final FileWriter wri = new FileWriter(fxmlFile);
-            prop.store(wri, "");
+            final File propertiesFile = resourceFacet.getResource("jrebirth.properties").getUnderlyingResourceObject();
+            // Stored as escaped ASCII, as read back by Properties.load
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            prop.store(content, "");
+            AtomicFileWriter.writeAtomically(propertiesFile, content.toString("ISO-8859-1"));
         }
 
         if (showAll) {
@@ -362,91 +520,55 @@ public class JRebirthPlugin implements Plugin {
         }
     }
 
+    /**
+     * Prints the latency histograms and the sizes of the plugin operations run since the shell started.
+     * 
+     * @param out the out
+     * @param reset forget the recorded operations once printed
+     */
+    @Command(value = "stats", help = "Show the latency of the plugin operations since the shell started")
+    public void stats(
+            final PipeOut out,
+            @Option(name = "reset", shortName = "r", flagOnly = true, defaultValue = "false", help = "Forget the recorded operations once printed")
+            final boolean reset) {
+
+        final List<String> report = StageMetrics.INSTANCE.getReport();
+        if (report.isEmpty()) {
+            ShellMessages.info(out, messages.getMessage("stats.empty"));
+        }
+        for (final String line : report) {
+            out.println(line);
+        }
+        if (reset) {
+            StageMetrics.INSTANCE.reset();
+        }
+    }
+
     /**
      * Creates Java files for user interface mainly for Model, Controller and View.
      * 
      * @param out the out
-     * @param type the type
      * @param name the name
      * @param controllerGenerate the controller generate
      * @param beanGenerate the bean generate .
      * @param fxmlGenerate the fxml generate
+     * @param modelGenerate the model generate
+     * @param generateAll the generate all
+     * @param validate parse generated sources before saving them
+     * @param incremental skip up to date files and regenerate stale ones
+     * @param plan print the plan instead of writing the files
      */
-    private void createUiFiles(final PipeOut out, final CreationType type,
+    private void createUiFiles(final PipeOut out,
             final String name, final boolean controllerGenerate,
-            final boolean beanGenerate, final boolean fxmlGenerate, final boolean modelGenerate, final boolean generateAll) {
-
-        final MetadataFacet metadata = this.project
-                .getFacet(MetadataFacet.class);
-        final DirectoryResource sourceFolder = this.project.getFacet(
-                JavaSourceFacet.class).getSourceFolder();
+            final boolean beanGenerate, final boolean fxmlGenerate, final boolean modelGenerate, final boolean generateAll,
+            final boolean validate, final boolean incremental, final boolean plan) {
 
-        final String topLevelPackage = metadata.getTopLevelPackage();
+        final GenerationBatch batch = new GenerationBatch(this.project).setValidate(validate).setIncremental(incremental);
 
-        DirectoryResource directory = sourceFolder.getChildDirectory(Packages
-                .toFileSyntax(topLevelPackage + type.getPackageName()));
+        new ArtifactPlanner(this.project).setIncremental(incremental).planUiGroup(batch, name, controllerGenerate, beanGenerate,
+                fxmlGenerate, modelGenerate, generateAll);
 
-        createPackageIfNotExist(directory, "UI", out);
-
-        directory = sourceFolder.getChildDirectory(Packages
-                .toFileSyntax(topLevelPackage + type.getPackageName() + "."
-                        + name.toLowerCase(Locale.ENGLISH)));
-
-        if (determinePackageAvailability(directory, out) == false) {
-            return;
-        }
-
-        final String javaStandardClassName = firstLetterCaps(name);
-
-        final TemplateSettings settings = new TemplateSettings(
-                javaStandardClassName, topLevelPackage);
-        settings.setTopLevelPacakge(topLevelPackage + type.getPackageName()
-                + "." + name.toLowerCase(Locale.ENGLISH));
-        settings.setBeanCreate(beanGenerate);
-        settings.setControllerCreate(controllerGenerate);
-        settings.setFXMLCreate(fxmlGenerate);
-        
-        if (fxmlGenerate) {
-            final DirectoryResource resourceDir = this.project.getFacet(
-                    ResourceFacet.class).getResourceFolder();
-            
-            settings.setFXMLCreate(true);
-
-            createFullPackageIfNotExist(resourceDir,
-                    settings.getImportPackage() + ".ui.fxml", out);
-            determineFileAvailabilty(this.project, resourceDir,
-                    CreationType.FXML, javaStandardClassName, out, "", ".fxml",
-                    settings);
-        }
-        
-        if (modelGenerate || generateAll)
-        determineFileAvailabilty(this.project, directory, type,
-                javaStandardClassName, out, "Model", "Model.java", settings);
-        
-        if (generateAll)
-        determineFileAvailabilty(this.project, directory, type,
-                javaStandardClassName, out, "View", "View.java", settings);
-
-        
-
-     
-        if (controllerGenerate && generateAll) {
-            determineFileAvailabilty(this.project, directory, type,
-                    javaStandardClassName, out, "Controller",
-                    "Controller.java", settings);
-        }
-
-        if (beanGenerate) {
-            final DirectoryResource beansDirectory = sourceFolder
-                    .getChildDirectory(Packages.toFileSyntax(topLevelPackage
-                            + CreationType.BEAN.getPackageName()));
-
-            createPackageIfNotExist(beansDirectory, "beans", out);
-
-            determineFileAvailabilty(this.project, beansDirectory,
-                    CreationType.BEAN, javaStandardClassName, out, "", ".java",
-                    settings);
-        }
+        runBatch(batch, out, plan);
     }
 
     /**
@@ -456,44 +578,19 @@ public class JRebirthPlugin implements Plugin {
      * @param fileName the file name
      * @param out the out
      * @param commandType the command type
+     * @param validate parse generated sources before saving them
+     * @param incremental skip up to date files and regenerate stale ones
+     * @param plan print the plan instead of writing the files
      */
     private void createNonUiFiles(final CreationType type,
-            final String fileName, final PipeOut out, final String commandType) {
+            final String fileName, final PipeOut out, final String commandType, final boolean validate,
+            final boolean incremental, final boolean plan) {
 
-        DirectoryResource directory = null;
-        String finalName = "";
+        final GenerationBatch batch = new GenerationBatch(this.project).setValidate(validate).setIncremental(incremental);
 
-        final MetadataFacet metadata = this.project
-                .getFacet(MetadataFacet.class);
-        final DirectoryResource sourceFolder = this.project.getFacet(
-                JavaSourceFacet.class).getSourceFolder();
-        final String topLevelPackage = metadata.getTopLevelPackage();
+        new ArtifactPlanner(this.project).planNonUi(batch, type, fileName, commandType);
 
-        finalName = firstLetterCaps(fileName);
-
-        try {
-
-            directory = sourceFolder
-                    .getChildDirectory(Packages.toFileSyntax(topLevelPackage
-                            + type.getPackageName() + "."));
-
-            createPackageIfNotExist(directory, type.getPackageName(), out);
-
-            final TemplateSettings settings = new TemplateSettings(finalName,
-                    topLevelPackage);
-            settings.setTopLevelPacakge(topLevelPackage + type.getPackageName());
-
-            if (commandType != null) {
-                settings.setCommandType(commandType);
-            }
-
-            determineFileAvailabilty(this.project, directory, type, finalName,
-                    out, "", ".java", settings);
-
-        } catch (final Exception e) {
-            ShellMessages.error(out,
-                    messages.getMessage("could.not.create.file"));
-        }
+        runBatch(batch, out, plan);
     }
 
     /**
@@ -504,64 +601,35 @@ public class JRebirthPlugin implements Plugin {
      * @param colorGenerate the color generate
      * @param fontGenerate the font generate
      * @param imageGenerate the image generate
+     * @param validate parse generated sources before saving them
+     * @param incremental skip up to date files and regenerate stale ones
+     * @param plan print the plan instead of writing the files
      */
     private void createResourceFiles(final PipeOut out,
             final boolean allResource, final boolean colorGenerate,
-            final boolean fontGenerate, final boolean imageGenerate) {
+            final boolean fontGenerate, final boolean imageGenerate, final boolean validate,
+            final boolean incremental, final boolean plan) {
 
-        DirectoryResource directory = null;
-        String finalName = "";
+        final GenerationBatch batch = new GenerationBatch(this.project).setValidate(validate).setIncremental(incremental);
 
-        final MetadataFacet metadata = this.project
-                .getFacet(MetadataFacet.class);
-        final DirectoryResource sourceFolder = this.project.getFacet(
-                JavaSourceFacet.class).getSourceFolder();
-        final String topLevelPackage = metadata.getTopLevelPackage();
+        new ArtifactPlanner(this.project).planResources(batch, allResource || colorGenerate,
+                allResource || fontGenerate, allResource || imageGenerate);
 
-        finalName = firstLetterCaps(metadata.getProjectName());
-        final TemplateSettings settings = new TemplateSettings(finalName,
-                topLevelPackage);
-        final Map<String, TemplateSettings> context = new HashMap<String, TemplateSettings>();
-        settings.setTopLevelPacakge(topLevelPackage
-                + CreationType.RESOURCE.getPackageName());
-
-        context.put("settings", settings);
-
-        try {
-            directory = sourceFolder.getChildDirectory(Packages
-                    .toFileSyntax(topLevelPackage
-                            + CreationType.RESOURCE.getPackageName() + "."));
-
-            createPackageIfNotExist(directory,
-                    CreationType.RESOURCE.getPackageName(), out);
-
-            if (directory != null
-                    && directory.getChild(finalName + ".java").exists() == false) {
-
-                if (allResource || colorGenerate) {
-                    createJavaInterfaceUsingTemplate(this.project,
-                            "TemplateColorResource.ftl", context);
-                }
-                if (allResource || fontGenerate) {
-                    createJavaInterfaceUsingTemplate(this.project,
-                            "TemplateFontsResource.ftl", context);
-                    createJavaEnumUsingTemplate(this.project,
-                            "TemplateFontNamesResource.ftl", context);
-                }
-                if (allResource || imageGenerate) {
-                    createJavaInterfaceUsingTemplate(this.project,
-                            "TemplateImagesResource.ftl", context);
-                }
-
-            } else {
-                ShellMessages.error(out,
-                        messages.getMessage("file.already.exist", finalName));
-            }
+        runBatch(batch, out, plan);
+    }
 
-        } catch (final Exception e) {
-            e.printStackTrace();
-            ShellMessages.error(out,
-                    messages.getMessage("could.not.create.file"));
+    /**
+     * Commits a planned batch, or only prints its plan.
+     * 
+     * @param batch the batch
+     * @param out the out
+     * @param plan print the plan instead of writing the files
+     */
+    private void runBatch(final GenerationBatch batch, final PipeOut out, final boolean plan) {
+        if (plan) {
+            printPlan(batch, out);
+        } else {
+            commitBatch(batch, out);
         }
     }
 
@@ -0,0 +1,249 @@
+/**
+ * Get more info at : www.jrebirth.org .
+ * Copyright JRebirth.org © 2011-2013
+ * Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.jrebirth.forge.helper;
+
+import static org.jrebirth.forge.utils.PluginUtils.firstLetterCaps;
+
+import java.io.File;
+import java.util.Locale;
+
+import org.jboss.forge.project.Project;
+import org.jboss.forge.project.facets.JavaSourceFacet;
+import org.jboss.forge.project.facets.MetadataFacet;
+import org.jboss.forge.project.facets.ResourceFacet;
+import org.jboss.forge.shell.util.Packages;
+import org.jrebirth.forge.utils.GenerationBatch;
+import org.jrebirth.forge.utils.GenerationBatch.OutputType;
+import org.jrebirth.forge.utils.PluginUtils.CreationType;
+import org.jrebirth.forge.utils.TemplateSettings;
+
+/**
+ * Plans the files of JRebirth artifacts into a {@link GenerationBatch}.
+ *
+ * Project facets and the top level package are resolved once when the planner is created, so a single planner can
+ * plan any number of artifacts. Missing packages are planned into the batch too, nothing is created on disk before the
+ * batch is committed.
+ */
+public final class ArtifactPlanner {
+
+    /** The project. */
+    private final Project project;
+
+    /** The java source folder. */
+    private final File sourceFolder;
+
+    /** The top level package. */
+    private final String topLevelPackage;
+
+    /** The project name with its first letter in upper case. */
+    private final String projectName;
+
+    /** The resource folder, resolved on first use. */
+    private File resourceFolder;
+
+    /** Accept the packages of existing UI groups, to regenerate them. */
+    private boolean incremental;
+
+    /**
+     * Instantiates a new artifact planner.
+     *
+     * @param project the project
+     */
+    public ArtifactPlanner(final Project project) {
+        this.project = project;
+        final MetadataFacet metadata = project.getFacet(MetadataFacet.class);
+        this.sourceFolder = project.getFacet(JavaSourceFacet.class).getSourceFolder().getUnderlyingResourceObject();
+        this.topLevelPackage = metadata.getTopLevelPackage();
+        this.projectName = firstLetterCaps(metadata.getProjectName());
+    }
+
+    /**
+     * Sets the incremental mode.
+     *
+     * @param incremental true to plan UI groups whose package already exists
+     * @return this planner
+     */
+    public ArtifactPlanner setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * Plans the Model, View, Controller, FXML and Bean files of a UI group.
+     *
+     * @param batch the batch
+     * @param name the UI group name
+     * @param controllerGenerate the controller generate
+     * @param beanGenerate the bean generate
+     * @param fxmlGenerate the fxml generate
+     * @param modelGenerate the model generate
+     * @param generateAll the generate all
+     * @return false if the package of the UI group already exists, outside of the incremental mode
+     */
+    public boolean planUiGroup(final GenerationBatch batch, final String name, final boolean controllerGenerate,
+            final boolean beanGenerate, final boolean fxmlGenerate, final boolean modelGenerate, final boolean generateAll) {
+
+        final CreationType type = CreationType.UI;
+
+        batch.addPackage(new File(this.sourceFolder, Packages
+                .toFileSyntax(this.topLevelPackage + type.getPackageName())));
+
+        final File directory = new File(this.sourceFolder, Packages
+                .toFileSyntax(this.topLevelPackage + type.getPackageName() + "."
+                        + name.toLowerCase(Locale.ENGLISH)));
+
+        if (this.incremental) {
+            batch.addPackage(directory);
+        } else if (batch.addNewPackage(directory) == false) {
+            return false;
+        }
+
+        final String javaStandardClassName = firstLetterCaps(name);
+
+        final TemplateSettings settings = new TemplateSettings(
+                javaStandardClassName, this.topLevelPackage);
+        settings.setTopLevelPacakge(this.topLevelPackage + type.getPackageName()
+                + "." + name.toLowerCase(Locale.ENGLISH));
+        settings.setBeanCreate(beanGenerate);
+        settings.setControllerCreate(controllerGenerate);
+        settings.setFXMLCreate(fxmlGenerate);
+
+        if (fxmlGenerate) {
+            final File resourceDir = getResourceFolder();
+
+            batch.addPackages(resourceDir, settings.getImportPackage() + CreationType.FXML.getPackageName());
+            final File fxmlFile = new File(resourceDir,
+                    Packages.toFileSyntax(settings.getImportPackage() + CreationType.FXML.getPackageName())
+                            + File.separator + javaStandardClassName + ".fxml");
+            batch.addResource(fxmlFile, "TemplateFXML.ftl", settings);
+        }
+
+        if (modelGenerate || generateAll) {
+            batch.addJavaSource(OutputType.JAVA_CLASS, javaStandardClassName + "Model", "TemplateModel.ftl", settings);
+        }
+
+        if (generateAll) {
+            batch.addJavaSource(OutputType.JAVA_CLASS, javaStandardClassName + "View", "TemplateView.ftl", settings);
+        }
+
+        if (controllerGenerate && generateAll) {
+            batch.addJavaSource(OutputType.JAVA_CLASS, javaStandardClassName + "Controller", "TemplateController.ftl", settings);
+        }
+
+        if (beanGenerate) {
+            planBean(batch, javaStandardClassName);
+        }
+        return true;
+    }
+
+    /**
+     * Plans a bean class.
+     *
+     * @param batch the batch
+     * @param name the bean name
+     */
+    public void planBean(final GenerationBatch batch, final String name) {
+        batch.addPackage(new File(this.sourceFolder, Packages.toFileSyntax(this.topLevelPackage
+                + CreationType.BEAN.getPackageName())));
+
+        final TemplateSettings settings = new TemplateSettings(firstLetterCaps(name), this.topLevelPackage);
+        settings.setTopLevelPacakge(this.topLevelPackage + CreationType.BEAN.getPackageName());
+        batch.addJavaSource(OutputType.JAVA_CLASS, settings.getName(), "TemplateBean.ftl", settings);
+    }
+
+    /**
+     * Plans a Command or a Service class.
+     *
+     * @param batch the batch
+     * @param type the type, {@link CreationType#COMMAND} or {@link CreationType#SERVICE}
+     * @param fileName the file name
+     * @param commandType the command type, null for a service
+     */
+    public void planNonUi(final GenerationBatch batch, final CreationType type, final String fileName,
+            final String commandType) {
+
+        String finalName = firstLetterCaps(fileName);
+        String templateName = "TemplateCommand.ftl";
+        if (type == CreationType.SERVICE) {
+            templateName = "TemplateService.ftl";
+            if (!finalName.contains("service") && !finalName.contains("Service")) {
+                finalName = finalName.concat("Service");
+            }
+        }
+
+        batch.addPackage(new File(this.sourceFolder, Packages.toFileSyntax(this.topLevelPackage
+                + type.getPackageName())));
+
+        final TemplateSettings settings = new TemplateSettings(finalName,
+                this.topLevelPackage);
+        settings.setTopLevelPacakge(this.topLevelPackage + type.getPackageName());
+
+        if (commandType != null) {
+            settings.setCommandType(commandType);
+        }
+
+        batch.addJavaSource(OutputType.JAVA_CLASS, finalName, templateName, settings);
+    }
+
+    /**
+     * Plans the resource interfaces of the project.
+     *
+     * @param batch the batch
+     * @param colorGenerate the color generate
+     * @param fontGenerate the font generate
+     * @param imageGenerate the image generate
+     */
+    public void planResources(final GenerationBatch batch, final boolean colorGenerate,
+            final boolean fontGenerate, final boolean imageGenerate) {
+
+        final TemplateSettings settings = new TemplateSettings(this.projectName,
+                this.topLevelPackage);
+        settings.setTopLevelPacakge(this.topLevelPackage
+                + CreationType.RESOURCE.getPackageName());
+
+        batch.addPackage(new File(this.sourceFolder, Packages.toFileSyntax(this.topLevelPackage
+                + CreationType.RESOURCE.getPackageName())));
+
+        if (colorGenerate) {
+            batch.addJavaSource(OutputType.JAVA_INTERFACE, this.projectName + "Colors",
+                    "TemplateColorResource.ftl", settings);
+        }
+        if (fontGenerate) {
+            batch.addJavaSource(OutputType.JAVA_INTERFACE, this.projectName + "Fonts",
+                    "TemplateFontsResource.ftl", settings);
+            batch.addJavaSource(OutputType.JAVA_ENUM, this.projectName + "FontNames",
+                    "TemplateFontNamesResource.ftl", settings);
+        }
+        if (imageGenerate) {
+            batch.addJavaSource(OutputType.JAVA_INTERFACE, this.projectName + "Images",
+                    "TemplateImagesResource.ftl", settings);
+        }
+    }
+
+    /**
+     * Gets the resource folder.
+     *
+     * @return the resource folder
+     */
+    private File getResourceFolder() {
+        if (this.resourceFolder == null) {
+            this.resourceFolder = this.project.getFacet(ResourceFacet.class).getResourceFolder().getUnderlyingResourceObject();
+        }
+        return this.resourceFolder;
+    }
+}
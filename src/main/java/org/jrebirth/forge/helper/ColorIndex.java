@@ -0,0 +1,229 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.helper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.JavaInterface;
+import org.jrebirth.forge.helper.ColorValue.Type;
+
+/**
+ * Index of the color constants of a Colors interface by packed ARGB value.
+ *
+ * Every <code>ColorItem</code> constant created by {@link ColorValue#toConstructor(double)} is canonicalized to its
+ * packed ARGB value, so the same color written <code>WebColor("FFFFFF")</code>, <code>RGB255Color(255, 255, 255)</code>
+ * or <code>GrayColor(1.0)</code> is found once. The first constant declaring a value owns it, the next ones are
+ * duplicates which can be merged into aliases of the first one.
+ */
+public final class ColorIndex {
+
+    /** The type of the color constants. */
+    private static final String COLOR_ITEM = "ColorItem";
+
+    /** The constants by ARGB value, in declaration order, the first one owning the value. */
+    private final Map<Integer, List<String>> constants = new LinkedHashMap<Integer, List<String>>();
+
+    /** The ARGB value of each constant. */
+    private final Map<String, Integer> values = new HashMap<String, Integer>();
+
+    /**
+     * Indexes the color constants of a Colors interface. Aliases and constants which are not created by a color class
+     * are ignored.
+     *
+     * @param colors the Colors interface
+     * @return the index
+     */
+    public static ColorIndex of(final JavaInterface colors) {
+        final ColorIndex index = new ColorIndex();
+        for (final Field<JavaInterface> field : colors.getFields()) {
+            if (COLOR_ITEM.equals(field.getType())) {
+                index.add(field.getName(), field.getLiteralInitializer());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds a color constant.
+     *
+     * @param constantName the constant name
+     * @param initializer the constant initializer, like create(new WebColor("CC11AA", 0.5))
+     * @return the constant already declaring the same value, null if there is none or if the initializer is not
+     *         supported
+     */
+    public String add(final String constantName, final String initializer) {
+        final Integer argb = toArgb(initializer);
+        return argb == null ? null : add(constantName, argb.intValue());
+    }
+
+    /**
+     * Adds a color constant.
+     *
+     * @param constantName the constant name
+     * @param argb the packed ARGB value
+     * @return the constant already declaring the same value, null if there is none
+     */
+    public String add(final String constantName, final int argb) {
+        remove(constantName);
+        List<String> names = this.constants.get(argb);
+        if (names == null) {
+            names = new ArrayList<String>(1);
+            this.constants.put(argb, names);
+        }
+        names.add(constantName);
+        this.values.put(constantName, argb);
+        return names.size() > 1 ? names.get(0) : null;
+    }
+
+    /**
+     * Finds the constant declaring a color value.
+     *
+     * @param argb the packed ARGB value
+     * @return the first constant declaring the value, or null
+     */
+    public String find(final int argb) {
+        final List<String> names = this.constants.get(argb);
+        return names == null || names.isEmpty() ? null : names.get(0);
+    }
+
+    /**
+     * Removes a constant, replaced or deleted.
+     *
+     * @param constantName the constant name
+     */
+    public void remove(final String constantName) {
+        final Integer argb = this.values.remove(constantName);
+        if (argb != null) {
+            final List<String> names = this.constants.get(argb);
+            names.remove(constantName);
+            if (names.isEmpty()) {
+                this.constants.remove(argb);
+            }
+        }
+    }
+
+    /**
+     * Gets the duplicates.
+     *
+     * @return the constants sharing a value by ARGB value, the first one owning it
+     */
+    public Map<Integer, List<String>> getDuplicates() {
+        final Map<Integer, List<String>> duplicates = new LinkedHashMap<Integer, List<String>>();
+        for (final Map.Entry<Integer, List<String>> entry : this.constants.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                duplicates.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Replaces the duplicates of a Colors interface by aliases of the first constant declaring their value, so they
+     * share the same runtime object. The initializers are replaced in place, so the constants keep their order and an
+     * alias is always declared after the constant it refers to.
+     *
+     * @param colors the Colors interface indexed by this index
+     * @return the number of constants replaced by aliases
+     */
+    public int mergeDuplicates(final JavaInterface colors) {
+        int merged = 0;
+        for (final List<String> names : getDuplicates().values()) {
+            for (final String alias : names.subList(1, names.size())) {
+                colors.getField(alias).setLiteralInitializer(names.get(0));
+                remove(alias);
+                merged++;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Computes the ARGB value of a color constant initializer.
+     *
+     * @param initializer the initializer, like create(new WebColor("CC11AA", 0.5))
+     * @return the packed ARGB value, or null if the initializer is not created by a color class
+     */
+    static Integer toArgb(final String initializer) {
+        final Initializer parsed = Initializer.parse(initializer);
+        return parsed == null ? null : parsed.color.toArgb(parsed.opacity);
+    }
+
+    /**
+     * The color and the opacity of a color constant initializer.
+     */
+    static final class Initializer {
+
+        /** The color. */
+        final ColorValue color;
+
+        /** The opacity. */
+        final double opacity;
+
+        /**
+         * Instantiates a new initializer.
+         *
+         * @param color the color
+         * @param opacity the opacity
+         */
+        private Initializer(final ColorValue color, final double opacity) {
+            this.color = color;
+            this.opacity = opacity;
+        }
+
+        /**
+         * Parses a color constant initializer.
+         *
+         * @param initializer the initializer, like create(new WebColor("CC11AA", 0.5))
+         * @return the parsed initializer, or null if it is not created by a color class
+         */
+        static Initializer parse(final String initializer) {
+            if (initializer == null) {
+                return null;
+            }
+            final int newKeyword = initializer.indexOf("new ");
+            final int open = initializer.indexOf('(', newKeyword + 1);
+            final int outerClose = initializer.lastIndexOf(')');
+            final int close = outerClose < 0 ? -1 : initializer.lastIndexOf(')', outerClose - 1);
+            if (newKeyword < 0 || open < 0 || close < open) {
+                return null;
+            }
+            final Type type = Type.fromColorClass(initializer.substring(newKeyword + 4, open).trim());
+            if (type == null) {
+                return null;
+            }
+            final String[] arguments = initializer.substring(open + 1, close).split(",");
+            final int count = type == Type.WEB ? 1 : type.getComponentCount();
+            if (arguments.length != count && arguments.length != count + 1) {
+                return null;
+            }
+            final StringBuilder value = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                value.append(i > 0 ? "_" : "").append(arguments[i].trim().replace("\"", ""));
+            }
+            final ColorValue color = ColorParser.parse(type, value);
+            if (color == null) {
+                return null;
+            }
+            try {
+                return new Initializer(color, arguments.length > count ? Double.parseDouble(arguments[count].trim()) : 1.0D);
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.helper;
+
+import org.jrebirth.forge.helper.ColorValue.Type;
+
+/**
+ * Parses color values in a single pass, without regular expressions.
+ *
+ * The components are separated by an underscore, optionally surrounded by spaces. Web colors are six hexadecimal
+ * digits, in any case. Gray levels, RGB01 channels, saturations and brightnesses are decimals from 0.0 to 1.0, hues are
+ * decimals from 0.0 to 360.0 and RGB255 channels are integers from 0 to 255.
+ */
+public final class ColorParser {
+
+    /** The separator of the components. */
+    private static final char SEPARATOR = '_';
+
+    /** The highest hue. */
+    private static final double MAX_HUE = 360.0D;
+
+    /** The highest RGB255 channel. */
+    private static final int MAX_CHANNEL = 255;
+
+    /** The most decimal digits converted without rounding error. */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /** The powers of ten dividing the decimal digits. */
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0D;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0D;
+        }
+    }
+
+    /** The text being parsed. */
+    private final CharSequence text;
+
+    /** The position of the next character. */
+    private int position;
+
+    /** The last number read. */
+    private double number;
+
+    /**
+     * Instantiates a new color parser.
+     *
+     * @param text the text to parse
+     */
+    private ColorParser(final CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a color value of a type given by name.
+     *
+     * @param typeName the type name, in any case
+     * @param text the color value
+     * @return the color value, or null if the type is unknown or the value is invalid
+     */
+    public static ColorValue parse(final String typeName, final CharSequence text) {
+        final Type type = Type.fromName(typeName);
+        return type == null ? null : parse(type, text);
+    }
+
+    /**
+     * Parses a color value.
+     *
+     * @param type the type
+     * @param text the color value
+     * @return the color value, or null if it is invalid
+     */
+    public static ColorValue parse(final Type type, final CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        if (type == Type.WEB) {
+            return parseWeb(text);
+        }
+        final ColorParser parser = new ColorParser(text);
+        final double[] components = new double[type.getComponentCount()];
+        for (int i = 0; i < components.length; i++) {
+            if (i > 0 && !parser.readSeparator()) {
+                return null;
+            }
+            final boolean read;
+            if (type == Type.RGB255) {
+                read = parser.readInteger(MAX_CHANNEL);
+            } else {
+                read = parser.readDecimal(type == Type.HSB && i == 0 ? MAX_HUE : 1.0D);
+            }
+            if (!read) {
+                return null;
+            }
+            components[i] = parser.number;
+        }
+        return parser.position == text.length() ? new ColorValue(type, components) : null;
+    }
+
+    /**
+     * Parses the six hexadecimal digits of a web color.
+     *
+     * @param text the color value
+     * @return the color value, or null if it is invalid
+     */
+    private static ColorValue parseWeb(final CharSequence text) {
+        if (text.length() != 6) {
+            return null;
+        }
+        final double[] components = new double[3];
+        for (int i = 0; i < 6; i++) {
+            final int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                return null;
+            }
+            components[i / 2] = components[i / 2] * 16 + digit;
+        }
+        return new ColorValue(Type.WEB, components);
+    }
+
+    /**
+     * Reads a separator and the spaces around it.
+     *
+     * @return true if a separator was read
+     */
+    private boolean readSeparator() {
+        skipSpaces();
+        if (this.position == this.text.length() || this.text.charAt(this.position) != SEPARATOR) {
+            return false;
+        }
+        this.position++;
+        skipSpaces();
+        return true;
+    }
+
+    /**
+     * Skips spaces.
+     */
+    private void skipSpaces() {
+        while (this.position < this.text.length() && this.text.charAt(this.position) == ' ') {
+            this.position++;
+        }
+    }
+
+    /**
+     * Reads an integer.
+     *
+     * @param max the highest accepted value
+     * @return true if an integer within range was read
+     */
+    private boolean readInteger(final int max) {
+        final int start = this.position;
+        int value = 0;
+        while (this.position < this.text.length() && isDigit(this.text.charAt(this.position))) {
+            value = value * 10 + this.text.charAt(this.position++) - '0';
+            if (value > max) {
+                return false;
+            }
+        }
+        this.number = value;
+        return this.position > start;
+    }
+
+    /**
+     * Reads a decimal, with an optional fractional part.
+     *
+     * @param max the highest accepted value
+     * @return true if a decimal within range was read
+     */
+    private boolean readDecimal(final double max) {
+        final int start = this.position;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        while (this.position < this.text.length()) {
+            final char c = this.text.charAt(this.position);
+            if (isDigit(c)) {
+                mantissa = mantissa * 10 + c - '0';
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction && digits > 0) {
+                fraction = true;
+            } else {
+                break;
+            }
+            this.position++;
+            if (digits > MAX_EXACT_DIGITS) {
+                return readLongDecimal(start, max);
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        this.number = mantissa / POWERS_OF_TEN[scale];
+        return this.number <= max;
+    }
+
+    /**
+     * Reads a decimal with too many digits to be converted exactly, with {@link Double#parseDouble(String)}.
+     *
+     * @param start the position of the decimal
+     * @param max the highest accepted value
+     * @return true if a decimal within range was read
+     */
+    private boolean readLongDecimal(final int start, final double max) {
+        boolean fraction = this.text.subSequence(start, this.position).toString().indexOf('.') >= 0;
+        while (this.position < this.text.length()) {
+            final char c = this.text.charAt(this.position);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (!isDigit(c)) {
+                break;
+            }
+            this.position++;
+        }
+        this.number = Double.parseDouble(this.text.subSequence(start, this.position).toString());
+        return this.number <= max;
+    }
+
+    /**
+     * Checks if a character is an ASCII digit.
+     *
+     * @param c the character
+     * @return true if it is a digit
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.helper;
+
+import java.util.Arrays;
+
+/**
+ * A color value parsed by the {@link ColorParser}, with its components normalized.
+ *
+ * Web colors keep their red, green and blue components from 0 to 255, gray colors their level, HSB colors their hue,
+ * saturation and brightness, RGB colors their three channels.
+ */
+public final class ColorValue {
+
+    /**
+     * The color types, with the JRebirth color class built by each.
+     */
+    public static enum Type {
+
+        /** A web color, written CC11AA. */
+        WEB("WebColor", 3),
+
+        /** A gray level, written 0.5. */
+        GRAY("GrayColor", 1),
+
+        /** An HSB color, written 200_0.6_1.0. */
+        HSB("HSBColor", 3),
+
+        /** An RGB color with channels from 0.0 to 1.0, written 0_0.3_1.0. */
+        RGB01("RGB01Color", 3),
+
+        /** An RGB color with channels from 0 to 255, written 100_45_200. */
+        RGB255("RGB255Color", 3);
+
+        /** The types, to look them up without copying the values array. */
+        private static final Type[] TYPES = values();
+
+        /** The JRebirth color class. */
+        private final String colorClass;
+
+        /** The number of components. */
+        private final int componentCount;
+
+        /**
+         * Instantiates a new type.
+         *
+         * @param colorClass the JRebirth color class
+         * @param componentCount the number of components
+         */
+        private Type(final String colorClass, final int componentCount) {
+            this.colorClass = colorClass;
+            this.componentCount = componentCount;
+        }
+
+        /**
+         * Finds a type by name, ignoring the case.
+         *
+         * @param name the type name, as completed by the color-add command
+         * @return the type, or null if there is none with this name
+         */
+        public static Type fromName(final String name) {
+            if (name != null) {
+                for (final Type type : TYPES) {
+                    if (type.name().equalsIgnoreCase(name)) {
+                        return type;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Finds a type by the JRebirth color class it builds.
+         *
+         * @param colorClass the simple name of the color class
+         * @return the type, or null if no type builds this class
+         */
+        public static Type fromColorClass(final String colorClass) {
+            for (final Type type : TYPES) {
+                if (type.colorClass.equals(colorClass)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the JRebirth color class.
+         *
+         * @return the simple name of the color class
+         */
+        public String getColorClass() {
+            return this.colorClass;
+        }
+
+        /**
+         * Gets the component count.
+         *
+         * @return the number of components
+         */
+        public int getComponentCount() {
+            return this.componentCount;
+        }
+    }
+
+    /** The hexadecimal digits of web colors. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** The type. */
+    private final Type type;
+
+    /** The components. */
+    private final double[] components;
+
+    /**
+     * Instantiates a new color value, only built by the parser.
+     *
+     * @param type the type
+     * @param components the components, owned by the value
+     */
+    ColorValue(final Type type, final double... components) {
+        this.type = type;
+        this.components = components;
+    }
+
+    /**
+     * Gets the type.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets a component.
+     *
+     * @param index the component index
+     * @return the component value
+     */
+    public double getComponent(final int index) {
+        return this.components[index];
+    }
+
+    /**
+     * Builds the code creating this color in a JRebirth color resource interface.
+     *
+     * @param opacity the opacity, omitted when it is 1.0
+     * @return the code, like create(new WebColor("CC11AA"));
+     */
+    public String toConstructor(final double opacity) {
+        final StringBuilder sb = new StringBuilder(64).append("create(new ").append(this.type.getColorClass()).append('(');
+        if (this.type == Type.WEB) {
+            sb.append('"');
+            for (final double component : this.components) {
+                final int value = (int) component;
+                sb.append(HEX_DIGITS[value >> 4]).append(HEX_DIGITS[value & 0xF]);
+            }
+            sb.append('"');
+        } else {
+            for (int i = 0; i < this.components.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                appendComponent(sb, this.components[i]);
+            }
+        }
+        if (opacity != 1.0D) {
+            sb.append(',').append(opacity);
+        }
+        return sb.append("));").toString();
+    }
+
+    /**
+     * Converts this color into a web color at generation time, so the application builds it without any color space
+     * conversion.
+     *
+     * @return the web color, 8 bits per channel
+     */
+    public ColorValue toWeb() {
+        if (this.type == Type.WEB) {
+            return this;
+        }
+        final int argb = toArgb(1.0D);
+        return new ColorValue(Type.WEB, argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF);
+    }
+
+    /**
+     * Converts this color into a packed ARGB value, 8 bits per channel, as JavaFX would display it. Equal ARGB values
+     * mean the same displayed color, whatever the type used to write them.
+     *
+     * @param opacity the opacity
+     * @return the packed ARGB value
+     */
+    public int toArgb(final double opacity) {
+        final double red;
+        final double green;
+        final double blue;
+        switch (this.type) {
+            case WEB:
+            case RGB255:
+                red = this.components[0] / 255.0D;
+                green = this.components[1] / 255.0D;
+                blue = this.components[2] / 255.0D;
+                break;
+            case GRAY:
+                red = this.components[0];
+                green = this.components[0];
+                blue = this.components[0];
+                break;
+            case HSB:
+                final double[] rgb = hsbToRgb(this.components[0], this.components[1], this.components[2]);
+                red = rgb[0];
+                green = rgb[1];
+                blue = rgb[2];
+                break;
+            default:
+                red = this.components[0];
+                green = this.components[1];
+                blue = this.components[2];
+                break;
+        }
+        return channel(opacity) << 24 | channel(red) << 16 | channel(green) << 8 | channel(blue);
+    }
+
+    /**
+     * Converts a channel from 0.0 to 1.0 into 8 bits.
+     *
+     * @param value the channel value
+     * @return the channel from 0 to 255
+     */
+    private static int channel(final double value) {
+        return (int) Math.round(Math.max(0.0D, Math.min(1.0D, value)) * 255.0D);
+    }
+
+    /**
+     * Converts an HSB color into RGB, as javafx.scene.paint.Color does.
+     *
+     * @param hue the hue, from 0.0 to 360.0
+     * @param saturation the saturation, from 0.0 to 1.0
+     * @param brightness the brightness, from 0.0 to 1.0
+     * @return the red, green and blue channels, from 0.0 to 1.0
+     */
+    private static double[] hsbToRgb(final double hue, final double saturation, final double brightness) {
+        if (saturation == 0.0D) {
+            return new double[] { brightness, brightness, brightness };
+        }
+        final double normalizedHue = ((hue % 360.0D + 360.0D) % 360.0D) / 360.0D;
+        final double h = (normalizedHue - Math.floor(normalizedHue)) * 6.0D;
+        final double f = h - Math.floor(h);
+        final double p = brightness * (1.0D - saturation);
+        final double q = brightness * (1.0D - saturation * f);
+        final double t = brightness * (1.0D - saturation * (1.0D - f));
+        switch ((int) h) {
+            case 0:
+                return new double[] { brightness, t, p };
+            case 1:
+                return new double[] { q, brightness, p };
+            case 2:
+                return new double[] { p, brightness, t };
+            case 3:
+                return new double[] { p, q, brightness };
+            case 4:
+                return new double[] { t, p, brightness };
+            default:
+                return new double[] { brightness, p, q };
+        }
+    }
+
+    /**
+     * Appends a component as a java literal.
+     *
+     * @param sb the builder
+     * @param component the component
+     */
+    private void appendComponent(final StringBuilder sb, final double component) {
+        if (this.type == Type.RGB255) {
+            sb.append((int) component);
+        } else {
+            sb.append(component);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ColorValue)) {
+            return false;
+        }
+        final ColorValue other = (ColorValue) obj;
+        return this.type == other.type && Arrays.equals(this.components, other.components);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.type.ordinal() + Arrays.hashCode(this.components);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.type + Arrays.toString(this.components);
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.helper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * An immutable piece of Maven plugin configuration.
+ *
+ * Fragments are built element by element with a {@link Builder}, without writing nor parsing any XML text. Each call
+ * to {@link #toDom()} returns a new copy of the tree, so a fragment can be shared by any number of plugins and
+ * profiles.
+ */
+public final class ConfigurationFragment {
+
+    /** The element tree, never exposed. */
+    private final Xpp3Dom dom;
+
+    /**
+     * Instantiates a new configuration fragment.
+     *
+     * @param dom the element tree
+     */
+    private ConfigurationFragment(final Xpp3Dom dom) {
+        this.dom = dom;
+    }
+
+    /**
+     * Starts a fragment.
+     *
+     * @param name the name of the root element
+     * @param attributes the attribute names and values of the root element, one after the other
+     * @return the builder
+     */
+    public static Builder builder(final String name, final String... attributes) {
+        return new Builder(name, attributes);
+    }
+
+    /**
+     * Starts a plugin configuration.
+     *
+     * @return the builder of a configuration element
+     */
+    public static Builder configuration() {
+        return new Builder("configuration", new String[0]);
+    }
+
+    /**
+     * Gets the name of the root element.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return this.dom.getName();
+    }
+
+    /**
+     * Builds a new element tree from the fragment.
+     *
+     * @return a copy of the tree, free to be modified
+     */
+    public Xpp3Dom toDom() {
+        return new Xpp3Dom(this.dom);
+    }
+
+    /**
+     * Builder of configuration fragments.
+     */
+    public static final class Builder {
+
+        /** The root element. */
+        private final Xpp3Dom root;
+
+        /** The elements being built, the current one first. */
+        private final Deque<Xpp3Dom> open = new ArrayDeque<Xpp3Dom>();
+
+        /**
+         * Instantiates a new builder.
+         *
+         * @param name the name of the root element
+         * @param attributes the attribute names and values of the root element
+         */
+        private Builder(final String name, final String... attributes) {
+            this.root = create(name, attributes);
+            this.open.push(this.root);
+        }
+
+        /**
+         * Adds an element with a text value to the current element.
+         *
+         * @param name the element name
+         * @param value the text value
+         * @return this builder
+         */
+        public Builder value(final String name, final String value) {
+            final Xpp3Dom child = new Xpp3Dom(name);
+            child.setValue(value);
+            this.open.peek().addChild(child);
+            return this;
+        }
+
+        /**
+         * Adds an element without text to the current element.
+         *
+         * @param name the element name
+         * @param attributes the attribute names and values, one after the other
+         * @return this builder
+         */
+        public Builder element(final String name, final String... attributes) {
+            this.open.peek().addChild(create(name, attributes));
+            return this;
+        }
+
+        /**
+         * Adds elements with an empty text value to the current element, as parsed from {@code <name></name>}.
+         *
+         * @param names the element names
+         * @return this builder
+         */
+        public Builder empty(final String... names) {
+            for (final String name : names) {
+                value(name, "");
+            }
+            return this;
+        }
+
+        /**
+         * Adds a copy of a fragment to the current element.
+         *
+         * @param fragment the fragment
+         * @return this builder
+         */
+        public Builder add(final ConfigurationFragment fragment) {
+            this.open.peek().addChild(fragment.toDom());
+            return this;
+        }
+
+        /**
+         * Adds a copy of the children of a fragment to the current element.
+         *
+         * @param fragment the fragment
+         * @return this builder
+         */
+        public Builder addChildren(final ConfigurationFragment fragment) {
+            for (final Xpp3Dom child : fragment.dom.getChildren()) {
+                this.open.peek().addChild(new Xpp3Dom(child));
+            }
+            return this;
+        }
+
+        /**
+         * Opens a nested element, the following elements are added into it until {@link #end()}.
+         *
+         * @param name the element name
+         * @param attributes the attribute names and values, one after the other
+         * @return this builder
+         */
+        public Builder begin(final String name, final String... attributes) {
+            final Xpp3Dom child = create(name, attributes);
+            this.open.peek().addChild(child);
+            this.open.push(child);
+            return this;
+        }
+
+        /**
+         * Closes the current nested element.
+         *
+         * @return this builder
+         */
+        public Builder end() {
+            if (this.open.size() == 1) {
+                throw new IllegalStateException("No nested element to close in " + this.root.getName());
+            }
+            this.open.pop();
+            return this;
+        }
+
+        /**
+         * Creates an element with attributes.
+         *
+         * @param name the element name
+         * @param attributes the attribute names and values, one after the other
+         * @return the element
+         */
+        private static Xpp3Dom create(final String name, final String... attributes) {
+            if (attributes.length % 2 != 0) {
+                throw new IllegalArgumentException("Attribute " + attributes[attributes.length - 1] + " of " + name + " has no value");
+            }
+            final Xpp3Dom element = new Xpp3Dom(name);
+            for (int i = 0; i < attributes.length; i += 2) {
+                element.setAttribute(attributes[i], attributes[i + 1]);
+            }
+            return element;
+        }
+
+        /**
+         * Builds the fragment.
+         *
+         * @return the immutable fragment
+         */
+        public ConfigurationFragment build() {
+            if (this.open.size() != 1) {
+                throw new IllegalStateException("Element " + this.open.peek().getName() + " is not closed");
+            }
+            return new ConfigurationFragment(new Xpp3Dom(this.root));
+        }
+    }
+}
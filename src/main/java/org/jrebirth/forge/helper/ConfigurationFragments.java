@@ -0,0 +1,467 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.helper;
+
+import static org.jrebirth.forge.helper.ConfigurationFragment.builder;
+import static org.jrebirth.forge.helper.ConfigurationFragment.configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the plugin configuration fragments used by the generated build.
+ *
+ * Fragments are built once and shared, new profiles compose them instead of writing their configuration again.
+ */
+public final class ConfigurationFragments {
+
+    /** The configuration of the maven-compiler-plugin. */
+    public static final ConfigurationFragment COMPILER = configuration()
+            .value("source", "${javaVersion}")
+            .value("target", "${javaVersion}")
+            .value("encoding", "UTF-8")
+            .value("debug", "false")
+            .value("showDeprecation", "true")
+            .build();
+
+    /** The manifest entries of a JavaFX application jar. */
+    public static final ConfigurationFragment JAVAFX_MANIFEST_ENTRIES = builder("manifestEntries")
+            .value("JavaFX-Version", "2.0")
+            .value("Main-Class", "${appMainClass}")
+            .value("JavaFX-Application-Class", "${appMainClass}")
+            .value("implementation-version", "1.0")
+            .empty("JavaFX-Class-Path")
+            .build();
+
+    /** The configuration of the maven-jar-plugin. */
+    public static final ConfigurationFragment JAR = configuration()
+            .begin("archive")
+                .add(JAVAFX_MANIFEST_ENTRIES)
+                .begin("manifest")
+                    .value("addClasspath", "true")
+                .end()
+            .end()
+            .build();
+
+    /** The JNLP descriptor of the webstart-maven-plugin. */
+    public static final ConfigurationFragment WEBSTART_JNLP = builder("jnlp")
+            .value("outputFile", "${jnlpFilename}")
+            .value("mainClass", "${appMainClass}")
+            .value("offlineAllowed", "true")
+            .build();
+
+    /** The jar signing of the webstart-maven-plugin, with a generated keystore. */
+    public static final ConfigurationFragment WEBSTART_SIGN = builder("sign")
+            .empty("keystore", "keypass", "storepass", "alias")
+            .value("validity", "360")
+            .empty("dnameCn", "dnameOu", "dnameO", "dnameL", "dnameSt", "dnameC")
+            .value("verify", "true")
+            .begin("keystoreConfig")
+                .value("delete", "true")
+                .value("gen", "true")
+            .end()
+            .build();
+
+    /** The configuration of the webstart-maven-plugin. */
+    public static final ConfigurationFragment WEBSTART = configuration()
+            .value("jnlpFiles", "${jrebirth.jnlp.filename}")
+            .value("excludeTransitive", "false")
+            .value("libPath", "lib")
+            .value("resourcesDirectory", "${project.basedir}/src/main/jnlp/resources")
+            .value("codebase", "${deployUrl}/${deployPath}")
+            .add(WEBSTART_JNLP)
+            .add(WEBSTART_SIGN)
+            .value("pack200", "true")
+            .value("gzip", "true")
+            .value("outputJarVersions", "false")
+            .value("install", "false")
+            .value("verbose", "true")
+            .build();
+
+    /** The system property making a generated application print its startup time and exit after the given delay. */
+    public static final String STARTUP_EXIT_PROPERTY = "jrebirth.startup.exit";
+
+    /** The maven-dependency-plugin configuration copying the runtime libraries next to the AppCDS archive. */
+    public static final ConfigurationFragment APPCDS_LIBRARIES = configuration()
+            .value("outputDirectory", "${appcds.directory}/lib")
+            .value("includeScope", "runtime")
+            .build();
+
+    /**
+     * The maven-antrun-plugin configuration building the AppCDS archive.
+     *
+     * The application runs once to dump the classes loaded during its training time, the archive is dumped from this
+     * list, then the cold start time is measured without and with the archive. The launch options are written to an
+     * argument file, to start the application with {@code java @artifactId.args} from the AppCDS folder. The OpenJFX
+     * jars are on the module path of every run and of the argument file, as JavaFX 11 and later requires.
+     *
+     * Every run is killed after {@code appcds.timeout} ms, so an application which never shows its window cannot
+     * block the build. The training run and the archive dump fail it, the timed runs just print their error.
+     */
+    public static final ConfigurationFragment APPCDS = configuration()
+            .begin("target")
+                .element("copy", "file", "${project.build.directory}/${project.build.finalName}.jar", "todir", "${appcds.directory}/lib")
+                .addChildren(javafxJars("${appcds.directory}"))
+                .begin("pathconvert", "property", "appcds.classpath", "pathsep", "${path.separator}")
+                    .begin("sort")
+                        .element("fileset", "dir", "${appcds.directory}/lib", "includes", "*.jar")
+                    .end()
+                    .begin("chainedmapper")
+                        .element("flattenmapper")
+                        .element("globmapper", "from", "*", "to", "lib/*")
+                    .end()
+                .end()
+                .add(javafxOptions("${appcds.directory}", "appcds.javafxOptions"))
+                .add(appCdsRun("${appcds.trainingTime}", true, "-Xshare:off", "-XX:DumpLoadedClassList=classes.lst"))
+                .add(appCdsRun(null, true, "-Xshare:dump", "-XX:SharedClassListFile=classes.lst", "-XX:SharedArchiveFile=${project.artifactId}.jsa"))
+                .element("echo", "message", "Cold start without the AppCDS archive:")
+                .add(appCdsRun("0", false, "-Xshare:off"))
+                .element("echo", "message", "Cold start with the AppCDS archive:")
+                .add(appCdsRun("0", false, "-Xshare:on", "-XX:SharedArchiveFile=${project.artifactId}.jsa"))
+                .element("echo", "file", "${appcds.directory}/${project.artifactId}.args",
+                        "message", "-XX:SharedArchiveFile=${project.artifactId}.jsa ${appcds.javafxOptions} -cp ${appcds.classpath} ${appMainClass}")
+            .end()
+            .build();
+
+    /**
+     * The maven-enforcer-plugin configuration of the appcds profile, which fails before the build starts when Maven
+     * does not run on a JDK able to archive the application classes.
+     */
+    public static final ConfigurationFragment APPCDS_ENFORCER = requireJavaVersion("[11,)",
+            "The appcds profile needs AppCDS of the application class and module paths: run Maven with JDK 11 or later.");
+
+    /** The build-helper-maven-plugin configuration attaching the AppCDS archive and its launch options. */
+    public static final ConfigurationFragment APPCDS_ATTACH = configuration()
+            .begin("artifacts")
+                .begin("artifact")
+                    .value("file", "${appcds.directory}/${project.artifactId}.jsa")
+                    .value("type", "jsa")
+                    .value("classifier", "appcds")
+                .end()
+                .begin("artifact")
+                    .value("file", "${appcds.directory}/${project.artifactId}.args")
+                    .value("type", "args")
+                    .value("classifier", "appcds")
+                .end()
+            .end()
+            .build();
+
+    /**
+     * The maven-enforcer-plugin configuration of the runtime-image profile, which fails before the build starts when
+     * Maven does not run on a JDK providing jlink, jdeps and jpackage.
+     */
+    public static final ConfigurationFragment RUNTIME_IMAGE_ENFORCER = requireJavaVersion("[14,)",
+            "The runtime-image profile needs jdeps, jlink and jpackage: run Maven with JDK 14 or later.");
+
+    /** The maven-dependency-plugin configuration copying the runtime libraries given to jpackage. */
+    public static final ConfigurationFragment RUNTIME_LIBRARIES = configuration()
+            .value("outputDirectory", "${runtime.directory}/lib")
+            .value("includeScope", "runtime")
+            .build();
+
+    /**
+     * The maven-antrun-plugin configuration building a trimmed runtime image and a native launcher.
+     *
+     * The modules required by the application are computed by jdeps from the built jar and its libraries, jlink links
+     * only them with the JavaFX modules and jpackage builds an application image, which needs no packaging tool on the
+     * build host. The OpenJFX jars are linked from the module path, so they are not given to jpackage with the other
+     * libraries.
+     */
+    public static final ConfigurationFragment RUNTIME_IMAGE = configuration()
+            .begin("target")
+                .element("copy", "file", "${project.build.directory}/${project.build.finalName}.jar", "todir", "${runtime.directory}/lib")
+                .addChildren(javafxJars("${runtime.directory}"))
+                .begin("pathconvert", "property", "runtime.classpath", "pathsep", "${path.separator}")
+                    .element("fileset", "dir", "${runtime.directory}/lib", "includes", "*.jar")
+                .end()
+                .add(jdkTool("jdeps", "runtime.modules", "--print-module-deps", "--ignore-missing-deps",
+                        "--module-path", "${runtime.modulePath}", "--add-modules", "${javafx.modules}",
+                        "--class-path", "${runtime.classpath}", "${runtime.directory}/lib/${project.build.finalName}.jar"))
+                .element("echo", "message", "Modules required by the application: ${runtime.modules}")
+                .element("delete", "dir", "${runtime.directory}/image")
+                .add(jdkTool("jlink", null, "--module-path", "${runtime.modulePath}", "--add-modules", "${runtime.modules},${javafx.modules}",
+                        "--strip-debug", "--no-header-files", "--no-man-pages", "--compress=2",
+                        "--output", "${runtime.directory}/image"))
+                .element("delete", "dir", "${runtime.directory}/dist")
+                .add(jdkTool("jpackage", null, "--type", "app-image", "--name", "${project.artifactId}",
+                        "--input", "${runtime.directory}/lib", "--main-jar", "${project.build.finalName}.jar",
+                        "--main-class", "${appMainClass}", "--runtime-image", "${runtime.directory}/image",
+                        "--dest", "${runtime.directory}/dist"))
+                .begin("length", "property", "runtime.image.size")
+                    .element("fileset", "dir", "${runtime.directory}/image")
+                .end()
+                .begin("length", "property", "runtime.dist.size")
+                    .element("fileset", "dir", "${runtime.directory}/dist")
+                .end()
+                .element("echo", "message", "Runtime image: ${runtime.image.size} bytes, application image: ${runtime.dist.size} bytes")
+            .end()
+            .build();
+
+    /** The maven-dependency-plugin configuration copying the runtime libraries, to measure what shading removes. */
+    public static final ConfigurationFragment SHADE_LIBRARIES = configuration()
+            .value("outputDirectory", "${shade.directory}/lib")
+            .value("includeScope", "runtime")
+            .build();
+
+    /**
+     * The maven-shade-plugin configuration building a minimized jar attached with the shaded classifier. JRebirth
+     * classes are kept whole because the framework loads some of them by reflection. OpenJFX is left out, JavaFX 11 and
+     * later only runs from the module path.
+     */
+    public static final ConfigurationFragment SHADE = configuration()
+            .value("minimizeJar", "true")
+            .value("shadedArtifactAttached", "true")
+            .value("shadedClassifierName", "shaded")
+            .value("createDependencyReducedPom", "false")
+            .begin("artifactSet")
+                .begin("excludes")
+                    .value("exclude", "org.openjfx:*")
+                .end()
+            .end()
+            .begin("filters")
+                .begin("filter")
+                    .value("artifact", "org.jrebirth:*")
+                    .begin("includes")
+                        .value("include", "**")
+                    .end()
+                .end()
+                .begin("filter")
+                    .value("artifact", "*:*")
+                    .begin("excludes")
+                        .value("exclude", "META-INF/*.SF")
+                        .value("exclude", "META-INF/*.DSA")
+                        .value("exclude", "META-INF/*.RSA")
+                    .end()
+                .end()
+            .end()
+            .begin("transformers")
+                .begin("transformer", "implementation", "org.apache.maven.plugins.shade.resource.ManifestResourceTransformer")
+                    .value("mainClass", "${appMainClass}")
+                .end()
+                .element("transformer", "implementation", "org.apache.maven.plugins.shade.resource.ServicesResourceTransformer")
+            .end()
+            .build();
+
+    /**
+     * The maven-antrun-plugin configuration ordering and indexing the shaded jar.
+     *
+     * The shaded jar runs once with {@code -verbose:class} and the OpenJFX jars on its module path, the classes it loads
+     * until its window is shown are written first in the rebuilt jar, which also gets a {@code META-INF/INDEX.LIST}.
+     * The build fails when the run loaded no class. The class count and the size of the shaded jar are then compared
+     * to the ones of the application jar and its libraries, OpenJFX excluded.
+     */
+    public static final ConfigurationFragment SHADE_ORDER = configuration()
+            .begin("target")
+                .element("copy", "file", "${project.build.directory}/${project.build.finalName}.jar", "todir", "${shade.directory}/lib")
+                .addChildren(javafxJars("${shade.directory}"))
+                .add(javafxOptions("${shade.directory}", "shade.javafxOptions"))
+                .begin("java", "jar", "${shade.jar}", "dir", "${shade.directory}", "fork", "true", "failonerror", "false",
+                        "output", "${shade.directory}/classes.log")
+                    .element("jvmarg", "line", "${shade.javafxOptions}")
+                    .element("jvmarg", "value", "-verbose:class")
+                    .element("sysproperty", "key", STARTUP_EXIT_PROPERTY, "value", "${shade.trainingTime}")
+                .end()
+                .element("touch", "file", "${shade.directory}/classes.log")
+                .begin("copy", "file", "${shade.directory}/classes.log", "tofile", "${shade.directory}/hot-classes.txt", "overwrite", "true")
+                    .begin("filterchain")
+                        .begin("linecontainsregexp")
+                            .element("regexp", "pattern", "\\[Loaded |\\[class,load\\] ")
+                        .end()
+                        .begin("tokenfilter")
+                            .element("replaceregex", "pattern", "^.*(\\[Loaded |\\[class,load\\] )(\\S+) .*$", "replace", "\\2")
+                            .element("replacestring", "from", ".", "to", "/")
+                            .element("replaceregex", "pattern", "$", "replace", ".class")
+                        .end()
+                    .end()
+                .end()
+                .begin("fail", "message", "The shaded jar loaded no class, see ${shade.directory}/classes.log: it needs a display to start.")
+                    .begin("condition")
+                        .element("length", "file", "${shade.directory}/hot-classes.txt", "length", "0", "when", "equal")
+                    .end()
+                .end()
+                .element("delete", "dir", "${shade.directory}/shaded")
+                .element("unzip", "src", "${shade.jar}", "dest", "${shade.directory}/shaded")
+                .element("delete", "file", "${shade.directory}/ordered.jar")
+                .begin("jar", "destfile", "${shade.directory}/ordered.jar", "manifest", "${shade.directory}/shaded/META-INF/MANIFEST.MF", "index", "true")
+                    .element("fileset", "dir", "${shade.directory}/shaded", "includesfile", "${shade.directory}/hot-classes.txt")
+                    .element("fileset", "dir", "${shade.directory}/shaded", "excludesfile", "${shade.directory}/hot-classes.txt",
+                            "excludes", "META-INF/MANIFEST.MF,META-INF/INDEX.LIST")
+                .end()
+                .element("move", "file", "${shade.directory}/ordered.jar", "tofile", "${shade.jar}")
+                .element("delete", "dir", "${shade.directory}/original")
+                .begin("unzip", "dest", "${shade.directory}/original")
+                    .element("fileset", "dir", "${shade.directory}/lib", "includes", "*.jar")
+                    .element("patternset", "includes", "**/*.class")
+                .end()
+                .begin("resourcecount", "property", "shade.original.classes")
+                    .element("fileset", "dir", "${shade.directory}/original", "includes", "**/*.class")
+                .end()
+                .begin("resourcecount", "property", "shade.shaded.classes")
+                    .element("fileset", "dir", "${shade.directory}/shaded", "includes", "**/*.class")
+                .end()
+                .begin("length", "property", "shade.original.size")
+                    .element("fileset", "dir", "${shade.directory}/lib", "includes", "*.jar")
+                .end()
+                .element("length", "property", "shade.shaded.size", "file", "${shade.jar}")
+                .element("echo", "message", "Application jar and libraries: ${shade.original.classes} classes, ${shade.original.size} bytes")
+                .element("echo", "message", "Shaded jar: ${shade.shaded.classes} classes, ${shade.shaded.size} bytes")
+            .end()
+            .build();
+
+    /** The fragments by name. */
+    private static final ConcurrentMap<String, ConfigurationFragment> FRAGMENTS = new ConcurrentHashMap<String, ConfigurationFragment>();
+
+    static {
+        register("compiler", COMPILER);
+        register("jar", JAR);
+        register("jar.manifestEntries", JAVAFX_MANIFEST_ENTRIES);
+        register("webstart", WEBSTART);
+        register("webstart.jnlp", WEBSTART_JNLP);
+        register("webstart.sign", WEBSTART_SIGN);
+        register("appcds", APPCDS);
+        register("appcds.libraries", APPCDS_LIBRARIES);
+        register("appcds.attach", APPCDS_ATTACH);
+        register("appcds.enforcer", APPCDS_ENFORCER);
+        register("runtime-image", RUNTIME_IMAGE);
+        register("runtime-image.libraries", RUNTIME_LIBRARIES);
+        register("runtime-image.enforcer", RUNTIME_IMAGE_ENFORCER);
+        register("shaded", SHADE);
+        register("shaded.libraries", SHADE_LIBRARIES);
+        register("shaded.order", SHADE_ORDER);
+    }
+
+    /**
+     * Private constructor.
+     */
+    private ConfigurationFragments() {
+    }
+
+    /**
+     * Builds an Ant java task running the application from the AppCDS folder.
+     *
+     * @param exitDelay the delay before the application exits once shown, null when the JVM exits by itself
+     * @param failOnError true to fail the build when the JVM fails or is killed by the timeout
+     * @param jvmArgs the JVM arguments
+     * @return the java task
+     */
+    private static ConfigurationFragment appCdsRun(final String exitDelay, final boolean failOnError, final String... jvmArgs) {
+        final ConfigurationFragment.Builder java = builder("java", "classname", "${appMainClass}", "dir", "${appcds.directory}",
+                "fork", "true", "failonerror", String.valueOf(failOnError), "timeout", "${appcds.timeout}");
+        for (final String jvmArg : jvmArgs) {
+            java.element("jvmarg", "value", jvmArg);
+        }
+        java.element("jvmarg", "line", "${appcds.javafxOptions}");
+        java.element("jvmarg", "value", "-cp").element("jvmarg", "value", "${appcds.classpath}");
+        if (exitDelay != null) {
+            java.element("sysproperty", "key", STARTUP_EXIT_PROPERTY, "value", exitDelay);
+        }
+        return java.build();
+    }
+
+    /**
+     * Builds the Ant tasks moving the OpenJFX jars copied with the libraries of a profile into their own folder. JavaFX
+     * 11 and later only runs from the module path, so these jars are kept out of the class path.
+     *
+     * @param directory the profile directory, holding the lib folder
+     * @return the tasks
+     */
+    private static ConfigurationFragment javafxJars(final String directory) {
+        return configuration()
+                .element("mkdir", "dir", directory + "/javafx")
+                .begin("move", "todir", directory + "/javafx")
+                    .element("fileset", "dir", directory + "/lib", "includes", "javafx-*.jar")
+                .end()
+                .build();
+    }
+
+    /**
+     * Builds an Ant condition setting a property to the JVM options putting the jars moved by {@link #javafxJars(String)}
+     * on the module path. The property is empty when there is no such jar, JavaFX then comes from the JDK.
+     *
+     * @param directory the profile directory, the working directory of the JVM
+     * @param property the property
+     * @return the condition
+     */
+    private static ConfigurationFragment javafxOptions(final String directory, final String property) {
+        return builder("condition", "property", property, "value", "--module-path javafx --add-modules ${javafx.modules}", "else", "")
+                .begin("resourcecount", "when", "greater", "count", "0")
+                    .element("fileset", "dir", directory + "/javafx", "includes", "*.jar")
+                .end()
+                .build();
+    }
+
+    /**
+     * Builds a maven-enforcer-plugin configuration requiring a Java version.
+     *
+     * @param range the version range of the JDK running Maven
+     * @param message the message printed when the JDK is out of the range
+     * @return the configuration
+     */
+    private static ConfigurationFragment requireJavaVersion(final String range, final String message) {
+        return configuration()
+                .begin("rules")
+                    .begin("requireJavaVersion")
+                        .value("version", range)
+                        .value("message", message)
+                    .end()
+                .end()
+                .build();
+    }
+
+    /**
+     * Builds an Ant exec task running a tool of the JDK running Maven.
+     *
+     * @param tool the tool name
+     * @param outputProperty the property receiving the tool output, null to print it
+     * @param args the tool arguments
+     * @return the exec task
+     */
+    private static ConfigurationFragment jdkTool(final String tool, final String outputProperty, final String... args) {
+        final ConfigurationFragment.Builder exec = outputProperty == null
+                ? builder("exec", "executable", "${java.home}/bin/" + tool, "failonerror", "true")
+                : builder("exec", "executable", "${java.home}/bin/" + tool, "failonerror", "true",
+                        "outputproperty", outputProperty, "errorproperty", outputProperty + ".errors");
+        for (final String arg : args) {
+            exec.element("arg", "value", arg);
+        }
+        return exec.build();
+    }
+
+    /**
+     * Registers a fragment.
+     *
+     * @param name the fragment name
+     * @param fragment the fragment
+     * @throws IllegalArgumentException if a fragment is already registered with this name
+     */
+    public static void register(final String name, final ConfigurationFragment fragment) {
+        if (FRAGMENTS.putIfAbsent(name, fragment) != null) {
+            throw new IllegalArgumentException("Configuration fragment " + name + " is already registered");
+        }
+    }
+
+    /**
+     * Gets a registered fragment.
+     *
+     * @param name the fragment name
+     * @return the fragment
+     * @throws IllegalArgumentException if no fragment is registered with this name
+     */
+    public static ConfigurationFragment get(final String name) {
+        final ConfigurationFragment fragment = FRAGMENTS.get(name);
+        if (fragment == null) {
+            throw new IllegalArgumentException("Unknown configuration fragment " + name);
+        }
+        return fragment;
+    }
+}
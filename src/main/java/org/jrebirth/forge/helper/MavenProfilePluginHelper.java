@@ -17,20 +17,19 @@
  */
 package org.jrebirth.forge.helper;
 
+import static org.jrebirth.forge.utils.PluginUtils.javafxDependency;
 import static org.jrebirth.forge.utils.PluginUtils.messages;
 
-import java.io.IOException;
-import java.io.StringReader;
-
-import org.apache.maven.model.Build;
-import org.apache.maven.model.Model;
+import org.apache.maven.model.Activation;
+import org.apache.maven.model.ActivationFile;
+import org.apache.maven.model.BuildBase;
+import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.PluginExecution;
-import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
-import org.jboss.forge.maven.MavenCoreFacet;
+import org.apache.maven.model.Profile;
 import org.jboss.forge.project.Project;
 import org.jrebirth.forge.utils.PluginUtils;
+import org.jrebirth.forge.utils.PomSession;
 
 /**
  * Class for handling Maven Profile Plugin settings.
@@ -41,43 +40,59 @@ import org.jrebirth.forge.utils.PluginUtils;
 public final class MavenProfilePluginHelper {
 
     public static void setupMavenProjectProfiles(final Project project, final String topLevelPackageName, final String projectName) {
-        final MavenCoreFacet facet = project.getFacet(MavenCoreFacet.class);
-        final Model pom = facet.getPOM();
+        final PomSession pom = PomSession.open(project);
+        setupMavenProjectProfiles(pom, topLevelPackageName, projectName);
+        pom.commit();
+    }
 
+    /**
+     * Adds the JRebirth properties and build plugins into a POM editing session. Plugins already declared by the
+     * project are kept as they are.
+     *
+     * @param pom the POM session
+     * @param topLevelPackageName the top level package name
+     * @param projectName the project name
+     * @return true if the direct JavaFX dependency added by a previous setup has been removed
+     */
+    public static boolean setupMavenProjectProfiles(final PomSession pom, final String topLevelPackageName, final String projectName) {
         final String projName = PluginUtils.firstLetterCaps(projectName);
 
-        final Build build;
-
-        build = ((pom.getBuild() == null) ? new Build() : pom.getBuild());
-
         addMavenDefaultProperties(pom, topLevelPackageName, projName);
 
-        build.addPlugin(addMavenJarPlugin());
-        build.addPlugin(addMavenCompilerPlugin());
-        build.addPlugin(addMavenWebstartPlugin());
-
-        pom.setBuild(build);
-
-        facet.setPOM(pom);
+        pom.addPlugin(addMavenJarPlugin());
+        pom.addPlugin(addMavenCompilerPlugin());
+        pom.addPlugin(addMavenWebstartPlugin());
+
+        // JavaFX comes from the JDK or from OpenJFX depending on the JDK running Maven, so it is only declared by
+        // profiles. A direct dependency on the jar of the JDK would fail the build on any JDK without it, the one added
+        // by a previous setup is removed while a dependency declared differently by the user is left as is.
+        final boolean javafxDependencyRemoved = pom.removeSameDependency(javafxDependency());
+        pom.addProfile(addJavafxRuntimeProfile());
+        pom.addProfile(addOpenjfxProfile());
+
+        pom.addProfile(addAppCdsProfile());
+        pom.addProfile(addRuntimeImageProfile());
+        pom.addProfile(addShadedProfile());
+        return javafxDependencyRemoved;
     }
 
-    private static void addMavenDefaultProperties(final Model pom, final String topLevelPackageName,
+    private static void addMavenDefaultProperties(final PomSession pom, final String topLevelPackageName,
             final String projectName)
     {
-        pom.addProperty("project.build.sourceEncoding", "UTF-8");
+        pom.setProperty("project.build.sourceEncoding", "UTF-8");
 
-        pom.addProperty("jrebirthVersion", messages.getKeyValue("jrebirthVersion"));
+        pom.setProperty("jrebirthVersion", messages.getKeyValue("jrebirthVersion"));
 
-        pom.addProperty("javaVersion", messages.getKeyValue("javaJdkVersion"));
+        pom.setProperty("javaVersion", messages.getKeyValue("javaJdkVersion"));
 
-        pom.addProperty("appMainClass", topLevelPackageName + "." + projectName + "App");
-        pom.addProperty("jnlpFilename", projectName + ".jnlp");
+        pom.setProperty("appMainClass", topLevelPackageName + "." + projectName + "App");
+        pom.setProperty("jnlpFilename", projectName + ".jnlp");
 
-        pom.addProperty("appletWidth", messages.getKeyValue("appletWidth"));
-        pom.addProperty("appletHeight", messages.getKeyValue("appletHeight"));
+        pom.setProperty("appletWidth", messages.getKeyValue("appletWidth"));
+        pom.setProperty("appletHeight", messages.getKeyValue("appletHeight"));
 
-        pom.addProperty("deployUrl", "");
-        pom.addProperty("deployPath", "");
+        pom.setProperty("deployUrl", "");
+        pom.setProperty("deployPath", "");
     }
 
     private static Plugin addMavenJarPlugin()
@@ -88,7 +103,7 @@ public final class MavenProfilePluginHelper {
         mavenJarPlugin.setArtifactId("maven-jar-plugin");
         mavenJarPlugin.setVersion(messages.getKeyValue("mavenJarVersion"));
 
-        mavenJarPlugin.setConfiguration(buildJarPluginConfiguration());
+        mavenJarPlugin.setConfiguration(ConfigurationFragments.JAR.toDom());
 
         return mavenJarPlugin;
     }
@@ -101,7 +116,7 @@ public final class MavenProfilePluginHelper {
         mavenCompilePlugin.setArtifactId("maven-compiler-plugin");
         mavenCompilePlugin.setVersion(messages.getKeyValue("mavenCompilerVersion"));
 
-        mavenCompilePlugin.setConfiguration(buildCompilePluginConfiguration());
+        mavenCompilePlugin.setConfiguration(ConfigurationFragments.COMPILER.toDom());
 
         return mavenCompilePlugin;
     }
@@ -120,86 +135,181 @@ public final class MavenProfilePluginHelper {
         
         mavenWebstartPlugin.addExecution(pluginExecution);
         
-        mavenWebstartPlugin.setConfiguration(buildWebstartPluginConfiguration());
+        mavenWebstartPlugin.setConfiguration(ConfigurationFragments.WEBSTART.toDom());
 
         return mavenWebstartPlugin;
     }
 
-    private static Object buildCompilePluginConfiguration() {
+    /**
+     * Builds the javafx-runtime profile, active when the JDK running Maven bundles the JavaFX runtime jar (JDK 7).
+     *
+     * @return the profile
+     */
+    private static Profile addJavafxRuntimeProfile() {
+        final Profile profile = new Profile();
+        profile.setId("javafx-runtime");
+
+        final ActivationFile file = new ActivationFile();
+        file.setExists(javafxDependency().getSystemPath());
+        final Activation activation = new Activation();
+        activation.setFile(file);
+        profile.setActivation(activation);
 
-        final StringBuffer buffer = new StringBuffer();
-        buffer.append("<configuration>\n");
-        buffer.append("<source>${javaVersion}</source>\n");
-        buffer.append("<target>${javaVersion}</target>\n");
-        buffer.append(" <encoding>UTF-8</encoding>\n");
-        buffer.append(" <debug>false</debug>\n");
-        buffer.append("<showDeprecation>true</showDeprecation>\n");
-        buffer.append("</configuration>\n");
+        profile.addDependency(PomSession.toMaven(javafxDependency()));
 
-        return convertFromStringToXpp3Dom(buffer.toString());
+        return profile;
     }
 
-    private static Object buildJarPluginConfiguration() {
+    /**
+     * Builds the openjfx profile, active on JDK 11 or later which no longer ship JavaFX. On JDK 8 to 10, JavaFX is
+     * provided by the JDK itself when it has one.
+     *
+     * @return the profile
+     */
+    private static Profile addOpenjfxProfile() {
+        final Profile profile = new Profile();
+        profile.setId("openjfx");
+        profile.addProperty("openjfx.version", messages.getKeyValue("openjfxVersion"));
+
+        final Activation activation = new Activation();
+        activation.setJdk("[11,)");
+        profile.setActivation(activation);
+
+        final StringBuilder modules = new StringBuilder();
+        for (final String module : new String[] { "javafx-controls", "javafx-fxml", "javafx-media", "javafx-web" }) {
+            final Dependency dependency = new Dependency();
+            dependency.setGroupId("org.openjfx");
+            dependency.setArtifactId(module);
+            dependency.setVersion("${openjfx.version}");
+            profile.addDependency(dependency);
+            modules.append(modules.length() == 0 ? "" : ",").append(module.replace('-', '.'));
+        }
+        // The module names, for the profiles putting the OpenJFX jars on the module path
+        profile.addProperty("javafx.modules", modules.toString());
 
-        final StringBuffer buffer = new StringBuffer();
+        return profile;
+    }
 
-        buffer.append("<configuration>\n");
-        buffer.append("<archive>\n");
-        buffer.append("<manifestEntries>\n");
-        buffer.append("<JavaFX-Version>2.0</JavaFX-Version>\n");
-        buffer.append(" <Main-Class>${appMainClass}</Main-Class>\n");
-        buffer.append("<JavaFX-Application-Class>${appMainClass}</JavaFX-Application-Class>\n");
-        buffer.append("<implementation-version>1.0</implementation-version>\n");
-        buffer.append("<JavaFX-Class-Path></JavaFX-Class-Path>\n");
-        buffer.append("</manifestEntries>\n");
-        buffer.append("<manifest><addClasspath>true</addClasspath></manifest>\n");
-        buffer.append("</archive>\n");
-        buffer.append("</configuration>\n");
+    /**
+     * Builds the appcds profile, which packages an AppCDS archive of the application classes with its launch options
+     * and reports the cold start time with and without it.
+     *
+     * @return the profile
+     */
+    private static Profile addAppCdsProfile() {
+        final Profile profile = new Profile();
+        profile.setId("appcds");
+        profile.addProperty("appcds.directory", "${project.build.directory}/appcds");
+        profile.addProperty("appcds.trainingTime", messages.getKeyValue("startupTrainingTime"));
+        profile.addProperty("appcds.timeout", messages.getKeyValue("startupRunTimeout"));
+
+        final BuildBase build = new BuildBase();
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-enforcer-plugin", "mavenEnforcerVersion",
+                "appcds-jdk", "validate", "enforce", ConfigurationFragments.APPCDS_ENFORCER));
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-dependency-plugin", "mavenDependencyVersion",
+                "appcds-libraries", "copy-dependencies", ConfigurationFragments.APPCDS_LIBRARIES));
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-antrun-plugin", "mavenAntrunVersion",
+                "appcds-archive", "run", ConfigurationFragments.APPCDS));
+        build.addPlugin(buildProfilePlugin("org.codehaus.mojo", "build-helper-maven-plugin", "mavenBuildHelperVersion",
+                "appcds-attach", "attach-artifact", ConfigurationFragments.APPCDS_ATTACH));
+        profile.setBuild(build);
+
+        return profile;
+    }
 
-        return convertFromStringToXpp3Dom(buffer.toString());
+    /**
+     * Builds the runtime-image profile, which links a runtime holding only the modules used by the application and
+     * packages it with a native launcher.
+     *
+     * @return the profile
+     */
+    private static Profile addRuntimeImageProfile() {
+        final Profile profile = new Profile();
+        profile.setId("runtime-image");
+        profile.addProperty("runtime.directory", "${project.build.directory}/runtime");
+        profile.addProperty("runtime.javafxModulePath", "${runtime.directory}/javafx");
+        profile.addProperty("runtime.modulePath", "${java.home}/jmods${path.separator}${runtime.javafxModulePath}");
+
+        final BuildBase build = new BuildBase();
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-enforcer-plugin", "mavenEnforcerVersion",
+                "runtime-jdk", "validate", "enforce", ConfigurationFragments.RUNTIME_IMAGE_ENFORCER));
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-dependency-plugin", "mavenDependencyVersion",
+                "runtime-libraries", "copy-dependencies", ConfigurationFragments.RUNTIME_LIBRARIES));
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-antrun-plugin", "mavenAntrunVersion",
+                "runtime-image", "run", ConfigurationFragments.RUNTIME_IMAGE));
+        profile.setBuild(build);
+
+        return profile;
     }
-    
-    private static Object buildWebstartPluginConfiguration() {
-        final StringBuffer buffer = new StringBuffer();
-        
-        
-        buffer.append("<configuration>");
-        buffer.append("<jnlpFiles>${jrebirth.jnlp.filename}</jnlpFiles>");
-        buffer.append("<excludeTransitive>false</excludeTransitive>");
-        buffer.append("<libPath>lib</libPath>");
-        buffer.append("<resourcesDirectory>${project.basedir}/src/main/jnlp/resources</resourcesDirectory>");
-        buffer.append("<codebase>${deployUrl}/${deployPath}</codebase>");
-        buffer.append(" <jnlp>");
-        buffer.append("<outputFile>${jnlpFilename}</outputFile>");
-        buffer.append("<mainClass>${appMainClass}</mainClass>");
-        buffer.append("<offlineAllowed>true</offlineAllowed>");
-        buffer.append("</jnlp>");
-        buffer.append(" <sign>");
-        buffer.append(" <keystore></keystore>");
-        buffer.append("<keypass></keypass>");
-        buffer.append("<storepass></storepass>");
-        buffer.append("<alias></alias>");
-        buffer.append("<validity>360</validity>");
-        buffer.append("<dnameCn></dnameCn>");
-        buffer.append("<dnameOu></dnameOu><dnameO></dnameO><dnameL></dnameL><dnameSt></dnameSt>");
-        buffer.append("<dnameC></dnameC><verify>true</verify>");
-        buffer.append("<keystoreConfig><delete>true</delete><gen>true</gen></keystoreConfig></sign>");
-        buffer.append(" <pack200>true</pack200><gzip>true</gzip><outputJarVersions>false</outputJarVersions>");
-        buffer.append("<install>false</install><verbose>true</verbose>");
-        buffer.append("</configuration>");
-              
-        
-        return convertFromStringToXpp3Dom(buffer.toString());
+
+    /**
+     * Builds the shaded profile, which attaches a minimized jar holding the application and its libraries, with the
+     * classes loaded at startup first and a jar index.
+     *
+     * @return the profile
+     */
+    private static Profile addShadedProfile() {
+        final Profile profile = new Profile();
+        profile.setId("shaded");
+        profile.addProperty("shade.directory", "${project.build.directory}/shade");
+        profile.addProperty("shade.jar", "${project.build.directory}/${project.build.finalName}-shaded.jar");
+        profile.addProperty("shade.trainingTime", messages.getKeyValue("startupTrainingTime"));
+
+        final BuildBase build = new BuildBase();
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-dependency-plugin", "mavenDependencyVersion",
+                "shade-libraries", "copy-dependencies", ConfigurationFragments.SHADE_LIBRARIES));
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-shade-plugin", "mavenShadeVersion",
+                "shade", "shade", ConfigurationFragments.SHADE));
+        build.addPlugin(buildProfilePlugin("org.apache.maven.plugins", "maven-antrun-plugin", "mavenAntrunVersion",
+                "shade-order", "run", ConfigurationFragments.SHADE_ORDER));
+        profile.setBuild(build);
+
+        return profile;
     }
 
-    private static Object convertFromStringToXpp3Dom(final String xml) {
-        try {
-            return Xpp3DomBuilder.build(new StringReader(xml));
-        } catch (final XmlPullParserException e) {
-            throw new IllegalStateException(e);
-        } catch (final IOException e) {
-            throw new java.lang.IllegalStateException(e);
-        }
+    /**
+     * Builds a plugin running one goal in the package phase.
+     *
+     * @param groupId the group id
+     * @param artifactId the artifact id
+     * @param versionKey the key of the plugin version
+     * @param executionId the execution id
+     * @param goal the goal
+     * @param configuration the execution configuration
+     * @return the plugin
+     */
+    private static Plugin buildProfilePlugin(final String groupId, final String artifactId, final String versionKey,
+            final String executionId, final String goal, final ConfigurationFragment configuration) {
+        return buildProfilePlugin(groupId, artifactId, versionKey, executionId, "package", goal, configuration);
+    }
+
+    /**
+     * Builds a plugin running one goal in a phase.
+     *
+     * @param groupId the group id
+     * @param artifactId the artifact id
+     * @param versionKey the key of the plugin version
+     * @param executionId the execution id
+     * @param phase the phase
+     * @param goal the goal
+     * @param configuration the execution configuration
+     * @return the plugin
+     */
+    private static Plugin buildProfilePlugin(final String groupId, final String artifactId, final String versionKey,
+            final String executionId, final String phase, final String goal, final ConfigurationFragment configuration) {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId(groupId);
+        plugin.setArtifactId(artifactId);
+        plugin.setVersion(messages.getKeyValue(versionKey));
+
+        final PluginExecution execution = new PluginExecution();
+        execution.setId(executionId);
+        execution.setPhase(phase);
+        execution.addGoal(goal);
+        execution.setConfiguration(configuration.toDom());
+        plugin.addExecution(execution);
+
+        return plugin;
     }
 
 }
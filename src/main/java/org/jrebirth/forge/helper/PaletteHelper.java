@@ -0,0 +1,546 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.helper;
+
+import static org.jrebirth.forge.utils.PluginUtils.messages;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.JavaInterface;
+import org.jboss.forge.project.Project;
+import org.jboss.forge.project.facets.JavaSourceFacet;
+import org.jboss.forge.resources.FileResource;
+import org.jboss.forge.shell.Shell;
+import org.jboss.forge.shell.ShellMessages;
+import org.jboss.forge.shell.plugins.PipeOut;
+import org.jrebirth.forge.helper.ColorValue.Type;
+import org.jrebirth.forge.utils.GenerationException;
+import org.jrebirth.forge.utils.RenderEngine;
+import org.jrebirth.forge.utils.ResourceModelCache;
+
+/**
+ * Imports a palette file into the Colors interface of the project.
+ *
+ * The palette is read line by line, as CSS custom properties, flat JSON objects or CSV rows:
+ *
+ * <pre>
+ * --window-background: #CCCCCC; --shadow: rgba(0, 0, 0, 0.5);
+ * {"name" : "windowBackground", "type" : "web", "value" : "CCCCCC", "opacity" : "1.0"}
+ * windowBackground, web, CCCCCC, 1.0
+ * </pre>
+ *
+ * Its colors are validated in parallel chunks, then merged into the Colors interface through an index of its fields.
+ * The interface is parsed once and saved once, whatever the size of the palette.
+ */
+public final class PaletteHelper {
+
+    /** The number of colors validated by each task. */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * The palette formats.
+     */
+    public static enum Format {
+
+        /** CSS custom properties, <code>--name: #RRGGBB;</code>. */
+        CSS,
+
+        /** Flat JSON objects with a name, a type, a value and an opacity, one per line. */
+        JSON,
+
+        /** CSV rows <code>name, type, value, opacity</code>, or <code>name, value</code> for web colors. */
+        CSV;
+
+        /**
+         * Finds a format by name, ignoring the case.
+         *
+         * @param name the format name
+         * @return the format, or null if there is none with this name
+         */
+        public static Format fromName(final String name) {
+            for (final Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Guesses the format of a file from its extension.
+         *
+         * @param fileName the file name
+         * @return the format, or null if the extension is unknown
+         */
+        public static Format fromFileName(final String fileName) {
+            final int dot = fileName.lastIndexOf('.');
+            return dot < 0 ? null : fromName(fileName.substring(dot + 1));
+        }
+    }
+
+    /**
+     * A color read from the palette, not validated yet.
+     */
+    static final class Entry {
+
+        /** The line number. */
+        final int line;
+
+        /** The color name. */
+        final String name;
+
+        /** The color type. */
+        final String type;
+
+        /** The color value. */
+        final String value;
+
+        /** The opacity, null for an opaque color. */
+        final String opacity;
+
+        /** The reason why the line could not be read, null if it was read. */
+        final String error;
+
+        /**
+         * Instantiates a new entry.
+         *
+         * @param line the line number
+         * @param name the color name
+         * @param type the color type
+         * @param value the color value
+         * @param opacity the opacity, null for an opaque color
+         */
+        Entry(final int line, final String name, final String type, final String value, final String opacity) {
+            this(line, name, type, value, opacity, null);
+        }
+
+        /**
+         * Instantiates a new entry.
+         *
+         * @param line the line number
+         * @param name the color name
+         * @param type the color type
+         * @param value the color value
+         * @param opacity the opacity, null for an opaque color
+         * @param error the reason why the line could not be read
+         */
+        private Entry(final int line, final String name, final String type, final String value, final String opacity, final String error) {
+            this.line = line;
+            this.name = name;
+            this.type = type;
+            this.value = value;
+            this.opacity = opacity;
+            this.error = error;
+        }
+
+        /**
+         * Builds the entry of a line which could not be read.
+         *
+         * @param line the line number
+         * @param error the reason
+         * @return the entry
+         */
+        static Entry malformed(final int line, final String error) {
+            return new Entry(line, null, null, null, null, error);
+        }
+    }
+
+    /**
+     * A validated color, or the reason why it is invalid.
+     */
+    static final class PaletteColor {
+
+        /** The line number. */
+        final int line;
+
+        /** The constant name, null if the color is invalid. */
+        final String constantName;
+
+        /** The color value, null if the color is invalid. */
+        final ColorValue color;
+
+        /** The opacity. */
+        final double opacity;
+
+        /** The error, null if the color is valid. */
+        final String error;
+
+        /**
+         * Instantiates a new palette color.
+         *
+         * @param line the line number
+         * @param constantName the constant name
+         * @param color the color value
+         * @param opacity the opacity
+         * @param error the error
+         */
+        PaletteColor(final int line, final String constantName, final ColorValue color, final double opacity, final String error) {
+            this.line = line;
+            this.constantName = constantName;
+            this.color = color;
+            this.opacity = opacity;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private PaletteHelper() {
+    }
+
+    /**
+     * Imports a palette into the Colors interface of the project, created first if needed.
+     *
+     * @param project the project
+     * @param shell the shell
+     * @param out the out
+     * @param palette the palette content
+     * @param format the palette format
+     * @param overwrite replace the constants already declared, kept otherwise
+     * @param precompute write every color as a web color, converted here instead of when the application starts
+     * @throws IOException if the palette cannot be read
+     */
+    public static void importPalette(final Project project, final Shell shell, final PipeOut out, final Reader palette,
+            final Format format, final boolean overwrite, final boolean precompute) throws IOException {
+
+        final long start = System.currentTimeMillis();
+        final List<PaletteColor> colors = validate(read(palette, format));
+
+        // The last declaration of a constant wins
+        final Map<String, PaletteColor> valid = new LinkedHashMap<String, PaletteColor>();
+        int invalid = 0;
+        for (final PaletteColor color : colors) {
+            if (color.error != null) {
+                ShellMessages.error(out, messages.getMessage("color.import.invalid.entry", color.line, color.error));
+                invalid++;
+            } else {
+                valid.put(color.constantName, color);
+            }
+        }
+
+        int added = 0;
+        int replaced = 0;
+        if (!valid.isEmpty()) {
+            final FileResource<?> colorsFile = ResourceHelper.getColorsFile(project, shell, out);
+            final JavaInterface jInterface = ResourceHelper.parseResource(colorsFile);
+
+            final Map<String, Field<JavaInterface>> fields = new HashMap<String, Field<JavaInterface>>();
+            for (final Field<JavaInterface> field : jInterface.getFields()) {
+                fields.put(field.getName(), field);
+            }
+            final ColorIndex index = ColorIndex.of(jInterface);
+
+            for (final PaletteColor color : valid.values()) {
+                final Field<JavaInterface> field = fields.get(color.constantName);
+                if (field == null) {
+                    added++;
+                } else if (overwrite) {
+                    replaced++;
+                } else {
+                    continue;
+                }
+                final String sameColor = index.add(color.constantName, color.color.toArgb(color.opacity));
+                if (sameColor != null) {
+                    ShellMessages.warn(out, messages.getMessage("color.duplicate.value", color.constantName, sameColor));
+                }
+                final ColorValue value = precompute ? color.color.toWeb() : color.color;
+                if (field == null) {
+                    jInterface.addField(ResourceHelper.colorField(color.constantName, value, color.opacity));
+                } else {
+                    // Replaced in place, so the constant keeps its order and its aliases stay declared after it
+                    field.setLiteralInitializer(ResourceHelper.colorInitializer(value, color.opacity));
+                }
+            }
+
+            if (added + replaced > 0) {
+                try {
+                    ResourceModelCache.INSTANCE.save(project.getFacet(JavaSourceFacet.class), colorsFile.getUnderlyingResourceObject(), jInterface);
+                } catch (final FileNotFoundException e) {
+                    ShellMessages.error(out, messages.getMessage("unable.to.save.file", colorsFile.getName()));
+                    return;
+                }
+            }
+        }
+
+        ShellMessages.info(out, messages.getMessage("color.import.done", colors.size(), added, replaced,
+                valid.size() - added - replaced, invalid, System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Reads the colors of a palette, line by line.
+     *
+     * @param palette the palette content
+     * @param format the palette format
+     * @return the colors, in palette order
+     * @throws IOException if the palette cannot be read
+     */
+    static List<Entry> read(final Reader palette, final Format format) throws IOException {
+        final BufferedReader reader = new BufferedReader(palette);
+        final List<Entry> entries = new ArrayList<Entry>();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            switch (format) {
+                case CSS:
+                    readCss(entries, lineNumber, line);
+                    break;
+                case JSON:
+                    readJson(entries, lineNumber, line);
+                    break;
+                default:
+                    readCsv(entries, lineNumber, line);
+                    break;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the custom properties declared on a CSS line. Comment lines are ignored.
+     *
+     * @param entries the entries
+     * @param lineNumber the line number
+     * @param line the line
+     */
+    private static void readCss(final List<Entry> entries, final int lineNumber, final String line) {
+        final String text = line.trim();
+        if (text.startsWith("/*") || text.startsWith("*")) {
+            return;
+        }
+        int next = line.indexOf("--");
+        while (next >= 0) {
+            final int colon = line.indexOf(':', next);
+            if (colon < 0) {
+                return;
+            }
+            int end = line.indexOf(';', colon);
+            if (end < 0) {
+                end = line.indexOf('}', colon) < 0 ? line.length() : line.indexOf('}', colon);
+            }
+            entries.add(cssEntry(lineNumber, line.substring(next + 2, colon).trim(), line.substring(colon + 1, end).trim()));
+            next = line.indexOf("--", end);
+        }
+    }
+
+    /**
+     * Converts a CSS color into a web or an RGB255 color.
+     *
+     * @param lineNumber the line number
+     * @param name the custom property name
+     * @param value the CSS value
+     * @return the entry, with a null type if the value is not a supported color
+     */
+    static Entry cssEntry(final int lineNumber, final String name, final String value) {
+        final String css = value.toLowerCase(Locale.ENGLISH);
+        if (css.startsWith("#")) {
+            final String hex = css.substring(1);
+            if (hex.length() == 3) {
+                final StringBuilder sb = new StringBuilder(6);
+                for (int i = 0; i < 3; i++) {
+                    sb.append(hex.charAt(i)).append(hex.charAt(i));
+                }
+                return new Entry(lineNumber, name, "web", sb.toString(), null);
+            }
+            if (hex.length() == 8) {
+                final int high = Character.digit(hex.charAt(6), 16);
+                final int low = Character.digit(hex.charAt(7), 16);
+                return new Entry(lineNumber, name, "web", hex.substring(0, 6), high < 0 || low < 0 ? hex.substring(6)
+                        : String.valueOf(Math.round((high * 16 + low) * 1000 / 255.0D) / 1000.0D));
+            }
+            return new Entry(lineNumber, name, "web", hex, null);
+        }
+        if ((css.startsWith("rgb(") || css.startsWith("rgba(")) && css.endsWith(")")) {
+            final String[] channels = css.substring(css.indexOf('(') + 1, css.length() - 1).split(",");
+            if (channels.length == 3 || channels.length == 4) {
+                return new Entry(lineNumber, name, "rgb255", channels[0].trim() + '_' + channels[1].trim() + '_' + channels[2].trim(),
+                        channels.length == 4 ? channels[3].trim() : null);
+            }
+        }
+        return new Entry(lineNumber, name, null, value, null);
+    }
+
+    /**
+     * Reads a JSON line, a flat object with a name, a value, an optional type (web by default) and an optional opacity.
+     *
+     * @param entries the entries
+     * @param lineNumber the line number
+     * @param line the line
+     */
+    private static void readJson(final List<Entry> entries, final int lineNumber, final String line) {
+        final Map<String, String> object;
+        try {
+            object = ScaffoldHelper.parseEntry(line);
+        } catch (final IllegalArgumentException e) {
+            entries.add(Entry.malformed(lineNumber, e.getMessage()));
+            return;
+        }
+        if (object != null) {
+            final String type = object.get("type");
+            entries.add(new Entry(lineNumber, object.get("name"), type == null ? "web" : type, object.get("value"), object.get("opacity")));
+        }
+    }
+
+    /**
+     * Reads a CSV row, <code>name, type, value, opacity</code> or <code>name, value</code> for a web color. Blank lines,
+     * lines starting with <code>#</code> and a header row starting with <code>name</code> are ignored.
+     *
+     * @param entries the entries
+     * @param lineNumber the line number
+     * @param line the line
+     */
+    private static void readCsv(final List<Entry> entries, final int lineNumber, final String line) {
+        final String text = line.trim();
+        if (text.isEmpty() || text.startsWith("#")) {
+            return;
+        }
+        final String[] cells = text.split(",");
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = unquote(cells[i].trim());
+        }
+        if ("name".equalsIgnoreCase(cells[0])) {
+            return;
+        }
+        if (cells.length == 2) {
+            entries.add(new Entry(lineNumber, cells[0], "web", cells[1], null));
+        } else {
+            entries.add(new Entry(lineNumber, cells[0], cells.length > 1 ? cells[1] : null, cells.length > 2 ? cells[2] : null,
+                    cells.length > 3 ? cells[3] : null));
+        }
+    }
+
+    /**
+     * Removes the double quotes around a CSV cell.
+     *
+     * @param cell the cell
+     * @return the cell content
+     */
+    private static String unquote(final String cell) {
+        return cell.length() > 1 && cell.startsWith("\"") && cell.endsWith("\"") ? cell.substring(1, cell.length() - 1) : cell;
+    }
+
+    /**
+     * Validates the colors in parallel chunks.
+     *
+     * @param entries the colors read from the palette
+     * @return the validated colors, in palette order
+     * @throws GenerationException if a validation task failed
+     */
+    static List<PaletteColor> validate(final List<Entry> entries) throws GenerationException {
+        final List<Callable<List<PaletteColor>>> tasks = new ArrayList<Callable<List<PaletteColor>>>();
+        for (int from = 0; from < entries.size(); from += CHUNK_SIZE) {
+            final List<Entry> chunk = entries.subList(from, Math.min(from + CHUNK_SIZE, entries.size()));
+            tasks.add(new Callable<List<PaletteColor>>() {
+
+                @Override
+                public List<PaletteColor> call() {
+                    final List<PaletteColor> colors = new ArrayList<PaletteColor>(chunk.size());
+                    for (final Entry entry : chunk) {
+                        colors.add(validate(entry));
+                    }
+                    return colors;
+                }
+            });
+        }
+        final List<PaletteColor> colors = new ArrayList<PaletteColor>(entries.size());
+        for (final List<PaletteColor> chunk : RenderEngine.INSTANCE.invokeAll(tasks)) {
+            colors.addAll(chunk);
+        }
+        return colors;
+    }
+
+    /**
+     * Validates a color.
+     *
+     * @param entry the color read from the palette
+     * @return the validated color
+     */
+    static PaletteColor validate(final Entry entry) {
+        if (entry.error != null) {
+            return invalid(entry, entry.error);
+        }
+        if (entry.name == null || entry.name.trim().isEmpty() || entry.value == null) {
+            return invalid(entry, messages.getMessage("color.import.missing.name.or.value"));
+        }
+        if (entry.type == null) {
+            return invalid(entry, messages.getMessage("color.import.not.a.color", entry.value));
+        }
+        final Type type = Type.fromName(entry.type);
+        if (type == null) {
+            return invalid(entry, messages.getMessage("color.type.is.incorrect"));
+        }
+        final String value = type == Type.WEB && entry.value.startsWith("#") ? entry.value.substring(1) : entry.value;
+        final ColorValue color = ColorParser.parse(type, value);
+        if (color == null) {
+            return invalid(entry, messages.getMessage("color.import.invalid.value", entry.type, entry.value));
+        }
+        double opacity = 1.0D;
+        if (entry.opacity != null && !entry.opacity.isEmpty()) {
+            try {
+                opacity = Double.parseDouble(entry.opacity);
+            } catch (final NumberFormatException e) {
+                opacity = -1.0D;
+            }
+            if (!(opacity >= 0.0D && opacity <= 1.0D)) {
+                return invalid(entry, messages.getMessage("color.import.invalid.opacity", entry.opacity));
+            }
+        }
+        final String constantName = constantName(entry.name);
+        if (constantName == null) {
+            return invalid(entry, messages.getMessage("color.import.invalid.name", entry.name));
+        }
+        return new PaletteColor(entry.line, constantName, color, opacity, null);
+    }
+
+    /**
+     * Builds an invalid color.
+     *
+     * @param entry the color read from the palette
+     * @param error the error
+     * @return the invalid color
+     */
+    private static PaletteColor invalid(final Entry entry, final String error) {
+        return new PaletteColor(entry.line, null, null, 0.0D, error);
+    }
+
+    /**
+     * Converts a color name into a constant name, as color-add does. Dashes and dots separate words too.
+     *
+     * @param name the color name, in camel case or with separators
+     * @return the constant name, or null if it is not a java identifier
+     */
+    static String constantName(final String name) {
+        final String constantName = StringHelper.camelCaseToUnderscore(name.trim().replace('-', '_').replace('.', '_'));
+        if (constantName.isEmpty() || !Character.isJavaIdentifierStart(constantName.charAt(0))) {
+            return null;
+        }
+        for (int i = 1; i < constantName.length(); i++) {
+            if (!Character.isJavaIdentifierPart(constantName.charAt(i))) {
+                return null;
+            }
+        }
+        return constantName;
+    }
+}
@@ -20,20 +20,24 @@ package org.jrebirth.forge.helper;
 import static org.jrebirth.forge.utils.PluginUtils.messages;
 
 import java.io.FileNotFoundException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
-import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.Field;
 import org.jboss.forge.parser.java.JavaInterface;
 import org.jboss.forge.project.Project;
 import org.jboss.forge.project.facets.JavaSourceFacet;
 import org.jboss.forge.project.facets.MetadataFacet;
 import org.jboss.forge.resources.DirectoryResource;
+import org.jboss.forge.resources.FileResource;
 import org.jboss.forge.shell.Shell;
 import org.jboss.forge.shell.ShellMessages;
 import org.jboss.forge.shell.plugins.PipeOut;
 import org.jboss.forge.shell.util.Packages;
 import org.jrebirth.forge.utils.PluginUtils.CreationType;
+import org.jrebirth.forge.utils.ResourceModelCache;
 
 /**
  * Resource helper calss to handle resource.
@@ -44,21 +48,6 @@ import org.jrebirth.forge.utils.PluginUtils.CreationType;
  */
 public class ResourceHelper {
 
-    /** The Constant COLOR_RGB01_PATTERN. */
-    private static final String COLOR_RGB01_PATTERN = "((0\\.[0-9]*|1\\.0)\\s*?_\\s*?){2}(0\\.[0-9]*|1\\.0)"; // 0.0-1.0,0.0-1.0,0.0-1.0
-
-    /** The Constant COLOR_HSB_PATTERN. */
-    private static final String COLOR_HSB_PATTERN = "((0\\.[0-9]*|([012]?[0-9]?[0-9]|3[0-5][0-9])\\.[0-9]*|360.0))(_0\\.[0-9]|1\\.0){2}"; // 0.0-360.0,0.0-1.0,0.0-1.0
-
-    /** The Constant COLOR_RGB255_PATTERN. */
-    private static final String COLOR_RGB255_PATTERN = "(([01]?[0-9]?[0-9]|2[0-4][0-9]|25[0-5])\\s*?_\\s*?){2}([01]?[0-9]?[0-9]|2[0-4][0-9]|25[0-5])"; // 0-255,0-255,0-255
-
-    /** The Constant COLOR_GRAY_PATTERN. */
-    private static final String COLOR_GRAY_PATTERN = "(0\\.[0-9]|1\\.0)"; // [0.0-1.0]
-
-    /** The Constant COLOR_WEB_PATTERN. */
-    private static final String COLOR_WEB_PATTERN = "[0-9A-F]{6}"; // [0-9A-F]{6}
-
     /**
      * Validate color value using type.
      * 
@@ -67,39 +56,7 @@ public class ResourceHelper {
      * @return true, if successful
      */
     public static boolean validateColorValueUsingType(final String colorType, final String colorValue) {
-
-        Pattern pattern = null;
-
-        if (colorType.equalsIgnoreCase("web")) {
-
-            pattern = Pattern.compile(COLOR_WEB_PATTERN);
-
-        } else if (colorType.equalsIgnoreCase("gray")) {
-
-            pattern = Pattern.compile(COLOR_GRAY_PATTERN);
-
-        } else if (colorType.equalsIgnoreCase("hsb")) {
-
-            pattern = Pattern.compile(COLOR_HSB_PATTERN);
-
-        } else if (colorType.equalsIgnoreCase("rgb01")) {
-
-            pattern = Pattern.compile(COLOR_RGB01_PATTERN);
-
-        } else if (colorType.equalsIgnoreCase("rgb255")) {
-
-            pattern = Pattern.compile(COLOR_RGB255_PATTERN);
-        }
-
-        if (pattern != null) {
-
-            final Matcher matcher = pattern.matcher(colorValue);
-            return matcher.matches();
-
-        } else {
-            return false;
-        }
-
+        return ColorParser.parse(colorType, colorValue) != null;
     }
 
     /**
@@ -115,79 +72,213 @@ public class ResourceHelper {
      */
     public static void manageColorResource(final Project project, final Shell shell, final PipeOut out, final String colorName, final String colorValue, final String colorType,
             final double opacityValue) {
-        DirectoryResource directory = null;
-        final MetadataFacet metadata = project.getFacet(MetadataFacet.class);
-        final DirectoryResource sourceFolder = project.getFacet(JavaSourceFacet.class).getSourceFolder();
-        final String topLevelPackage = metadata.getTopLevelPackage();
-        boolean catUpdate = false;
-
-        final String type = colorType.equalsIgnoreCase("web") ? "Web" : colorType.equalsIgnoreCase("gray") ? "Gray" : colorType.toUpperCase();
+        final ColorValue.Type type = ColorValue.Type.fromName(colorType);
+        if (type == null) {
+            ShellMessages.error(out, messages.getMessage("color.type.is.incorrect"));
+            return;
+        }
+        final ColorValue color = ColorParser.parse(type, colorValue);
+        if (color == null) {
+            final String typeName = type.name().toLowerCase(Locale.ENGLISH);
+            ShellMessages.error(out, messages.getMessage("color.value." + typeName + ".is.incorrect", typeName));
+            return;
+        }
+        manageColorResource(project, shell, out, colorName, color, opacityValue);
+    }
 
-        final String fieldDefinition = " /** Color constant for {}. */\n   ColorItem {} = " + buildConstructorByColorType(type, colorValue, opacityValue) + "\n\n";
+    /**
+     * Add a color resource from a parsed color value.
+     * 
+     * @param project the project
+     * @param shell the shell
+     * @param out the out
+     * @param colorName the name of the color variable
+     * @param color the color value
+     * @param opacityValue the opacity value
+     */
+    public static void manageColorResource(final Project project, final Shell shell, final PipeOut out, final String colorName, final ColorValue color,
+            final double opacityValue) {
+        boolean catUpdate = false;
 
-        directory = sourceFolder.getChildDirectory(Packages.toFileSyntax(topLevelPackage + CreationType.RESOURCE.getPackageName() + "."));
-        if (directory.isDirectory() == false || directory.getChild(metadata.getProjectName() + "Colors.java").exists() == false) {
-            try {
-                ShellMessages.info(out, messages.getMessage("color.is.not.created"));
-                shell.execute("jrebirth resource-create --all false --colorGenerate");
-            } catch (final Exception e) {
-                ShellMessages.error(out, messages.getMessage("unable.to.create.color"));
-            }
-        }
         final JavaSourceFacet java = project.getFacet(JavaSourceFacet.class);
-        final JavaInterface jInterface = JavaParser.parse(JavaInterface.class, directory.getChild(metadata.getProjectName() + "Colors.java").getResourceInputStream());
+        final FileResource<?> colorsFile = getColorsFile(project, shell, out);
+        final JavaInterface jInterface;
+        try {
+            jInterface = parseResource(colorsFile);
+        } catch (final IOException e) {
+            ShellMessages.error(out, messages.getMessage("unable.to.read.file", colorsFile.getName()));
+            return;
+        }
 
         final String capsColorName = StringHelper.camelCaseToUnderscore(colorName);
 
+        final ColorIndex index = ColorIndex.of(jInterface);
+        index.remove(capsColorName);
+        final String sameColor = index.find(color.toArgb(opacityValue));
+        if (sameColor != null) {
+            ShellMessages.warn(out, messages.getMessage("color.duplicate.value", capsColorName, sameColor));
+        }
+
         if (jInterface.hasField(capsColorName) == false) {
-            jInterface.addField(fieldDefinition.replaceAll("\\{\\}", capsColorName));
+            jInterface.addField(colorField(capsColorName, color, opacityValue));
         }
         else {
             catUpdate = shell.promptBoolean(messages.getMessage("variable.already.exists.update"), false);
             if (catUpdate) {
-                jInterface.removeField(jInterface.getField(capsColorName));
-                jInterface.addField(fieldDefinition.replaceAll("\\{\\}", capsColorName));
+                // Replaced in place, so the constant keeps its order and its aliases stay declared after it
+                jInterface.getField(capsColorName).setLiteralInitializer(colorInitializer(color, opacityValue));
             } else {
                 return;
             }
         }
         try {
 
-            java.saveJavaSource(jInterface);
+            ResourceModelCache.INSTANCE.save(java, colorsFile.getUnderlyingResourceObject(), jInterface);
         } catch (final FileNotFoundException e) {
             ShellMessages.error(out, messages.getMessage("unable.to.save.file", capsColorName));
 
         }
     }
 
-    private static String buildConstructorByColorType(final String type, final String colorValue, final double opacityValue) {
-
-        String constructor = "";
-        String opacityString = ((opacityValue == 1.0D)? "":","+opacityValue);
-
-        if (type.equalsIgnoreCase("web")) {
+    /**
+     * Reports the color constants of the Colors interface declaring the same color, and optionally replaces them by
+     * aliases of the first one.
+     * 
+     * @param project the project
+     * @param shell the shell
+     * @param out the out
+     * @param merge true to replace the duplicates by aliases
+     */
+    public static void manageColorDuplicates(final Project project, final Shell shell, final PipeOut out, final boolean merge) {
+        final FileResource<?> colorsFile = getColorsFile(project, shell, out);
+        final JavaInterface jInterface;
+        try {
+            jInterface = parseResource(colorsFile);
+        } catch (final IOException e) {
+            ShellMessages.error(out, messages.getMessage("unable.to.read.file", colorsFile.getName()));
+            return;
+        }
 
-            constructor = "create(new WebColor(\"" + colorValue.toUpperCase() + "\"" + opacityString + "));";
+        final ColorIndex index = ColorIndex.of(jInterface);
+        final Map<Integer, List<String>> duplicates = index.getDuplicates();
+        if (duplicates.isEmpty()) {
+            ShellMessages.info(out, messages.getMessage("color.duplicates.none"));
+            return;
+        }
+        int count = 0;
+        for (final Map.Entry<Integer, List<String>> entry : duplicates.entrySet()) {
+            ShellMessages.info(out, messages.getMessage("color.duplicates.group", entry.getKey(), entry.getValue()));
+            count += entry.getValue().size() - 1;
+        }
+        if (!merge) {
+            ShellMessages.info(out, messages.getMessage("color.duplicates.found", count));
+            return;
+        }
 
-        } else if (type.equalsIgnoreCase("gray")) {
+        final int merged = index.mergeDuplicates(jInterface);
+        try {
+            ResourceModelCache.INSTANCE.save(project.getFacet(JavaSourceFacet.class), colorsFile.getUnderlyingResourceObject(), jInterface);
+            ShellMessages.success(out, messages.getMessage("color.duplicates.merged", merged));
+        } catch (final FileNotFoundException e) {
+            ShellMessages.error(out, messages.getMessage("unable.to.save.file", colorsFile.getName()));
+        }
+    }
 
-            constructor = "create(new GrayColor(" + colorValue + opacityString + "));";
+    /**
+     * Converts the HSB, gray and RGB color constants of the Colors interface into web colors, computed once here
+     * instead of each time the application starts. The constants keep their name, their opacity and their order.
+     * 
+     * @param project the project
+     * @param shell the shell
+     * @param out the out
+     */
+    public static void precomputeColors(final Project project, final Shell shell, final PipeOut out) {
+        final FileResource<?> colorsFile = getColorsFile(project, shell, out);
+        final JavaInterface jInterface;
+        try {
+            jInterface = parseResource(colorsFile);
+        } catch (final IOException e) {
+            ShellMessages.error(out, messages.getMessage("unable.to.read.file", colorsFile.getName()));
+            return;
+        }
 
-        } else if (type.equalsIgnoreCase("hsb")) {
+        int count = 0;
+        for (final Field<JavaInterface> field : jInterface.getFields()) {
+            final ColorIndex.Initializer initializer = ColorIndex.Initializer.parse(field.getLiteralInitializer());
+            if (initializer != null && initializer.color.getType() != ColorValue.Type.WEB) {
+                field.setLiteralInitializer(colorInitializer(initializer.color.toWeb(), initializer.opacity));
+                count++;
+            }
+        }
+        if (count == 0) {
+            ShellMessages.info(out, messages.getMessage("color.precompute.none"));
+            return;
+        }
+        try {
+            ResourceModelCache.INSTANCE.save(project.getFacet(JavaSourceFacet.class), colorsFile.getUnderlyingResourceObject(), jInterface);
+            ShellMessages.success(out, messages.getMessage("color.precompute.done", count));
+        } catch (final FileNotFoundException e) {
+            ShellMessages.error(out, messages.getMessage("unable.to.save.file", colorsFile.getName()));
+        }
+    }
 
-            final String[] hsb = colorValue.split("_");
-            constructor = "create(new HSBColor(" + hsb[0] + ", " + hsb[1] + ", " + hsb[2] + opacityString + "));";
+    /**
+     * Gets the Colors interface of the project, created first if it does not exist.
+     * 
+     * @param project the project
+     * @param shell the shell
+     * @param out the out
+     * @return the Colors interface file
+     */
+    static FileResource<?> getColorsFile(final Project project, final Shell shell, final PipeOut out) {
+        final MetadataFacet metadata = project.getFacet(MetadataFacet.class);
+        final DirectoryResource sourceFolder = project.getFacet(JavaSourceFacet.class).getSourceFolder();
+        final String topLevelPackage = metadata.getTopLevelPackage();
 
-        } else if (type.equalsIgnoreCase("rgb01")) {
+        final DirectoryResource directory = sourceFolder.getChildDirectory(Packages.toFileSyntax(topLevelPackage + CreationType.RESOURCE.getPackageName() + "."));
+        if (directory.isDirectory() == false || directory.getChild(metadata.getProjectName() + "Colors.java").exists() == false) {
+            try {
+                ShellMessages.info(out, messages.getMessage("color.is.not.created"));
+                shell.execute("jrebirth resource-create --all false --colorGenerate");
+            } catch (final Exception e) {
+                ShellMessages.error(out, messages.getMessage("unable.to.create.color"));
+            }
+        }
+        return (FileResource<?>) directory.getChild(metadata.getProjectName() + "Colors.java");
+    }
 
-            final String[] rgb = colorValue.split("_");
-            constructor = "create(new RGB01Color(" + rgb[0] + ", " + rgb[1] + ", " + rgb[2] + opacityString + "));";
+    /**
+     * Gets the model of a resource interface, parsed again only if the file has changed since the last edit.
+     * 
+     * @param resourceFile the resource interface file
+     * @return the parsed interface, to save or to invalidate in the {@link ResourceModelCache} once changed
+     * @throws IOException if the file can't be read
+     */
+    static JavaInterface parseResource(final FileResource<?> resourceFile) throws IOException {
+        return ResourceModelCache.INSTANCE.get(resourceFile.getUnderlyingResourceObject(), JavaInterface.class);
+    }
 
-        } else if (type.equalsIgnoreCase("rgb255")) {
+    /**
+     * Builds the declaration of a color constant.
+     * 
+     * @param constantName the constant name
+     * @param color the color value
+     * @param opacityValue the opacity value
+     * @return the field declaration
+     */
+    static String colorField(final String constantName, final ColorValue color, final double opacityValue) {
+        return " /** Color constant for " + constantName + ". */\n   ColorItem " + constantName + " = " + color.toConstructor(opacityValue) + "\n\n";
+    }
 
-            final String[] rgb = colorValue.split("_");
-            constructor = "create(new RGB255Color(" + rgb[0] + ", " + rgb[1] + ", " + rgb[2] + opacityString + "));";
-        }
-        return constructor;
+    /**
+     * Builds the initializer of a color constant, without the trailing semicolon of its declaration.
+     * 
+     * @param color the color value
+     * @param opacityValue the opacity value
+     * @return the field initializer
+     */
+    static String colorInitializer(final ColorValue color, final double opacityValue) {
+        final String constructor = color.toConstructor(opacityValue);
+        return constructor.substring(0, constructor.length() - 1);
     }
 }
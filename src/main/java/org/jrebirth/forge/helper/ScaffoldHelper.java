@@ -0,0 +1,400 @@
+/**
+ * Get more info at : www.jrebirth.org .
+ * Copyright JRebirth.org © 2011-2013
+ * Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.jrebirth.forge.helper;
+
+import static org.jrebirth.forge.utils.PluginUtils.messages;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jboss.forge.project.Project;
+import org.jboss.forge.shell.ShellMessages;
+import org.jboss.forge.shell.plugins.PipeOut;
+import org.jrebirth.forge.utils.GenerationBatch;
+import org.jrebirth.forge.utils.GenerationManifest;
+import org.jrebirth.forge.utils.PluginUtils;
+import org.jrebirth.forge.utils.PluginUtils.CreationType;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Generates all the artifacts described by a scaffold manifest.
+ *
+ * The manifest is read line by line. Each line describes one artifact, either as properties or as a flat JSON object:
+ *
+ * <pre>
+ * ui = Intro, controller = true, bean = true
+ * command = SaveAll, type = DefaultPoolCommand
+ * {"kind" : "service", "name" : "RestCall"}
+ * </pre>
+ *
+ * Supported kinds are <code>ui</code>, <code>command</code>, <code>service</code>, <code>bean</code> and
+ * <code>resource</code> (named <code>all</code>, <code>colors</code>, <code>fonts</code> or <code>images</code>). Blank
+ * lines, lines starting with <code>#</code> and the brackets of a JSON array are ignored.
+ */
+public final class ScaffoldHelper {
+
+    /** The number of artifacts generated by each batch. */
+    private static final int CHUNK_SIZE = 100;
+
+    /** The key holding the kind of artifact. */
+    static final String KIND = "kind";
+
+    /** The key holding the name of artifact. */
+    static final String NAME = "name";
+
+    /**
+     * Private constructor.
+     */
+    private ScaffoldHelper() {
+    }
+
+    /**
+     * Generates the artifacts of a manifest.
+     *
+     * @param project the project
+     * @param manifest the manifest content
+     * @param out the out
+     * @param validate parse generated sources before saving them
+     * @param incremental skip up to date files and regenerate stale ones
+     * @throws IOException if the manifest cannot be read
+     */
+    public static void scaffold(final Project project, final Reader manifest, final PipeOut out, final boolean validate,
+            final boolean incremental) throws IOException {
+
+        final ArtifactPlanner planner = new ArtifactPlanner(project).setIncremental(incremental);
+        final GenerationManifest generationManifest = GenerationManifest.load(project);
+        final BufferedReader reader = new BufferedReader(manifest);
+        final long start = System.currentTimeMillis();
+
+        GenerationBatch batch = newBatch(project, generationManifest, validate, incremental);
+        int artifacts = 0;
+        int pending = 0;
+        int files = 0;
+        int lineNumber = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            try {
+                final Map<String, String> entry = parseEntry(line);
+                if (entry != null && planEntry(planner, batch, entry)) {
+                    artifacts++;
+                    pending++;
+                }
+            } catch (final IllegalArgumentException e) {
+                ShellMessages.error(out, messages.getMessage("scaffold.invalid.entry", lineNumber, e.getMessage()));
+            }
+
+            if (pending == CHUNK_SIZE) {
+                files += flush(batch, out);
+                reportProgress(out, artifacts, files, start);
+                batch = newBatch(project, generationManifest, validate, incremental);
+                pending = 0;
+            }
+        }
+        files += flush(batch, out);
+        reportProgress(out, artifacts, files, start);
+    }
+
+    /**
+     * Creates a batch sharing the manifest of generated files.
+     *
+     * @param project the project
+     * @param generationManifest the manifest of generated files
+     * @param validate parse generated sources before saving them
+     * @param incremental skip up to date files and regenerate stale ones
+     * @return the batch
+     */
+    private static GenerationBatch newBatch(final Project project, final GenerationManifest generationManifest,
+            final boolean validate, final boolean incremental) {
+        return new GenerationBatch(project).setValidate(validate).setIncremental(incremental).setManifest(generationManifest);
+    }
+
+    /**
+     * Plans the files of a manifest entry.
+     *
+     * @param planner the planner
+     * @param batch the batch
+     * @param entry the entry
+     * @return true, if the artifact has been planned
+     */
+    private static boolean planEntry(final ArtifactPlanner planner, final GenerationBatch batch, final Map<String, String> entry) {
+
+        final String kind = entry.get(KIND);
+        final String name = entry.get(NAME);
+        if (kind == null || name == null || name.isEmpty()) {
+            throw new IllegalArgumentException(messages.getMessage("scaffold.missing.kind.or.name"));
+        }
+
+        switch (kind.toLowerCase(Locale.ENGLISH)) {
+            case "ui":
+                return planner.planUiGroup(batch, name, flag(entry, "controller", false), flag(entry, "bean", false),
+                        flag(entry, "fxml", false), flag(entry, "model", false), flag(entry, "all", true));
+            case "command":
+                final String commandType = entry.containsKey("type") ? entry.get("type") : (String) PluginUtils.COMMAND_TYPES[0];
+                if (!Arrays.asList(PluginUtils.COMMAND_TYPES).contains(commandType)) {
+                    throw new IllegalArgumentException(messages.getMessage("scaffold.unknown.command.type", commandType));
+                }
+                planner.planNonUi(batch, CreationType.COMMAND, name, commandType);
+                return true;
+            case "service":
+                planner.planNonUi(batch, CreationType.SERVICE, name, null);
+                return true;
+            case "bean":
+                planner.planBean(batch, name);
+                return true;
+            case "resource":
+                final String resource = name.toLowerCase(Locale.ENGLISH);
+                if (!Arrays.asList("all", "colors", "fonts", "images").contains(resource)) {
+                    throw new IllegalArgumentException(messages.getMessage("scaffold.malformed.entry", name));
+                }
+                final boolean all = "all".equals(resource);
+                planner.planResources(batch, all || "colors".equals(resource), all || "fonts".equals(resource),
+                        all || "images".equals(resource));
+                return true;
+            default:
+                throw new IllegalArgumentException(messages.getMessage("scaffold.unknown.kind", kind));
+        }
+    }
+
+    /**
+     * Writes a batch, skipping the UI groups and the files which already exist.
+     *
+     * @param batch the batch
+     * @param out the out
+     * @return the number of written files
+     */
+    private static int flush(final GenerationBatch batch, final PipeOut out) {
+        PluginUtils.reportPackages(batch, out);
+        try {
+            for (final File conflict : batch.dropConflicts()) {
+                ShellMessages.error(out, messages.getMessage("file.already.exist", conflict.getName()));
+            }
+            final int written = batch.commit().size();
+            if (batch.getSkipped() > 0) {
+                ShellMessages.info(out, messages.getMessage("files.up.to.date", batch.getSkipped()));
+            }
+            return written;
+        } catch (IOException | TemplateException e) {
+            PluginUtils.reportFailure(e, out);
+            return 0;
+        }
+    }
+
+    /**
+     * Reports the progress of the scaffolding.
+     *
+     * @param out the out
+     * @param artifacts the number of planned artifacts
+     * @param files the number of written files
+     * @param start the start time in milliseconds
+     */
+    private static void reportProgress(final PipeOut out, final int artifacts, final int files, final long start) {
+        final long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        ShellMessages.info(out, messages.getMessage("scaffold.progress", artifacts, files, elapsed, artifacts * 1000.0 / elapsed));
+    }
+
+    /**
+     * Reads a boolean option of an entry.
+     *
+     * @param entry the entry
+     * @param key the option name
+     * @param defaultValue the default value
+     * @return the option value
+     */
+    private static boolean flag(final Map<String, String> entry, final String key, final boolean defaultValue) {
+        final String value = entry.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Parses a manifest line.
+     *
+     * @param line the line
+     * @return the entry values by key, null if the line describes nothing
+     */
+    static Map<String, String> parseEntry(final String line) {
+        String text = line.trim();
+        if (text.endsWith(",")) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        if (text.isEmpty() || text.startsWith("#") || "[".equals(text) || "]".equals(text)) {
+            return null;
+        }
+        return text.startsWith("{") ? parseJsonEntry(text) : parsePropertiesEntry(text);
+    }
+
+    /**
+     * Parses a properties line. The first pair gives the kind and the name.
+     *
+     * @param text the line
+     * @return the entry
+     */
+    private static Map<String, String> parsePropertiesEntry(final String text) {
+        final Map<String, String> entry = new LinkedHashMap<String, String>();
+        for (final String pair : text.split(",")) {
+            final int separator = pair.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException(messages.getMessage("scaffold.malformed.entry", pair.trim()));
+            }
+            final String key = pair.substring(0, separator).trim();
+            final String value = pair.substring(separator + 1).trim();
+            if (entry.isEmpty()) {
+                entry.put(KIND, key);
+                entry.put(NAME, value);
+            } else {
+                entry.put(key, value);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Parses a flat JSON object holding strings, booleans and numbers.
+     *
+     * @param text the line
+     * @return the entry
+     */
+    private static Map<String, String> parseJsonEntry(final String text) {
+        final Map<String, String> entry = new LinkedHashMap<String, String>();
+        final int[] position = { 1 };
+        skipWhitespaces(text, position);
+        if (position[0] < text.length() && text.charAt(position[0]) == '}') {
+            return entry;
+        }
+        while (true) {
+            final String key = readJsonString(text, position);
+            skipWhitespaces(text, position);
+            expect(text, position, ':');
+            skipWhitespaces(text, position);
+            final String value;
+            if (position[0] < text.length() && text.charAt(position[0]) == '"') {
+                value = readJsonString(text, position);
+            } else {
+                final int begin = position[0];
+                while (position[0] < text.length() && ",} \t".indexOf(text.charAt(position[0])) < 0) {
+                    position[0]++;
+                }
+                value = text.substring(begin, position[0]);
+            }
+            entry.put(key, value);
+            skipWhitespaces(text, position);
+            if (position[0] < text.length() && text.charAt(position[0]) == ',') {
+                position[0]++;
+                skipWhitespaces(text, position);
+                continue;
+            }
+            expect(text, position, '}');
+            return entry;
+        }
+    }
+
+    /**
+     * Reads a JSON string.
+     *
+     * @param text the text
+     * @param position the current position, moved after the closing quote
+     * @return the string value
+     */
+    private static String readJsonString(final String text, final int[] position) {
+        expect(text, position, '"');
+        final StringBuilder sb = new StringBuilder();
+        while (position[0] < text.length()) {
+            final char c = text.charAt(position[0]++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\' && position[0] < text.length()) {
+                final char escaped = text.charAt(position[0]++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        sb.append(readUnicodeEscape(text, position));
+                        break;
+                    default:
+                        sb.append(escaped);
+                        break;
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        throw new IllegalArgumentException(messages.getMessage("scaffold.malformed.entry", text));
+    }
+
+    /**
+     * Reads the four hexadecimal digits of a unicode escape.
+     *
+     * @param text the text
+     * @param position the current position, after the u of the escape, moved after its digits
+     * @return the escaped character
+     * @throws IllegalArgumentException if the escape is truncated or holds other characters than hexadecimal digits
+     */
+    private static char readUnicodeEscape(final String text, final int[] position) {
+        if (position[0] + 4 > text.length()) {
+            throw new IllegalArgumentException(messages.getMessage("scaffold.malformed.entry", text));
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            final int digit = Character.digit(text.charAt(position[0]++), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException(messages.getMessage("scaffold.malformed.entry", text));
+            }
+            value = value << 4 | digit;
+        }
+        return (char) value;
+    }
+
+    /**
+     * Skips whitespaces.
+     *
+     * @param text the text
+     * @param position the current position
+     */
+    private static void skipWhitespaces(final String text, final int[] position) {
+        while (position[0] < text.length() && Character.isWhitespace(text.charAt(position[0]))) {
+            position[0]++;
+        }
+    }
+
+    /**
+     * Consumes an expected character.
+     *
+     * @param text the text
+     * @param position the current position
+     * @param expected the expected character
+     */
+    private static void expect(final String text, final int[] position, final char expected) {
+        if (position[0] >= text.length() || text.charAt(position[0]) != expected) {
+            throw new IllegalArgumentException(messages.getMessage("scaffold.malformed.entry", text));
+        }
+        position[0]++;
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes generated text files in UTF-8, atomically.
+ *
+ * Each file is first encoded through a pooled direct buffer into a temporary file of its target folder. Temporary
+ * files are only renamed over their targets by {@link #commit()}, so an interrupted command never leaves a truncated
+ * file behind.
+ *
+ * When the <code>jrebirth.write.sync</code> system property is set, all temporary files of the writer are forced to
+ * disk together just before being renamed.
+ */
+public final class AtomicFileWriter {
+
+    /** The system property enabling the fsync of written files. */
+    public static final String SYNC_PROPERTY = "jrebirth.write.sync";
+
+    /** The size of the pooled buffers. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The encoding of written files. */
+    private static final Charset CHARSET = Charset.forName(PluginUtils.TEMPLATE_UNICODE);
+
+    /** The direct buffer of each thread. */
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    /** The encoder of each thread. */
+    private static final ThreadLocal<CharsetEncoder> ENCODERS = new ThreadLocal<CharsetEncoder>() {
+
+        @Override
+        protected CharsetEncoder initialValue() {
+            return CHARSET.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+        }
+    };
+
+    /** Force the files to disk before renaming them. */
+    private final boolean sync;
+
+    /** The temporary files waiting for their rename, in writing order. */
+    private final List<Path> temporaries = new ArrayList<Path>();
+
+    /** The targets of the temporary files. */
+    private final List<Path> targets = new ArrayList<Path>();
+
+    /**
+     * Instantiates a new writer, syncing files if the {@link #SYNC_PROPERTY} is set.
+     */
+    public AtomicFileWriter() {
+        this(Boolean.getBoolean(SYNC_PROPERTY));
+    }
+
+    /**
+     * Instantiates a new writer.
+     *
+     * @param sync true to force the files to disk before renaming them
+     */
+    public AtomicFileWriter(final boolean sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Writes a single file atomically.
+     *
+     * @param target the target file
+     * @param content the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeAtomically(final File target, final CharSequence content) throws IOException {
+        final AtomicFileWriter writer = new AtomicFileWriter();
+        try {
+            writer.write(target, content);
+            writer.commit();
+        } finally {
+            writer.abort();
+        }
+    }
+
+    /**
+     * Writes the content of a file into a temporary file, creating the target folder if needed.
+     *
+     * @param target the target file
+     * @param content the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final File target, final CharSequence content) throws IOException {
+        final long start = System.nanoTime();
+        final Path targetPath = target.toPath().toAbsolutePath();
+        Files.createDirectories(targetPath.getParent());
+        final Path temporary = createTemporary(targetPath.getParent(), target.getName());
+        this.temporaries.add(temporary);
+        if (Files.isRegularFile(targetPath) && temporary.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            // A rewritten file keeps its permissions
+            Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(targetPath));
+        }
+        this.targets.add(targetPath);
+
+        final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        final long size;
+        try {
+            encode(content, channel);
+            size = channel.size();
+        } finally {
+            channel.close();
+        }
+        StageMetrics.INSTANCE.record(StageMetrics.Stage.FILE_WRITE, start, size);
+    }
+
+    /**
+     * Renames all temporary files over their targets, after forcing them to disk in sync mode.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void commit() throws IOException {
+        if (this.sync) {
+            for (final Path temporary : this.temporaries) {
+                final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                try {
+                    channel.force(true);
+                } finally {
+                    channel.close();
+                }
+            }
+        }
+        while (!this.temporaries.isEmpty()) {
+            move(this.temporaries.get(0), this.targets.get(0));
+            this.temporaries.remove(0);
+            this.targets.remove(0);
+        }
+    }
+
+    /**
+     * Deletes the temporary files not renamed yet.
+     */
+    public void abort() {
+        for (final Path temporary : this.temporaries) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (final IOException e) {
+                // Keep deleting the other files
+            }
+        }
+        this.temporaries.clear();
+        this.targets.clear();
+    }
+
+    /**
+     * Creates an empty temporary file next to its target. Unlike {@link Files#createTempFile}, which restricts it to its
+     * owner, the file is created with the default permissions of new files, so a new target gets them too.
+     *
+     * @param folder the target folder
+     * @param name the target file name
+     * @return the temporary file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Path createTemporary(final Path folder, final String name) throws IOException {
+        while (true) {
+            final Path temporary = folder.resolve("." + name + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temporary);
+            } catch (final FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+
+    /**
+     * Encodes a text in UTF-8 into a channel, through the direct buffer of the current thread.
+     *
+     * @param content the content
+     * @param channel the channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void encode(final CharSequence content, final FileChannel channel) throws IOException {
+        final ByteBuffer buffer = BUFFERS.get();
+        final CharsetEncoder encoder = ENCODERS.get();
+        final CharBuffer chars = CharBuffer.wrap(content);
+        encoder.reset();
+        buffer.clear();
+
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain(buffer, channel);
+        } while (result.isOverflow());
+
+        do {
+            result = encoder.flush(buffer);
+            drain(buffer, channel);
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Writes the content of the buffer and clears it.
+     *
+     * @param buffer the buffer
+     * @param channel the channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void drain(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Renames a file, atomically when the file system supports it.
+     *
+     * @param source the source
+     * @param target the target
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
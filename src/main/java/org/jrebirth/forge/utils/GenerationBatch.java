@@ -0,0 +1,698 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jboss.forge.parser.java.JavaEnum;
+import org.jboss.forge.parser.java.JavaInterface;
+import org.jboss.forge.parser.java.JavaSource;
+import org.jboss.forge.project.Project;
+import org.jboss.forge.project.facets.JavaSourceFacet;
+import org.jboss.forge.shell.util.Packages;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Set of files generated together by one command.
+ *
+ * Outputs and the packages they need are first planned, then checked against a single snapshot of their target
+ * directories, rendered and parsed in parallel by the {@link RenderEngine} and finally written in one pass, in the
+ * planned order. Nothing touches the disk before the commit, so {@link #plan()} can tell what a commit would do. Rendered
+ * files go through an {@link AtomicFileWriter} and are only renamed into place once all of them are written. If a write
+ * fails, files already written by the batch are removed, along with the folders it created, so a command never leaves a
+ * partial group of files behind.
+ *
+ * By default the rendered text of the shipped templates is written as is. The validated mode parses every java output
+ * with the {@link JavaParser} and saves it through the {@link JavaSourceFacet}, which is slower but rejects invalid
+ * sources before anything is written.
+ *
+ * Every written file is recorded in the {@link GenerationManifest} of the project. In incremental mode, existing files
+ * which are untouched since their generation are not conflicts anymore: they are skipped when their template and
+ * settings did not change, and regenerated otherwise. Files edited by hand are still reported as conflicts.
+ */
+public final class GenerationBatch {
+
+    /**
+     * The kind of generated file.
+     */
+    public static enum OutputType {
+
+        /** A java class. */
+        JAVA_CLASS(JavaClass.class),
+
+        /** A java interface. */
+        JAVA_INTERFACE(JavaInterface.class),
+
+        /** A java enum. */
+        JAVA_ENUM(JavaEnum.class),
+
+        /** A plain resource file. */
+        RESOURCE(null);
+
+        /** The parser type. */
+        private final Class<? extends JavaSource<?>> sourceType;
+
+        /**
+         * Instantiates a new output type.
+         *
+         * @param sourceType the parser type, null for resources
+         */
+        private OutputType(final Class<? extends JavaSource<?>> sourceType) {
+            this.sourceType = sourceType;
+        }
+
+        /**
+         * Gets the parser type.
+         *
+         * @return the parser type
+         */
+        public Class<? extends JavaSource<?>> getSourceType() {
+            return this.sourceType;
+        }
+    }
+
+    /** The project. */
+    private final Project project;
+
+    /** The planned outputs in insertion order. */
+    private final List<PlannedOutput> outputs = new ArrayList<PlannedOutput>();
+
+    /** The missing package folders to create, in planning order. */
+    private final Set<File> packages = new LinkedHashSet<File>();
+
+    /** The package folders which had to be new but already exist. */
+    private final List<File> packageConflicts = new ArrayList<File>();
+
+    /** The names found in each listed folder, null for a missing folder. */
+    private final Map<File, Set<String>> folderView = new HashMap<File, Set<String>>();
+
+    /** The template contexts by settings. */
+    private final Map<TemplateSettings, TemplateContext> contexts = new IdentityHashMap<TemplateSettings, TemplateContext>();
+
+    /** Parse java outputs before saving them. */
+    private boolean validate;
+
+    /** The engine rendering the outputs. */
+    private RenderEngine renderEngine = RenderEngine.INSTANCE;
+
+    /** Skip or regenerate untouched generated files instead of reporting them as conflicts. */
+    private boolean incremental;
+
+    /** The manifest of generated files, loaded on first use. */
+    private GenerationManifest manifest;
+
+    /** The number of outputs skipped by the last commit because they were up to date. */
+    private int skipped;
+
+    /**
+     * Instantiates a new generation batch.
+     *
+     * @param project the project
+     */
+    public GenerationBatch(final Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Sets the validated mode.
+     *
+     * @param validate true to parse java outputs and save them through the java source facet
+     * @return this batch
+     */
+    public GenerationBatch setValidate(final boolean validate) {
+        this.validate = validate;
+        return this;
+    }
+
+    /**
+     * Sets the render engine.
+     *
+     * @param renderEngine the engine rendering the outputs
+     * @return this batch
+     */
+    public GenerationBatch setRenderEngine(final RenderEngine renderEngine) {
+        this.renderEngine = renderEngine;
+        return this;
+    }
+
+    /**
+     * Sets the incremental mode.
+     *
+     * @param incremental true to skip up to date files and regenerate stale ones
+     * @return this batch
+     */
+    public GenerationBatch setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * Sets the manifest of generated files, to share it between several batches.
+     *
+     * @param manifest the manifest
+     * @return this batch
+     */
+    public GenerationBatch setManifest(final GenerationManifest manifest) {
+        this.manifest = manifest;
+        return this;
+    }
+
+    /**
+     * Gets the number of outputs skipped by the last commit because they were up to date.
+     *
+     * @return the number of skipped outputs
+     */
+    public int getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Gets the manifest of generated files.
+     *
+     * @return the manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    private GenerationManifest getManifest() throws IOException {
+        if (this.manifest == null) {
+            this.manifest = GenerationManifest.load(this.project);
+        }
+        return this.manifest;
+    }
+
+    /**
+     * Checks if the validated mode is on.
+     *
+     * @return true, if java outputs are parsed before being saved
+     */
+    public boolean isValidate() {
+        return this.validate;
+    }
+
+    /**
+     * Plans the creation of a package folder, if it does not exist yet.
+     *
+     * @param folder the package folder
+     * @return this batch
+     */
+    public GenerationBatch addPackage(final File folder) {
+        if (!isDirectory(folder)) {
+            this.packages.add(folder);
+        }
+        return this;
+    }
+
+    /**
+     * Plans the creation of every missing folder of a package.
+     *
+     * @param root the root folder
+     * @param fullPackageName the package name
+     * @return this batch
+     */
+    public GenerationBatch addPackages(final File root, final String fullPackageName) {
+        File folder = root;
+        for (final String child : fullPackageName.split("\\.")) {
+            folder = new File(folder, child);
+            addPackage(folder);
+        }
+        return this;
+    }
+
+    /**
+     * Plans the creation of a package folder which must not exist yet.
+     *
+     * @param folder the package folder
+     * @return false, if the folder already exists or is already planned, in which case it is reported as a conflict
+     */
+    public boolean addNewPackage(final File folder) {
+        if (isDirectory(folder) || this.packages.contains(folder)) {
+            this.packageConflicts.add(folder);
+            return false;
+        }
+        this.packages.add(folder);
+        return true;
+    }
+
+    /**
+     * Gets the missing package folders which will be created.
+     *
+     * @return the package folders in planning order
+     */
+    public List<File> getPackages() {
+        return new ArrayList<File>(this.packages);
+    }
+
+    /**
+     * Gets the package folders which had to be new but already exist.
+     *
+     * @return the conflicting package folders
+     */
+    public List<File> getPackageConflicts() {
+        return new ArrayList<File>(this.packageConflicts);
+    }
+
+    /**
+     * Plans a java source. The file is located from the package of the settings and the given type name.
+     *
+     * @param type the output type
+     * @param typeName the simple name of the generated type
+     * @param templateName the template file name
+     * @param settings the template settings
+     * @return this batch
+     */
+    public GenerationBatch addJavaSource(final OutputType type, final String typeName, final String templateName, final TemplateSettings settings) {
+        final File sourceFolder = this.project.getFacet(JavaSourceFacet.class).getSourceFolder().getUnderlyingResourceObject();
+        final File packageFolder = new File(sourceFolder, Packages.toFileSyntax(settings.getTopLevelPacakge()));
+        this.outputs.add(new PlannedOutput(type, new File(packageFolder, typeName + ".java"), templateName, settings, getContext(settings)));
+        return this;
+    }
+
+    /**
+     * Plans a resource file.
+     *
+     * @param target the file to write
+     * @param templateName the template file name
+     * @param settings the template settings
+     * @return this batch
+     */
+    public GenerationBatch addResource(final File target, final String templateName, final TemplateSettings settings) {
+        this.outputs.add(new PlannedOutput(OutputType.RESOURCE, target, templateName, settings, getContext(settings)));
+        return this;
+    }
+
+    /**
+     * Gets the template context of settings, built on their first use so outputs sharing settings share the context.
+     *
+     * @param settings the settings, complete when their first output is planned
+     * @return the context
+     */
+    private TemplateContext getContext(final TemplateSettings settings) {
+        TemplateContext context = this.contexts.get(settings);
+        if (context == null) {
+            context = new TemplateContext(settings);
+            this.contexts.put(settings, context);
+        }
+        return context;
+    }
+
+    /**
+     * Checks if the batch is empty.
+     *
+     * @return true, if nothing is planned
+     */
+    public boolean isEmpty() {
+        return this.outputs.isEmpty();
+    }
+
+    /**
+     * Gets the number of planned outputs.
+     *
+     * @return the size
+     */
+    public int size() {
+        return this.outputs.size();
+    }
+
+    /**
+     * Gets the planned target files.
+     *
+     * @return the target files in insertion order
+     */
+    public List<File> getTargets() {
+        final List<File> targets = new ArrayList<File>(this.outputs.size());
+        for (final PlannedOutput output : this.outputs) {
+            targets.add(output.target);
+        }
+        return targets;
+    }
+
+    /**
+     * Gets the planned files which already exist or are planned twice. Each target directory is listed only once.
+     *
+     * @return the conflicting files
+     * @throws IOException if an existing file cannot be checked against the manifest
+     */
+    public List<File> getConflicts() throws IOException {
+        final List<File> conflicts = new ArrayList<File>();
+        for (final PlannedOutput output : findConflicts()) {
+            conflicts.add(output.target);
+        }
+        return conflicts;
+    }
+
+    /**
+     * Removes the conflicting outputs and package conflicts from the batch.
+     *
+     * @return the files which will not be written
+     * @throws IOException if an existing file cannot be checked against the manifest
+     */
+    public List<File> dropConflicts() throws IOException {
+        this.packageConflicts.clear();
+        final List<PlannedOutput> conflicts = findConflicts();
+        this.outputs.removeAll(conflicts);
+        final List<File> dropped = new ArrayList<File>(conflicts.size());
+        for (final PlannedOutput output : conflicts) {
+            dropped.add(output.target);
+        }
+        return dropped;
+    }
+
+    /**
+     * Finds the planned outputs whose file already exists or is planned twice.
+     *
+     * @return the conflicting outputs
+     * @throws IOException if an existing file cannot be checked against the manifest
+     */
+    private List<PlannedOutput> findConflicts() throws IOException {
+        final Set<File> planned = new HashSet<File>();
+        final List<PlannedOutput> conflicts = new ArrayList<PlannedOutput>();
+        for (final PlannedOutput output : this.outputs) {
+            if (!planned.add(output.target)
+                    || exists(output.target) && !(this.incremental && getManifest().isUntouched(output.target))) {
+                conflicts.add(output);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Checks if a file exists, listing its folder only once for the whole batch.
+     *
+     * @param file the file
+     * @return true, if the file exists
+     */
+    private boolean exists(final File file) {
+        final Set<String> children = list(file.getParentFile());
+        return children != null && children.contains(file.getName());
+    }
+
+    /**
+     * Checks if a folder exists, from the listing of its parent.
+     *
+     * @param folder the folder
+     * @return true, if the folder exists
+     */
+    private boolean isDirectory(final File folder) {
+        return exists(folder) && list(folder) != null;
+    }
+
+    /**
+     * Lists a folder, once for the whole batch.
+     *
+     * @param folder the folder
+     * @return the names of its children, or null if the folder does not exist
+     */
+    private Set<String> list(final File folder) {
+        if (this.folderView.containsKey(folder)) {
+            return this.folderView.get(folder);
+        }
+        final String[] names = folder == null ? null : folder.list();
+        final Set<String> children = names == null ? null : new HashSet<String>(Arrays.asList(names));
+        this.folderView.put(folder, children);
+        return children;
+    }
+
+    /**
+     * Computes what a commit would do, without rendering nor writing anything.
+     *
+     * @return the plan
+     * @throws IOException if an existing file cannot be checked against the manifest
+     */
+    public GenerationPlan plan() throws IOException {
+        final GenerationPlan plan = new GenerationPlan(this.project.getProjectRoot().getUnderlyingResourceObject());
+        for (final File folder : this.packages) {
+            plan.addPackage(folder);
+        }
+        for (final File folder : this.packageConflicts) {
+            plan.addPackageConflict(folder);
+        }
+        final List<PlannedOutput> conflicts = findConflicts();
+        for (final PlannedOutput output : this.outputs) {
+            GenerationPlan.Status status;
+            if (conflicts.contains(output)) {
+                status = GenerationPlan.Status.CONFLICT;
+            } else if (!exists(output.target)) {
+                status = GenerationPlan.Status.CREATE;
+            } else if (getManifest().isUpToDate(output.target, output.templateName, output.settings)) {
+                status = GenerationPlan.Status.SKIP;
+            } else {
+                status = GenerationPlan.Status.REGENERATE;
+            }
+            plan.addFile(output.target, output.templateName, status);
+        }
+        return plan;
+    }
+
+    /**
+     * Renders and writes all planned outputs.
+     *
+     * Nothing is written if a conflict is found or if a template fails to render, or to parse in validated mode. Files
+     * written before an I/O failure are deleted, or restored if they were regenerated, and the folders created by the
+     * commit are deleted.
+     *
+     * @return the written files
+     * @throws IOException if a file already exists or cannot be written, or a {@link GenerationException} holding
+     *             every rendering failure
+     * @throws TemplateException never thrown directly, rendering failures are reported by a {@link GenerationException}
+     */
+    public List<File> commit() throws IOException, TemplateException {
+        if (!this.packageConflicts.isEmpty()) {
+            throw new IOException(PluginUtils.messages.getMessage("unable.to.create.package", this.packageConflicts.get(0)));
+        }
+        final List<File> conflicts = getConflicts();
+        if (!conflicts.isEmpty()) {
+            throw new IOException(PluginUtils.messages.getMessage("file.already.exist", conflicts.get(0).getName()));
+        }
+
+        this.skipped = 0;
+        if (this.incremental) {
+            for (final Iterator<PlannedOutput> it = this.outputs.iterator(); it.hasNext();) {
+                final PlannedOutput output = it.next();
+                if (getManifest().isUpToDate(output.target, output.templateName, output.settings)) {
+                    it.remove();
+                    this.skipped++;
+                }
+            }
+        }
+
+        final List<Callable<PlannedOutput>> renderings = new ArrayList<Callable<PlannedOutput>>(this.outputs.size());
+        for (final PlannedOutput output : this.outputs) {
+            renderings.add(new Callable<PlannedOutput>() {
+
+                @Override
+                public PlannedOutput call() throws IOException {
+                    try {
+                        output.render(GenerationBatch.this.validate);
+                    } catch (IOException | TemplateException | RuntimeException e) {
+                        // Name the file, the failures of all renderings are reported together
+                        throw new IOException(PluginUtils.messages.getMessage("file.render.failed", output.target, e.getMessage()), e);
+                    }
+                    return output;
+                }
+            });
+        }
+        this.renderEngine.invokeAll(renderings);
+
+        final List<File> createdFolders = findMissingFolders();
+        final JavaSourceFacet java = this.project.getFacet(JavaSourceFacet.class);
+        final List<PlannedOutput> written = new ArrayList<PlannedOutput>(this.outputs.size());
+        final AtomicFileWriter writer = new AtomicFileWriter();
+        try {
+            for (final File folder : this.packages) {
+                if (!folder.isDirectory()) {
+                    final long start = System.nanoTime();
+                    if (!folder.mkdirs()) {
+                        throw new IOException(PluginUtils.messages.getMessage("package.not.created", folder));
+                    }
+                    StageMetrics.INSTANCE.record(StageMetrics.Stage.MKDIR, start, 1);
+                }
+            }
+            for (final PlannedOutput output : this.outputs) {
+                output.previousContent = output.target.isFile() ? Files.readAllBytes(output.target.toPath()) : null;
+                if (output.source != null) {
+                    PluginUtils.saveJavaSource(java, output.source, output.content.length());
+                } else {
+                    writer.write(output.target, output.content);
+                }
+                written.add(output);
+            }
+            writer.commit();
+        } catch (final IOException e) {
+            writer.abort();
+            rollback(written, createdFolders);
+            throw e;
+        } catch (final RuntimeException e) {
+            writer.abort();
+            rollback(written, createdFolders);
+            throw e;
+        }
+
+        final List<File> files = new ArrayList<File>(written.size());
+        for (final PlannedOutput output : written) {
+            files.add(output.target);
+        }
+        recordOutputs(written);
+        return files;
+    }
+
+    /**
+     * Records the written files in the manifest. The manifest only speeds up later incremental runs, so failing to
+     * update it does not fail the generation.
+     *
+     * @param written the written outputs
+     */
+    private void recordOutputs(final List<PlannedOutput> written) {
+        try {
+            final GenerationManifest generationManifest = getManifest();
+            for (final PlannedOutput output : written) {
+                generationManifest.record(output.target, output.templateName, output.settings);
+            }
+            generationManifest.save();
+        } catch (final IOException e) {
+            // Next incremental run will regenerate or report these files
+        }
+    }
+
+    /**
+     * Finds the folders a commit will create: the missing package folders and target folders, with their missing
+     * parents.
+     *
+     * @return the missing folders, deepest first
+     */
+    private List<File> findMissingFolders() {
+        final Set<File> folders = new LinkedHashSet<File>(this.packages);
+        for (final PlannedOutput output : this.outputs) {
+            folders.add(output.target.getAbsoluteFile().getParentFile());
+        }
+        final Set<File> missing = new HashSet<File>();
+        for (final File folder : folders) {
+            File parent = folder.getAbsoluteFile();
+            while (parent != null && !parent.isDirectory() && missing.add(parent)) {
+                parent = parent.getParentFile();
+            }
+        }
+        final List<File> sorted = new ArrayList<File>(missing);
+        Collections.sort(sorted, new Comparator<File>() {
+
+            @Override
+            public int compare(final File first, final File second) {
+                return second.getPath().length() - first.getPath().length();
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Deletes the files already written by this batch, restores the regenerated ones and deletes the folders created
+     * for them.
+     *
+     * @param written the written outputs
+     * @param createdFolders the folders missing before the commit, deepest first
+     */
+    private static void rollback(final List<PlannedOutput> written, final List<File> createdFolders) {
+        for (final PlannedOutput output : written) {
+            if (output.previousContent == null) {
+                output.target.delete();
+            } else {
+                try {
+                    Files.write(output.target.toPath(), output.previousContent);
+                } catch (final IOException e) {
+                    // Keep restoring the other files
+                }
+            }
+        }
+        for (final File folder : createdFolders) {
+            // Only empty folders are deleted, a folder filled meanwhile by someone else is kept
+            folder.delete();
+        }
+    }
+
+    /**
+     * A file planned by the batch.
+     */
+    private static final class PlannedOutput {
+
+        /** The type. */
+        private final OutputType type;
+
+        /** The target. */
+        private final File target;
+
+        /** The template name. */
+        private final String templateName;
+
+        /** The settings. */
+        private final TemplateSettings settings;
+
+        /** The template context. */
+        private final TemplateContext context;
+
+        /** The rendered content. */
+        private String content;
+
+        /** The parsed source, only set for java outputs in validated mode. */
+        private JavaSource<?> source;
+
+        /** The content of the file replaced by a regeneration. */
+        private byte[] previousContent;
+
+        /**
+         * Instantiates a new planned output.
+         *
+         * @param type the type
+         * @param target the target
+         * @param templateName the template name
+         * @param settings the settings
+         * @param context the template context
+         */
+        PlannedOutput(final OutputType type, final File target, final String templateName, final TemplateSettings settings,
+                final TemplateContext context) {
+            this.type = type;
+            this.target = target;
+            this.templateName = templateName;
+            this.settings = settings;
+            this.context = context;
+        }
+
+        /**
+         * Renders the output and parses it if required.
+         *
+         * @param validate true to parse java outputs
+         * @throws IOException if the template cannot be loaded
+         * @throws TemplateException if the template fails to render
+         */
+        void render(final boolean validate) throws IOException, TemplateException {
+            this.content = PluginUtils.renderTemplate(this.templateName, this.context);
+            if (validate && this.type != OutputType.RESOURCE) {
+                this.source = PluginUtils.parseJavaSource(this.type.getSourceType(), this.content);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Failure of one or more tasks of a generation. Each failure is attached as a suppressed exception.
+ */
+public class GenerationException extends IOException {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new generation exception.
+     *
+     * @param failures the failures in task order
+     */
+    public GenerationException(final List<Throwable> failures) {
+        super(failures.size() + " generation task(s) failed, first cause: " + failures.get(0).getMessage(), failures.get(0));
+        for (final Throwable failure : failures.subList(1, failures.size())) {
+            addSuppressed(failure);
+        }
+    }
+}
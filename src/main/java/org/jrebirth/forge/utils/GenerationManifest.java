@@ -0,0 +1,190 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.jboss.forge.project.Project;
+
+/**
+ * Record of the files generated in a project, stored in <code>target/jrebirth-generation.properties</code>.
+ *
+ * For each generated file it keeps the template used, the hash of the template, the hash of the
+ * {@link TemplateSettings} and the hash of the file as written. This tells whether an existing file is up to date,
+ * stale but untouched since its generation, or edited by hand.
+ */
+public final class GenerationManifest {
+
+    /** The manifest location, relative to the project root. */
+    public static final String MANIFEST_PATH = "target/jrebirth-generation.properties";
+
+    /** The separator of the recorded values. */
+    private static final String SEPARATOR = ";";
+
+    /** The project root. */
+    private final File projectRoot;
+
+    /** The manifest file. */
+    private final File manifestFile;
+
+    /** The records by path relative to the project root. */
+    private final Properties records = new Properties();
+
+    /** Tells if records have been added since loading. */
+    private boolean modified;
+
+    /**
+     * Instantiates a new generation manifest.
+     *
+     * @param projectRoot the project root
+     */
+    private GenerationManifest(final File projectRoot) {
+        this.projectRoot = projectRoot;
+        this.manifestFile = new File(projectRoot, MANIFEST_PATH);
+    }
+
+    /**
+     * Loads the manifest of a project, empty if it does not exist yet.
+     *
+     * @param project the project
+     * @return the manifest
+     * @throws IOException if the manifest exists but cannot be read
+     */
+    public static GenerationManifest load(final Project project) throws IOException {
+        final GenerationManifest manifest = new GenerationManifest(project.getProjectRoot().getUnderlyingResourceObject());
+        if (manifest.manifestFile.isFile()) {
+            final InputStream is = new FileInputStream(manifest.manifestFile);
+            try {
+                manifest.records.load(is);
+            } finally {
+                is.close();
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Checks if a file exists and is unchanged since its generation.
+     *
+     * @param target the generated file
+     * @return true, if the file content matches the recorded output hash
+     * @throws IOException if the file cannot be read
+     */
+    public boolean isUntouched(final File target) throws IOException {
+        final String[] record = getRecord(target);
+        return record != null && target.isFile() && record[3].equals(hashFile(target));
+    }
+
+    /**
+     * Checks if an untouched file has been generated from the same template and settings.
+     *
+     * @param target the generated file
+     * @param templateName the template name
+     * @param settings the template settings
+     * @return true, if regenerating the file would give the same content
+     * @throws IOException if the file or the template cannot be read
+     */
+    public boolean isUpToDate(final File target, final String templateName, final TemplateSettings settings) throws IOException {
+        final String[] record = getRecord(target);
+        return record != null
+                && record[0].equals(templateName)
+                && record[1].equals(TemplateRegistry.INSTANCE.getTemplateHash(templateName))
+                && record[2].equals(TemplateRegistry.hash(settings.getFingerprint()))
+                && isUntouched(target);
+    }
+
+    /**
+     * Records a generated file.
+     *
+     * @param target the generated file
+     * @param templateName the template name
+     * @param settings the template settings
+     * @throws IOException if the file or the template cannot be read
+     */
+    public void record(final File target, final String templateName, final TemplateSettings settings) throws IOException {
+        this.records.setProperty(getKey(target), templateName + SEPARATOR
+                + TemplateRegistry.INSTANCE.getTemplateHash(templateName) + SEPARATOR
+                + TemplateRegistry.hash(settings.getFingerprint()) + SEPARATOR
+                + hashFile(target));
+        this.modified = true;
+    }
+
+    /**
+     * Writes the manifest if records have been added.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    public void save() throws IOException {
+        if (!this.modified) {
+            return;
+        }
+        this.manifestFile.getParentFile().mkdirs();
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        this.records.store(content, "Files generated by the JRebirth Forge plugin");
+        // Written atomically, an interrupted save must not leave a truncated manifest trusted by the next runs
+        AtomicFileWriter.writeAtomically(this.manifestFile, content.toString("ISO-8859-1"));
+        this.modified = false;
+    }
+
+    /**
+     * Gets the record of a file.
+     *
+     * @param target the file
+     * @return the template name, template hash, settings hash and output hash, or null
+     */
+    private String[] getRecord(final File target) {
+        final String value = this.records.getProperty(getKey(target));
+        if (value == null) {
+            return null;
+        }
+        final String[] record = value.split(SEPARATOR);
+        return record.length == 4 ? record : null;
+    }
+
+    /**
+     * Gets the key of a file.
+     *
+     * @param target the file
+     * @return the path relative to the project root
+     */
+    private String getKey(final File target) {
+        return this.projectRoot.toURI().relativize(target.toURI()).getPath();
+    }
+
+    /**
+     * Hashes the content of a file.
+     *
+     * @param file the file
+     * @return the hash
+     * @throws IOException if the file cannot be read
+     */
+    private static String hashFile(final File file) throws IOException {
+        final InputStream is = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream((int) file.length());
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return TemplateRegistry.hash(content.toByteArray());
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a {@link GenerationBatch} would create, regenerate, skip or refuse, computed without touching the disk.
+ *
+ * Paths are relative to the project root, so the JSON form of a plan can be compared between builds.
+ */
+public final class GenerationPlan {
+
+    /**
+     * What a commit would do with a planned file.
+     */
+    public static enum Status {
+
+        /** The file does not exist and will be created. */
+        CREATE,
+
+        /** The file is untouched since its generation but stale, it will be regenerated. */
+        REGENERATE,
+
+        /** The file is up to date and will be left as is. */
+        SKIP,
+
+        /** The file exists or is planned twice, the commit will be refused. */
+        CONFLICT
+    }
+
+    /** The project root. */
+    private final File projectRoot;
+
+    /** The package folders to create. */
+    private final List<String> packages = new ArrayList<String>();
+
+    /** The package folders which already exist but had to be new. */
+    private final List<String> packageConflicts = new ArrayList<String>();
+
+    /** The planned files as path, template and status. */
+    private final List<String[]> files = new ArrayList<String[]>();
+
+    /** The number of files by status. */
+    private final Map<Status, Integer> counts = new EnumMap<Status, Integer>(Status.class);
+
+    /**
+     * Instantiates a new generation plan.
+     *
+     * @param projectRoot the project root
+     */
+    GenerationPlan(final File projectRoot) {
+        this.projectRoot = projectRoot;
+        for (final Status status : Status.values()) {
+            this.counts.put(status, 0);
+        }
+    }
+
+    /**
+     * Adds a package folder to create.
+     *
+     * @param folder the folder
+     */
+    void addPackage(final File folder) {
+        this.packages.add(relativize(folder));
+    }
+
+    /**
+     * Adds a package folder conflict.
+     *
+     * @param folder the folder
+     */
+    void addPackageConflict(final File folder) {
+        this.packageConflicts.add(relativize(folder));
+    }
+
+    /**
+     * Adds a planned file.
+     *
+     * @param target the file
+     * @param templateName the template name
+     * @param status what the commit would do
+     */
+    void addFile(final File target, final String templateName, final Status status) {
+        this.files.add(new String[] { relativize(target), templateName, status.name().toLowerCase(Locale.ENGLISH) });
+        this.counts.put(status, this.counts.get(status) + 1);
+    }
+
+    /**
+     * Checks if the plan has conflicts.
+     *
+     * @return true, if a commit would be refused
+     */
+    public boolean hasConflicts() {
+        return !this.packageConflicts.isEmpty() || this.counts.get(Status.CONFLICT) > 0;
+    }
+
+    /**
+     * Gets the number of planned files with a status.
+     *
+     * @param status the status
+     * @return the number of files
+     */
+    public int getCount(final Status status) {
+        return this.counts.get(status);
+    }
+
+    /**
+     * Formats the plan as JSON.
+     *
+     * @return the JSON document
+     */
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder(256 + this.files.size() * 128);
+        sb.append("{\n  \"packages\" : ");
+        appendArray(sb, this.packages);
+        sb.append(",\n  \"packageConflicts\" : ");
+        appendArray(sb, this.packageConflicts);
+        sb.append(",\n  \"files\" : [");
+        for (int i = 0; i < this.files.size(); i++) {
+            final String[] file = this.files.get(i);
+            sb.append(i == 0 ? "\n" : ",\n").append("    { \"path\" : ");
+            appendString(sb, file[0]);
+            sb.append(", \"template\" : ");
+            appendString(sb, file[1]);
+            sb.append(", \"status\" : ");
+            appendString(sb, file[2]);
+            sb.append(" }");
+        }
+        sb.append(this.files.isEmpty() ? "]" : "\n  ]");
+        sb.append(",\n  \"summary\" : {");
+        for (final Status status : Status.values()) {
+            sb.append(status.ordinal() == 0 ? " " : ", ");
+            appendString(sb, status.name().toLowerCase(Locale.ENGLISH));
+            sb.append(" : ").append(this.counts.get(status));
+        }
+        sb.append(", \"conflicts\" : ").append(hasConflicts()).append(" }\n}");
+        return sb.toString();
+    }
+
+    /**
+     * Gets a path relative to the project root.
+     *
+     * @param file the file
+     * @return the relative path, with forward slashes
+     */
+    private String relativize(final File file) {
+        final String path = this.projectRoot.toURI().relativize(file.toURI()).getPath();
+        // Existing folders get a trailing slash
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * Appends an array of strings.
+     *
+     * @param sb the builder
+     * @param values the values
+     */
+    private static void appendArray(final StringBuilder sb, final List<String> values) {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            sb.append(i == 0 ? " " : ", ");
+            appendString(sb, values.get(i));
+        }
+        sb.append(values.isEmpty() ? "]" : " ]");
+    }
+
+    /**
+     * Appends a quoted and escaped string.
+     *
+     * @param sb the builder
+     * @param value the value
+     */
+    private static void appendString(final StringBuilder sb, final String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
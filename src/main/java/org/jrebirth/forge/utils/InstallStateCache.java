@@ -0,0 +1,189 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the install state of the JRebirth facet, by POM file.
+ *
+ * A state stays valid while the POM keeps its modification time and its size. When only the modification time has
+ * changed, the SHA-1 of the content is compared to the cached one, so a POM saved without changes does not have to be
+ * parsed again.
+ */
+public final class InstallStateCache {
+
+    /** The Constant INSTANCE. */
+    public static final InstallStateCache INSTANCE = new InstallStateCache();
+
+    /** The cached states by absolute POM file. */
+    private final ConcurrentMap<File, State> states = new ConcurrentHashMap<File, State>();
+
+    /** The number of lookups served from the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of hits which needed to hash the POM content. */
+    private final AtomicLong hashHits = new AtomicLong();
+
+    /** The number of lookups which found no valid state. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiates a new install state cache.
+     */
+    InstallStateCache() {
+    }
+
+    /**
+     * Gets the cached install state of a POM.
+     *
+     * @param pom the POM file
+     * @return the install state, or null if it is unknown or the POM has changed
+     */
+    public Boolean get(final File pom) {
+        final File key = pom.getAbsoluteFile();
+        final State state = this.states.get(key);
+        if (state != null) {
+            final long lastModified = pom.lastModified();
+            final long length = pom.length();
+            if (state.lastModified == lastModified && state.length == length) {
+                this.hits.incrementAndGet();
+                return state.installed;
+            }
+            if (state.length == length) {
+                final String hash = hash(pom);
+                if (state.hash.equals(hash)) {
+                    this.states.replace(key, state, new State(lastModified, length, hash, state.installed));
+                    this.hits.incrementAndGet();
+                    this.hashHits.incrementAndGet();
+                    return state.installed;
+                }
+            }
+            this.states.remove(key, state);
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the install state computed from the current content of a POM.
+     *
+     * @param pom the POM file
+     * @param installed the install state
+     */
+    public void put(final File pom, final boolean installed) {
+        final long lastModified = pom.lastModified();
+        final long length = pom.length();
+        final String hash = hash(pom);
+        if (hash != null) {
+            this.states.put(pom.getAbsoluteFile(), new State(lastModified, length, hash, installed));
+        }
+    }
+
+    /**
+     * Forgets the install state of a POM, after it was written.
+     *
+     * @param pom the POM file
+     */
+    public void invalidate(final File pom) {
+        this.states.remove(pom.getAbsoluteFile());
+    }
+
+    /**
+     * Gets the hits.
+     *
+     * @return the number of lookups served without parsing the POM
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the hash hits.
+     *
+     * @return the number of hits which compared the POM content
+     */
+    public long getHashHits() {
+        return this.hashHits.get();
+    }
+
+    /**
+     * Gets the misses.
+     *
+     * @return the number of lookups which required to parse the POM
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the statistics as a displayable message.
+     *
+     * @return the statistics
+     */
+    public String getStatistics() {
+        return PluginUtils.messages.getMessage("install.state.statistics", getHits(), getHashHits(), getMisses());
+    }
+
+    /**
+     * Computes the SHA-1 of a POM.
+     *
+     * @param pom the POM file
+     * @return the hexadecimal hash, null if the POM can't be read
+     */
+    private static String hash(final File pom) {
+        try {
+            return TemplateRegistry.hash(Files.readAllBytes(pom.toPath()));
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The install state of a POM, with the file attributes it was computed for.
+     */
+    private static final class State {
+
+        /** The modification time of the POM. */
+        private final long lastModified;
+
+        /** The size of the POM. */
+        private final long length;
+
+        /** The hash of the POM content. */
+        private final String hash;
+
+        /** True if the facet is installed. */
+        private final boolean installed;
+
+        /**
+         * Instantiates a new state.
+         *
+         * @param lastModified the modification time
+         * @param length the size
+         * @param hash the content hash
+         * @param installed the install state
+         */
+        State(final long lastModified, final long length, final String hash, final boolean installed) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+            this.installed = installed;
+        }
+    }
+}
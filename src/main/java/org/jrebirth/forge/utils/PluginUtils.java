@@ -12,36 +12,26 @@
  */
 package org.jrebirth.forge.utils;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringWriter;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.jboss.forge.parser.JavaParser;
-import org.jboss.forge.parser.java.JavaClass;
-import org.jboss.forge.parser.java.JavaEnum;
-import org.jboss.forge.parser.java.JavaInterface;
+import org.jboss.forge.parser.java.JavaSource;
 import org.jboss.forge.project.Project;
-import org.jboss.forge.project.dependencies.Dependency;
 import org.jboss.forge.project.dependencies.DependencyBuilder;
 import org.jboss.forge.project.facets.DependencyFacet;
 import org.jboss.forge.project.facets.JavaSourceFacet;
-import org.jboss.forge.project.facets.ResourceFacet;
 import org.jboss.forge.resources.DirectoryResource;
 import org.jboss.forge.shell.ShellMessages;
 import org.jboss.forge.shell.ShellPrintWriter;
 import org.jboss.forge.shell.ShellPrompt;
 import org.jboss.forge.shell.plugins.PipeOut;
+import org.jrebirth.forge.utils.StageMetrics.Stage;
 
-import freemarker.template.Configuration;
-import freemarker.template.DefaultObjectWrapper;
-import freemarker.template.Template;
 import freemarker.template.TemplateException;
 
 /**
@@ -72,10 +62,10 @@ public final class PluginUtils {
     /** The resource bundle. */
     public static MessageUtil messages = MessageUtil.INSTANCE;
 
-    private static Configuration cfg = new Configuration();
+    /** The compiled templates. */
+    private static TemplateRegistry templates = TemplateRegistry.INSTANCE;
     static {
-        cfg.setClassForTemplateLoading(PluginUtils.class, "../../../../template");
-        cfg.setObjectWrapper(new DefaultObjectWrapper());
+        templates.warmUpInBackground();
     }
 
     /**
@@ -166,195 +156,209 @@ public final class PluginUtils {
      * @param askVersion the ask version
      */
     public static void installDependencies(final Project project, final ShellPrompt shell, final ShellPrintWriter writer, final DependencyBuilder dependency, final boolean askVersion) {
+        installDependencies(project, shell, writer, dependency, askVersion, Boolean.getBoolean(VersionCache.OFFLINE_PROPERTY));
+    }
+
+    /**
+     * Install dependencies. Available versions are only resolved when the user has to choose one, through the
+     * {@link VersionCache}.
+     * 
+     * @param project the project
+     * @param shell the shell
+     * @param writer the writer
+     * @param dependency the dependency
+     * @param askVersion the ask version
+     * @param offline true to choose among cached and locally installed versions only
+     */
+    public static void installDependencies(final Project project, final ShellPrompt shell, final ShellPrintWriter writer, final DependencyBuilder dependency, final boolean askVersion,
+            final boolean offline) {
+        final PomSession pom = PomSession.open(project);
+        installDependencies(project, pom, shell, writer, dependency, askVersion, offline);
+        pom.commit();
+    }
+
+    /**
+     * Install dependencies into a POM editing session, the POM is written when the session is committed.
+     * 
+     * @param project the project
+     * @param pom the POM session
+     * @param shell the shell
+     * @param writer the writer
+     * @param dependency the dependency
+     * @param askVersion the ask version
+     * @param offline true to choose among cached and locally installed versions only
+     */
+    public static void installDependencies(final Project project, final PomSession pom, final ShellPrompt shell, final ShellPrintWriter writer,
+            final DependencyBuilder dependency, final boolean askVersion, final boolean offline) {
         DependencyFacet dependencyFacet;
         dependencyFacet = project.getFacet(DependencyFacet.class);
 
-        final List<Dependency> versions = dependencyFacet.resolveAvailableVersions(dependency);
         if (askVersion) {
-            final Dependency dep = shell.promptChoiceTyped(messages.getMessage("which.version.to.install"), versions);
-            dependency.setVersion(dep.getVersion());
+            final long start = System.nanoTime();
+            final List<String> versions = VersionCache.INSTANCE.getVersions(dependencyFacet, dependency, offline);
+            StageMetrics.INSTANCE.record(Stage.DEPENDENCY_RESOLUTION, start, versions.size());
+            if (versions.isEmpty()) {
+                ShellMessages.error(writer, messages.getMessage("no.version.found", dependency.getGroupId(), dependency.getArtifactId()));
+                return;
+            }
+            dependency.setVersion(shell.promptChoiceTyped(messages.getMessage("which.version.to.install"), versions));
         }
-        dependencyFacet.addDirectDependency(dependency);
+        pom.addDependency(dependency);
 
         ShellMessages.info(writer, messages.getMessage("dependency.added", dependency.getArtifactId(), dependency.getGroupId(), dependency.getVersion()));
 
     }
 
     /**
-     * Determine package availability.
+     * Renders a template.
      * 
-     * @param beansDirectory the beans directory
-     * @param out the out
+     * @param templateFileName the template file name
+     * @param context the template context
+     * @return the rendered text
+     * @throws IOException if the template cannot be loaded
+     * @throws TemplateException if the template fails to render
      */
-    public static boolean determinePackageAvailability(final DirectoryResource beansDirectory, final PipeOut out) {
-        if (beansDirectory.isDirectory()) {
-            ShellMessages.error(out, messages.getMessage("unable.to.create.package", beansDirectory.toString()));
-            return false;
-        } else {
-            beansDirectory.mkdir();
-        }
-        return true;
+    public static String renderTemplate(final String templateFileName, final Map<String, TemplateSettings> context) throws IOException, TemplateException {
+        return renderTemplate(templateFileName, new TemplateContext(context.get(TemplateContext.SETTINGS)));
     }
 
     /**
-     * Creates the package if not exist.
+     * Renders a template with a precomputed context.
      * 
-     * @param directory the directory
-     * @param packageType the package type
-     * @param out the out
+     * @param templateFileName the template file name
+     * @param context the template context
+     * @return the rendered text
+     * @throws IOException if the template cannot be loaded
+     * @throws TemplateException if the template fails to render
      */
-    public static void createPackageIfNotExist(final DirectoryResource directory, final String packageType, final PipeOut out) {
-
-        if (directory.isDirectory() == false) {
-            ShellMessages.info(out, messages.getMessage("package.doesnot.exist", packageType));
-            directory.mkdir();
-        }
+    public static String renderTemplate(final String templateFileName, final TemplateContext context) throws IOException, TemplateException {
+        final long start = System.nanoTime();
+        final StringWriter writer = new StringWriter();
+        templates.getTemplate(templateFileName).process(context, writer);
+        final String content = writer.toString();
+        StageMetrics.INSTANCE.record(Stage.TEMPLATE_RENDER, start, content.length());
+        return content;
     }
 
     /**
-     * Determine file availability.
+     * Parses a java source, recording its {@link Stage#JAVA_PARSE} metrics.
      * 
-     * @param project the project
-     * @param directory the directory
-     * @param type the type
-     * @param finalName the final name
-     * @param out the out
-     * @param suffix the suffix
-     * @param fileEnding the file ending
-     * @param settings parameters of the template
+     * @param type the source type
+     * @param content the source content
+     * @param <T> the source type
+     * @return the parsed source
      */
-    public static void determineFileAvailabilty(final Project project, final DirectoryResource directory, final CreationType type, final String finalName,
-            final PipeOut out, final String suffix, final String fileEnding, TemplateSettings settings) {
-        if (directory != null && directory.getChild(finalName + fileEnding).exists() == false) {
-            generateFile(project, type, suffix, settings);
-
-        } else {
-            ShellMessages.error(out, messages.getMessage("file.already.exist", finalName));
-        }
+    public static <T extends JavaSource<?>> T parseJavaSource(final Class<T> type, final String content) {
+        final long start = System.nanoTime();
+        final T source = JavaParser.parse(type, content);
+        StageMetrics.INSTANCE.record(Stage.JAVA_PARSE, start, content.length());
+        return source;
     }
 
     /**
-     * Generate file.
+     * Saves a java source through the java facet, recording its {@link Stage#SAVE_JAVA_SOURCE} metrics.
      * 
-     * @param project the project
-     * @param fileType the file type
-     * @param suffix the suffix
-     * @param settings the parameters to be set in the template
+     * @param java the java facet
+     * @param source the source
+     * @param size the size of the source in characters
+     * @throws FileNotFoundException if the source file cannot be written
      */
-    public static void generateFile(final Project project, final CreationType fileType, final String suffix, TemplateSettings settings)
-    {
-
-        String template = "";
-        Map<String, TemplateSettings> context = new HashMap<String, TemplateSettings>();
-
-        context.put("settings", settings);
+    public static void saveJavaSource(final JavaSourceFacet java, final JavaSource<?> source, final long size) throws FileNotFoundException {
+        final long start = System.nanoTime();
+        java.saveJavaSource(source);
+        StageMetrics.INSTANCE.record(Stage.SAVE_JAVA_SOURCE, start, size);
+    }
 
+    /**
+     * Commits a generation batch, reporting conflicts and failures to the shell.
+     * 
+     * @param batch the batch
+     * @param out the out
+     * @return true, if all files have been written
+     */
+    public static boolean commitBatch(final GenerationBatch batch, final PipeOut out) {
+        if (reportPackages(batch, out) == false) {
+            return false;
+        }
         try {
-            switch (fileType) {
-
-                case UI:
-
-                    if ("Model".equals(suffix)) {
-                        template = "TemplateModel.ftl";
-                    } else if ("View".equals(suffix)) {
-                        template = "TemplateView.ftl";
-                    } else if ("Controller".equals(suffix)) {
-                        template = "TemplateController.ftl";
-                    }
-                    createJavaFileUsingTemplate(project, template, context);
-                    break;
-                case FXML:
-                    final ResourceFacet resourceFacet = project.getFacet(ResourceFacet.class);
-                    File fxmlFile = resourceFacet.createResource(new char[0], settings.getImportPackage().replaceAll("\\.", "/") + "/ui/fxml/" + settings.getName() + ".fxml")
-                            .getUnderlyingResourceObject();
-                    createResourceFileUsingTemplate(project, "TemplateFXML.ftl", fxmlFile, context);
-                    break;
-                case COMMAND:
-                    createJavaFileUsingTemplate(project, "TemplateCommand.ftl", context);
-                    break;
-                case SERVICE:
-                    if (!settings.getName().contains("service") && !settings.getName().contains("Service")) {
-                        context.get("settings").setName(settings.getName().concat("Service"));
-                    }
-                    createJavaFileUsingTemplate(project, "TemplateService.ftl", context);
-                    break;
-                case RESOURCE:
-                    createJavaFileUsingTemplate(project, "TemplateResource.ftl", context);
-                    break;
-                case BEAN:
-                    context.get("settings").setTopLevelPacakge(settings.getImportPackage() + ".beans");
-                    createJavaFileUsingTemplate(project, "TemplateBean.ftl", context);
-                    break;
-                default:
-                    break;
+            final List<File> conflicts = batch.getConflicts();
+            if (!conflicts.isEmpty()) {
+                for (final File conflict : conflicts) {
+                    ShellMessages.error(out, messages.getMessage("file.already.exist", conflict.getName()));
+                }
+                return false;
             }
-
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (TemplateException te) {
-            te.printStackTrace();
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+            batch.commit();
+        } catch (IOException | TemplateException e) {
+            reportFailure(e, out);
+            return false;
         }
-
+        if (batch.getSkipped() > 0) {
+            ShellMessages.info(out, messages.getMessage("files.up.to.date", batch.getSkipped()));
+        }
+        return true;
     }
 
-    public static void createResourceFileUsingTemplate(final Project project, final String templateFileName, final File fileObj, final Map<String, TemplateSettings> context) throws IOException,
-            TemplateException {
-
-        Template template = null;
-        template = cfg.getTemplate(templateFileName);
-
-        FileWriter fileWriter = new FileWriter(fileObj);
-        template.process(context, fileWriter);
-        fileWriter.flush();
-        fileWriter.close();
-
+    /**
+     * Reports a generation failure as errors, with each failed file of a {@link GenerationException} and its reason.
+     * 
+     * @param failure the failure
+     * @param out the out
+     */
+    public static void reportFailure(final Exception failure, final PipeOut out) {
+        ShellMessages.error(out, messages.getMessage("could.not.create.file.reason", describe(failure)));
+        if (failure instanceof GenerationException) {
+            ShellMessages.error(out, messages.getMessage("generation.failure", describe(failure.getCause())));
+            for (final Throwable suppressed : failure.getSuppressed()) {
+                ShellMessages.error(out, messages.getMessage("generation.failure", describe(suppressed)));
+            }
+        }
     }
 
-    public static void createJavaFileUsingTemplate(final Project project, final String templateFileName, final Map<String, TemplateSettings> context) throws IOException,
-            TemplateException {
-        final StringWriter writer = new StringWriter();
-        Template template = null;
-        template = cfg.getTemplate(templateFileName);
-
-        final JavaSourceFacet java = project.getFacet(JavaSourceFacet.class);
-        template.process(context, writer);
-        writer.flush();
-
-        final JavaClass javaClass = JavaParser.parse(JavaClass.class, writer.toString());
-        java.saveJavaSource(javaClass);
-
+    /**
+     * Describes a failure by its message, or by its type when it has none.
+     * 
+     * @param failure the failure
+     * @return the description
+     */
+    private static String describe(final Throwable failure) {
+        return failure.getMessage() == null ? failure.toString() : failure.getMessage();
     }
 
-    public static void createJavaInterfaceUsingTemplate(final Project project, final String templateFileName, final Map<String, TemplateSettings> context) throws IOException,
-            TemplateException {
-        final StringWriter writer = new StringWriter();
-        Template template = null;
-        template = cfg.getTemplate(templateFileName);
-
-        final JavaSourceFacet java = project.getFacet(JavaSourceFacet.class);
-        template.process(context, writer);
-        writer.flush();
-
-        final JavaInterface javaInterface = JavaParser.parse(JavaInterface.class, writer.toString());
-        java.saveJavaSource(javaInterface);
-
+    /**
+     * Reports the package conflicts of a batch as errors and the packages it will create.
+     * 
+     * @param batch the batch
+     * @param out the out
+     * @return true, if the batch has no package conflict
+     */
+    public static boolean reportPackages(final GenerationBatch batch, final PipeOut out) {
+        final List<File> packageConflicts = batch.getPackageConflicts();
+        for (final File folder : packageConflicts) {
+            ShellMessages.error(out, messages.getMessage("unable.to.create.package", folder.toString()));
+        }
+        for (final File folder : batch.getPackages()) {
+            ShellMessages.info(out, messages.getMessage("package.doesnot.exist", folder.getName()));
+        }
+        return packageConflicts.isEmpty();
     }
 
-    public static void createJavaEnumUsingTemplate(final Project project, final String templateFileName, final Map<String, TemplateSettings> context) throws IOException,
-            TemplateException {
-        final StringWriter writer = new StringWriter();
-        Template template = null;
-        template = cfg.getTemplate(templateFileName);
-
-        final JavaSourceFacet java = project.getFacet(JavaSourceFacet.class);
-        template.process(context, writer);
-        writer.flush();
-
-        final JavaEnum javaEnum = JavaParser.parse(JavaEnum.class, writer.toString());
-        java.saveJavaSource(javaEnum);
-
+    /**
+     * Prints the plan of a batch as JSON, without writing anything.
+     * 
+     * @param batch the batch
+     * @param out the out
+     * @return true, if the batch could be committed without conflict
+     */
+    public static boolean printPlan(final GenerationBatch batch, final PipeOut out) {
+        try {
+            final GenerationPlan plan = batch.plan();
+            out.println(plan.toJson());
+            return plan.hasConflicts() == false;
+        } catch (final IOException e) {
+            ShellMessages.error(out, messages.getMessage("plan.failed"));
+            return false;
+        }
     }
 
     public static String firstLetterCaps(String text) {
@@ -363,54 +367,15 @@ public final class PluginUtils {
 
     public static void createJNLPConfiguration(final Project project) throws IOException, TemplateException {
 
+        final long start = System.nanoTime();
         project.getProjectRoot().getChildDirectory("src/main/jnlp").mkdir();
+        StageMetrics.INSTANCE.record(Stage.MKDIR, start, 1);
 
         DirectoryResource dir = project.getProjectRoot().getChildDirectory("src/main/jnlp");
-        File jnlpTemplate = new File(dir.getUnderlyingResourceObject().getPath() + System.getProperty("file.separator") + "template.vm");
-
-        InputStream is = PluginUtils.class.getResourceAsStream("/template/jnlpTemplate.vm");
-        byte[] data = new byte[3072];
-
-        int bufferSize = is.read(data);
-        is.close();
-
-        FileWriter writer = new FileWriter(jnlpTemplate);
-        BufferedWriter bWriter = new BufferedWriter(writer);
-
-        for (int i = 0; i < bufferSize; i++) {
-
-            bWriter.append((char) data[i]);
-        }
+        File jnlpTemplate = new File(dir.getUnderlyingResourceObject(), "template.vm");
 
-        bWriter.flush();
-        bWriter.close();
-
-    }
-
-    /**
-     * Creates the package if not exist.
-     * 
-     * @param directory the directory
-     * @param packageType the package type
-     * @param out the out
-     */
-    public static void createFullPackageIfNotExist(final DirectoryResource directory, String fullPackageName, final PipeOut out) {
-
-        String packageType;
-        String[] children;
-
-        if (fullPackageName.contains(".")) {
-            children = fullPackageName.split("\\.");
-        } else {
-            children = new String[] { fullPackageName };
-        }
-
-        DirectoryResource childDirectory = directory;
-        for (int i = 0; i < children.length; i++) {
-            packageType = children[i];
-            childDirectory = childDirectory.getChildDirectory(children[i]);
-            createPackageIfNotExist(childDirectory, packageType, out);
-        }
+        // The whole template is copied as UTF-8 text, whatever its size and the platform encoding
+        AtomicFileWriter.writeAtomically(jnlpTemplate, TemplateRegistry.readTemplate("jnlpTemplate.vm"));
     }
 
 }
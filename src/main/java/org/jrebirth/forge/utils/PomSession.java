@@ -0,0 +1,370 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.File;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.Repository;
+import org.jboss.forge.maven.MavenCoreFacet;
+import org.jboss.forge.project.Project;
+
+/**
+ * An editing session on the POM of a project.
+ *
+ * The POM is parsed once when the session is opened. Dependencies, repositories, properties, plugins and profiles are
+ * then edited in memory, and the POM is written once by {@link #commit()}, only if one of the edits changed it.
+ *
+ * A session is not thread safe, it must be used by one thread at a time.
+ */
+public final class PomSession {
+
+    /** The default group id of the Maven plugins. */
+    private static final String DEFAULT_PLUGIN_GROUP = "org.apache.maven.plugins";
+
+    /** The default dependency type. */
+    private static final String DEFAULT_TYPE = "jar";
+
+    /** The maven facet, null for a detached session. */
+    private final MavenCoreFacet facet;
+
+    /** The edited model. */
+    private final Model model;
+
+    /** True when the model differs from the POM on disk. */
+    private boolean dirty;
+
+    /**
+     * Instantiates a new session on a model.
+     *
+     * @param facet the maven facet writing the model, may be null
+     * @param model the model
+     */
+    PomSession(final MavenCoreFacet facet, final Model model) {
+        this.facet = facet;
+        this.model = model;
+    }
+
+    /**
+     * Opens a session on the POM of a project.
+     *
+     * @param project the project
+     * @return the session
+     */
+    public static PomSession open(final Project project) {
+        final MavenCoreFacet facet = project.getFacet(MavenCoreFacet.class);
+        return new PomSession(facet, facet.getPOM());
+    }
+
+    /**
+     * Gets the edited model.
+     *
+     * Changes made directly on the model must be followed by {@link #markDirty()}.
+     *
+     * @return the model
+     */
+    public Model getModel() {
+        return this.model;
+    }
+
+    /**
+     * Marks the model as changed.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Checks if the model has changed since the session was opened or last committed.
+     *
+     * @return true if the POM has to be written
+     */
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Checks if the project has a direct dependency.
+     *
+     * @param dependency the dependency, matched on its group id, artifact id, type and classifier
+     * @return true if the dependency is declared
+     */
+    public boolean hasDependency(final org.jboss.forge.project.dependencies.Dependency dependency) {
+        return findDependency(toMaven(dependency)) != null;
+    }
+
+    /**
+     * Adds a direct dependency, or updates the version, scope and system path of the declared one.
+     *
+     * @param dependency the dependency
+     * @return true if the model changed
+     */
+    public boolean addDependency(final org.jboss.forge.project.dependencies.Dependency dependency) {
+        final Dependency added = toMaven(dependency);
+        final Dependency existing = findDependency(added);
+        if (existing == null) {
+            this.model.addDependency(added);
+            return changed();
+        }
+        if (same(existing.getVersion(), added.getVersion()) && same(existing.getScope(), added.getScope())
+                && same(existing.getSystemPath(), added.getSystemPath())) {
+            return false;
+        }
+        existing.setVersion(added.getVersion());
+        existing.setScope(added.getScope());
+        existing.setSystemPath(added.getSystemPath());
+        return changed();
+    }
+
+    /**
+     * Removes a direct dependency.
+     *
+     * @param dependency the dependency, matched on its group id, artifact id, type and classifier
+     * @return true if the model changed
+     */
+    public boolean removeDependency(final org.jboss.forge.project.dependencies.Dependency dependency) {
+        final Dependency existing = findDependency(toMaven(dependency));
+        if (existing == null) {
+            return false;
+        }
+        this.model.removeDependency(existing);
+        return changed();
+    }
+
+    /**
+     * Removes a direct dependency only if it is declared exactly as given, so a dependency customized by the user is
+     * kept.
+     *
+     * @param dependency the dependency, matched on its group id, artifact id, type, classifier, version, scope and
+     *            system path
+     * @return true if the model changed
+     */
+    public boolean removeSameDependency(final org.jboss.forge.project.dependencies.Dependency dependency) {
+        final Dependency removed = toMaven(dependency);
+        final Dependency existing = findDependency(removed);
+        if (existing == null || !same(existing.getVersion(), removed.getVersion()) || !same(existing.getScope(), removed.getScope())
+                || !same(existing.getSystemPath(), removed.getSystemPath())) {
+            return false;
+        }
+        this.model.removeDependency(existing);
+        return changed();
+    }
+
+    /**
+     * Checks if the project declares a repository.
+     *
+     * @param url the repository url
+     * @return true if the repository is declared
+     */
+    public boolean hasRepository(final String url) {
+        return findRepository(url) != null;
+    }
+
+    /**
+     * Adds a repository if none is declared with the same url.
+     *
+     * @param id the repository id
+     * @param url the repository url
+     * @return true if the model changed
+     */
+    public boolean addRepository(final String id, final String url) {
+        if (findRepository(url) != null) {
+            return false;
+        }
+        final Repository repository = new Repository();
+        repository.setId(id);
+        repository.setUrl(url);
+        this.model.addRepository(repository);
+        return changed();
+    }
+
+    /**
+     * Removes the repository declared with an url.
+     *
+     * @param url the repository url
+     * @return true if the model changed
+     */
+    public boolean removeRepository(final String url) {
+        final Repository repository = findRepository(url);
+        if (repository == null) {
+            return false;
+        }
+        this.model.removeRepository(repository);
+        return changed();
+    }
+
+    /**
+     * Sets a property.
+     *
+     * @param key the key
+     * @param value the value
+     * @return true if the model changed
+     */
+    public boolean setProperty(final String key, final String value) {
+        if (value.equals(this.model.getProperties().getProperty(key))) {
+            return false;
+        }
+        this.model.addProperty(key, value);
+        return changed();
+    }
+
+    /**
+     * Adds a build plugin if the project does not declare it yet. A declared plugin is left as is, with the
+     * configuration the user may have customized.
+     *
+     * @param plugin the plugin
+     * @return true if the model changed
+     */
+    public boolean addPlugin(final Plugin plugin) {
+        Build build = this.model.getBuild();
+        if (build == null) {
+            build = new Build();
+            this.model.setBuild(build);
+        }
+        final String groupId = plugin.getGroupId() == null ? DEFAULT_PLUGIN_GROUP : plugin.getGroupId();
+        for (final Plugin existing : build.getPlugins()) {
+            if (plugin.getArtifactId().equals(existing.getArtifactId())
+                    && groupId.equals(existing.getGroupId() == null ? DEFAULT_PLUGIN_GROUP : existing.getGroupId())) {
+                return false;
+            }
+        }
+        build.addPlugin(plugin);
+        return changed();
+    }
+
+    /**
+     * Adds a build profile if the project does not declare one with the same id. A declared profile is left as is.
+     *
+     * @param profile the profile
+     * @return true if the model changed
+     */
+    public boolean addProfile(final Profile profile) {
+        for (final Profile existing : this.model.getProfiles()) {
+            if (profile.getId().equals(existing.getId())) {
+                return false;
+            }
+        }
+        this.model.addProfile(profile);
+        return changed();
+    }
+
+    /**
+     * Writes the POM if the model has changed.
+     *
+     * @return true if the POM was written
+     */
+    public boolean commit() {
+        if (this.dirty == false) {
+            return false;
+        }
+        if (this.facet != null) {
+            final long start = System.nanoTime();
+            this.facet.setPOM(this.model);
+            final File pomFile = this.facet.getPOMFile().getUnderlyingResourceObject();
+            StageMetrics.INSTANCE.record(StageMetrics.Stage.POM_WRITE, start, pomFile.length());
+            InstallStateCache.INSTANCE.invalidate(pomFile);
+        }
+        this.dirty = false;
+        return true;
+    }
+
+    /**
+     * Marks the model as changed.
+     *
+     * @return true
+     */
+    private boolean changed() {
+        this.dirty = true;
+        return true;
+    }
+
+    /**
+     * Finds the declared dependency matching another one.
+     *
+     * @param dependency the dependency
+     * @return the declared dependency, or null
+     */
+    private Dependency findDependency(final Dependency dependency) {
+        for (final Dependency existing : this.model.getDependencies()) {
+            if (same(existing.getGroupId(), dependency.getGroupId())
+                    && same(existing.getArtifactId(), dependency.getArtifactId())
+                    && same(existing.getClassifier(), dependency.getClassifier())
+                    && same(typeOf(existing), typeOf(dependency))) {
+                return existing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the repository declared with an url.
+     *
+     * @param url the url
+     * @return the repository, or null
+     */
+    private Repository findRepository(final String url) {
+        for (final Repository repository : this.model.getRepositories()) {
+            if (url.equals(repository.getUrl())) {
+                return repository;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a Forge dependency into a Maven one.
+     *
+     * @param dependency the Forge dependency
+     * @return the Maven dependency
+     */
+    public static Dependency toMaven(final org.jboss.forge.project.dependencies.Dependency dependency) {
+        final Dependency result = new Dependency();
+        result.setGroupId(dependency.getGroupId());
+        result.setArtifactId(dependency.getArtifactId());
+        result.setVersion(dependency.getVersion());
+        result.setClassifier(dependency.getClassifier());
+        result.setScope(dependency.getScopeType());
+        result.setSystemPath(dependency.getSystemPath());
+        if (dependency.getPackagingType() != null) {
+            result.setType(dependency.getPackagingType());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the type of a dependency.
+     *
+     * @param dependency the dependency
+     * @return the type, jar by default
+     */
+    private static String typeOf(final Dependency dependency) {
+        return dependency.getType() == null ? DEFAULT_TYPE : dependency.getType();
+    }
+
+    /**
+     * Compares two nullable values, empty strings being null.
+     *
+     * @param first the first value
+     * @param second the second value
+     * @return true if they are equal
+     */
+    private static boolean same(final String first, final String second) {
+        final String left = first == null || first.isEmpty() ? null : first;
+        final String right = second == null || second.isEmpty() ? null : second;
+        return left == null ? right == null : left.equals(right);
+    }
+}
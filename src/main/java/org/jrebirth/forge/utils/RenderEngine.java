@@ -0,0 +1,144 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * Runs independent generation tasks, like template renderings or the concurrent steps of a {@link TaskGraph}, on a
+ * bounded fork-join pool. Tasks must not call Forge facets or resources, which are not thread-safe.
+ *
+ * Results are returned in the order of the tasks whatever the order of completion, and every failure is collected
+ * into a single {@link GenerationException}. Templates come from the {@link TemplateRegistry} and are only read while
+ * rendering, so they can be shared by all workers.
+ */
+public final class RenderEngine {
+
+    /** The system property overriding the number of workers. */
+    public static final String PARALLELISM_PROPERTY = "jrebirth.render.threads";
+
+    /** The Constant INSTANCE. */
+    public static final RenderEngine INSTANCE = new RenderEngine(Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+    /** The pool. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Instantiates a new render engine.
+     *
+     * @param parallelism the maximum number of workers
+     */
+    public RenderEngine(final int parallelism) {
+        final ClassLoader pluginClassLoader = RenderEngine.class.getClassLoader();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), new ForkJoinWorkerThreadFactory() {
+
+            @Override
+            public ForkJoinWorkerThread newThread(final ForkJoinPool forkJoinPool) {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                // Forge parser and freemarker lookups must see the plugin module
+                thread.setContextClassLoader(pluginClassLoader);
+                thread.setName("jrebirth-render-" + thread.getPoolIndex());
+                return thread;
+            }
+        }, null, false);
+    }
+
+    /**
+     * Gets the parallelism.
+     *
+     * @return the maximum number of workers
+     */
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    /**
+     * Runs a task asynchronously on the pool.
+     *
+     * @param task the task
+     */
+    public void execute(final Runnable task) {
+        this.pool.execute(task);
+    }
+
+    /**
+     * Runs all tasks and waits for them. A single task runs in the calling thread.
+     *
+     * @param tasks the tasks
+     * @param <T> the result type
+     * @return the results, in task order
+     * @throws GenerationException if at least one task failed
+     */
+    public <T> List<T> invokeAll(final List<? extends Callable<T>> tasks) throws GenerationException {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        final Throwable[] taskFailures = new Throwable[tasks.size()];
+        final List<Throwable> failures = new ArrayList<Throwable>();
+
+        // Failures are kept as thrown, the pool would rethrow copies of the exceptions of other threads
+        final List<Callable<T>> guardedTasks = new ArrayList<Callable<T>>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            final Callable<T> task = tasks.get(i);
+            final int index = i;
+            guardedTasks.add(new Callable<T>() {
+
+                @Override
+                public T call() {
+                    try {
+                        return task.call();
+                    } catch (final Exception e) {
+                        taskFailures[index] = e;
+                        return null;
+                    }
+                }
+            });
+        }
+
+        if (tasks.size() < 2) {
+            for (final Callable<T> task : guardedTasks) {
+                try {
+                    results.add(task.call());
+                } catch (final Exception e) {
+                    failures.add(e);
+                }
+            }
+        } else {
+            for (final Future<T> future : this.pool.invokeAll(guardedTasks)) {
+                try {
+                    results.add(future.get());
+                } catch (final ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.add(e);
+                }
+            }
+        }
+
+        for (final Throwable failure : taskFailures) {
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new GenerationException(failures);
+        }
+        return results;
+    }
+}
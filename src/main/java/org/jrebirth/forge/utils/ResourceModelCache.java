@@ -0,0 +1,236 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.forge.parser.java.JavaSource;
+import org.jboss.forge.project.facets.JavaSourceFacet;
+
+/**
+ * Cache of the parsed models of the resource interfaces, like the Colors, Fonts and Images interfaces, by source file.
+ *
+ * A model stays valid while its file keeps its modification time and its size. When the modification time has
+ * changed, or when the file was modified less than {@link #TIMESTAMP_GRANULARITY} before the model was checked, the
+ * SHA-1 of the content is compared to the cached one: an edit keeping the size within the same modification time tick
+ * could not be seen otherwise. A model saved through {@link #save} stays cached with the attributes of the written
+ * file, so successive edits of a resource in a shell session parse it once.
+ *
+ * The cached models are mutable: a command changing a model must either save it or {@link #invalidate} it.
+ */
+public final class ResourceModelCache {
+
+    /** The coarsest modification time granularity of the file systems, the 2 seconds of FAT, in ms. */
+    static final long TIMESTAMP_GRANULARITY = 2000;
+
+    /** The Constant INSTANCE. */
+    public static final ResourceModelCache INSTANCE = new ResourceModelCache();
+
+    /** The cached models by absolute source file. */
+    private final ConcurrentMap<File, Model> models = new ConcurrentHashMap<File, Model>();
+
+    /** The number of lookups served from the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of hits which needed to hash the source content. */
+    private final AtomicLong hashHits = new AtomicLong();
+
+    /** The number of lookups which parsed the source. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiates a new resource model cache.
+     */
+    ResourceModelCache() {
+    }
+
+    /**
+     * Gets the model of a source file, parsed only if it is not cached or if the file has changed.
+     *
+     * @param file the source file
+     * @param type the source type
+     * @param <T> the source type
+     * @return the model
+     * @throws IOException if the source file can't be read
+     */
+    public <T extends JavaSource<?>> T get(final File file, final Class<T> type) throws IOException {
+        final File key = file.getAbsoluteFile();
+        final Model model = this.models.get(key);
+        final long checkedAt = System.currentTimeMillis();
+        final long lastModified = key.lastModified();
+        final long length = key.length();
+        if (model != null && type.isInstance(model.source)) {
+            if (model.lastModified == lastModified && model.length == length && !model.isRacy()) {
+                this.hits.incrementAndGet();
+                return type.cast(model.source);
+            }
+            if (model.length == length) {
+                final byte[] content = Files.readAllBytes(key.toPath());
+                final String hash = TemplateRegistry.hash(content);
+                if (model.hash.equals(hash)) {
+                    this.models.replace(key, model, new Model(lastModified, length, checkedAt, hash, model.source));
+                    this.hits.incrementAndGet();
+                    this.hashHits.incrementAndGet();
+                    return type.cast(model.source);
+                }
+                return parse(key, type, content, lastModified, length, checkedAt);
+            }
+        }
+        return parse(key, type, Files.readAllBytes(key.toPath()), lastModified, length, checkedAt);
+    }
+
+    /**
+     * Saves a model through the java facet and keeps it cached for the written file.
+     *
+     * @param java the java facet
+     * @param file the source file of the model
+     * @param source the model
+     * @throws FileNotFoundException if the source file cannot be written
+     */
+    public void save(final JavaSourceFacet java, final File file, final JavaSource<?> source) throws FileNotFoundException {
+        final File key = file.getAbsoluteFile();
+        try {
+            PluginUtils.saveJavaSource(java, source, file.length());
+        } catch (final FileNotFoundException | RuntimeException e) {
+            invalidate(key);
+            throw e;
+        }
+        try {
+            final long checkedAt = System.currentTimeMillis();
+            final long lastModified = key.lastModified();
+            final long length = key.length();
+            this.models.put(key, new Model(lastModified, length, checkedAt, TemplateRegistry.hash(Files.readAllBytes(key.toPath())), source));
+        } catch (final IOException e) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Forgets the model of a source file, changed without being saved.
+     *
+     * @param file the source file
+     */
+    public void invalidate(final File file) {
+        this.models.remove(file.getAbsoluteFile());
+    }
+
+    /**
+     * Gets the hits.
+     *
+     * @return the number of lookups served without parsing the source
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the hash hits.
+     *
+     * @return the number of hits which compared the source content
+     */
+    public long getHashHits() {
+        return this.hashHits.get();
+    }
+
+    /**
+     * Gets the misses.
+     *
+     * @return the number of lookups which parsed the source
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the statistics as a displayable message.
+     *
+     * @return the statistics
+     */
+    public String getStatistics() {
+        return PluginUtils.messages.getMessage("resource.model.statistics", getHits(), getHashHits(), getMisses());
+    }
+
+    /**
+     * Parses a source and caches its model.
+     *
+     * @param key the absolute source file
+     * @param type the source type
+     * @param content the source content
+     * @param lastModified the modification time of the file, read before its content
+     * @param length the size of the file, read before its content
+     * @param checkedAt the time the file attributes were read
+     * @param <T> the source type
+     * @return the model
+     */
+    private <T extends JavaSource<?>> T parse(final File key, final Class<T> type, final byte[] content, final long lastModified,
+            final long length, final long checkedAt) {
+        this.misses.incrementAndGet();
+        final T source = PluginUtils.parseJavaSource(type, new String(content, Charset.forName(PluginUtils.TEMPLATE_UNICODE)));
+        this.models.put(key, new Model(lastModified, length, checkedAt, TemplateRegistry.hash(content), source));
+        return source;
+    }
+
+    /**
+     * A parsed model, with the file attributes it was parsed for.
+     */
+    private static final class Model {
+
+        /** The modification time of the source file. */
+        private final long lastModified;
+
+        /** The size of the source file. */
+        private final long length;
+
+        /** The time the file attributes were read. */
+        private final long checkedAt;
+
+        /** The hash of the source content. */
+        private final String hash;
+
+        /** The parsed source. */
+        private final JavaSource<?> source;
+
+        /**
+         * Instantiates a new model.
+         *
+         * @param lastModified the modification time
+         * @param length the size
+         * @param checkedAt the time the attributes were read
+         * @param hash the hash of the content
+         * @param source the parsed source
+         */
+        Model(final long lastModified, final long length, final long checkedAt, final String hash, final JavaSource<?> source) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.checkedAt = checkedAt;
+            this.hash = hash;
+            this.source = source;
+        }
+
+        /**
+         * Checks if the file was modified too close to the check for its modification time to reveal a later edit.
+         *
+         * @return true if the content has to be compared
+         */
+        boolean isRacy() {
+            return this.checkedAt - this.lastModified < TIMESTAMP_GRANULARITY;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Journal of the setup steps of a project, kept in {@value #JOURNAL_PATH}.
+ *
+ * Each finished step is recorded with the length, the modification time and the SHA-1 of the files it produced. A step
+ * is verified again with a few file system calls only: its files are hashed only when their modification time or
+ * their length has changed. Failed steps, and the steps which never ran, are not done, so running the setup again
+ * resumes it.
+ */
+public final class SetupJournal {
+
+    /** The journal path, relative to the project root. */
+    public static final String JOURNAL_PATH = ".jrebirth/setup-journal.properties";
+
+    /** The key prefix of the steps. */
+    private static final String STEP_PREFIX = "step.";
+
+    /** The key telling if every step of the setup is done. */
+    private static final String COMPLETE_KEY = "complete";
+
+    /** The status of a finished step. */
+    private static final String DONE = "done";
+
+    /** The status of a failed step. */
+    private static final String FAILED = "failed";
+
+    /** The separator of the step status and of its results. */
+    private static final String RESULT_SEPARATOR = "|";
+
+    /** The separator of the fields of a result. */
+    private static final String FIELD_SEPARATOR = ";";
+
+    /** The marker of a folder result, only checked for existence. */
+    private static final String FOLDER = "folder";
+
+    /** The hash recorded for a file which could not be read, it never matches. */
+    private static final String UNREADABLE = "-";
+
+    /** The project root. */
+    private final File projectRoot;
+
+    /** The journal file. */
+    private final File journalFile;
+
+    /** The journal entries. */
+    private final Properties entries = new Properties();
+
+    /** The steps skipped since the journal was opened, in order. */
+    private final List<String> skipped = new ArrayList<String>();
+
+    /** The entries have been changed since the journal was opened. */
+    private boolean dirty;
+
+    /**
+     * Instantiates a new setup journal.
+     *
+     * @param projectRoot the project root
+     */
+    SetupJournal(final File projectRoot) {
+        this.projectRoot = projectRoot;
+        this.journalFile = new File(projectRoot, JOURNAL_PATH);
+    }
+
+    /**
+     * Opens the journal of a project, empty if the project has none.
+     *
+     * @param projectRoot the project root
+     * @return the journal
+     */
+    public static SetupJournal open(final File projectRoot) {
+        final SetupJournal journal = new SetupJournal(projectRoot);
+        if (journal.journalFile.isFile()) {
+            try {
+                final InputStream is = new FileInputStream(journal.journalFile);
+                try {
+                    journal.entries.load(is);
+                } finally {
+                    is.close();
+                }
+            } catch (final IOException e) {
+                // Every step will be run again
+                journal.entries.clear();
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Checks if a step is done and its files are still there.
+     *
+     * A file changed since the step was recorded keeps the step done if keepEdited is true, so the files edited by the
+     * developer are never generated again. Otherwise the step has to run again.
+     *
+     * @param step the step name
+     * @param keepEdited true to accept the files changed since the step was recorded
+     * @return true if the step can be skipped
+     */
+    public synchronized boolean isDone(final String step, final boolean keepEdited) {
+        final String entry = this.entries.getProperty(STEP_PREFIX + step);
+        if (entry == null) {
+            return false;
+        }
+        final String[] parts = entry.split("\\" + RESULT_SEPARATOR);
+        if (!DONE.equals(parts[0])) {
+            return false;
+        }
+        final StringBuilder refreshed = new StringBuilder(DONE);
+        for (int i = 1; i < parts.length; i++) {
+            final String[] fields = parts[i].split(FIELD_SEPARATOR);
+            final File file = new File(this.projectRoot, fields[0]);
+            if (FOLDER.equals(fields[1])) {
+                if (!file.isDirectory()) {
+                    return false;
+                }
+                refreshed.append(RESULT_SEPARATOR).append(parts[i]);
+                continue;
+            }
+            if (!file.isFile()) {
+                return false;
+            }
+            final long length = file.length();
+            final long lastModified = file.lastModified();
+            if (Long.parseLong(fields[1]) == length && Long.parseLong(fields[2]) == lastModified) {
+                refreshed.append(RESULT_SEPARATOR).append(parts[i]);
+                continue;
+            }
+            final String hash = hash(file);
+            if (hash != null && fields[3].equals(hash)) {
+                refreshed.append(RESULT_SEPARATOR).append(fingerprint(file, fields[0], hash));
+            } else if (keepEdited) {
+                refreshed.append(RESULT_SEPARATOR).append(parts[i]);
+            } else {
+                return false;
+            }
+        }
+        if (!entry.equals(refreshed.toString())) {
+            this.entries.setProperty(STEP_PREFIX + step, refreshed.toString());
+            this.dirty = true;
+        }
+        this.skipped.add(step);
+        return true;
+    }
+
+    /**
+     * Records a finished step with the files and folders it produced.
+     *
+     * @param step the step name
+     * @param results the produced files and folders, inside the project
+     */
+    public synchronized void markDone(final String step, final File... results) {
+        final StringBuilder entry = new StringBuilder(DONE);
+        for (final File result : results) {
+            final String path = relativePath(result);
+            entry.append(RESULT_SEPARATOR);
+            if (result.isDirectory()) {
+                entry.append(path).append(FIELD_SEPARATOR).append(FOLDER);
+            } else {
+                entry.append(fingerprint(result, path, hash(result)));
+            }
+        }
+        this.entries.setProperty(STEP_PREFIX + step, entry.toString());
+        this.dirty = true;
+    }
+
+    /**
+     * Records a failed step, to run it again next time.
+     *
+     * @param step the step name
+     */
+    public synchronized void markFailed(final String step) {
+        this.entries.setProperty(STEP_PREFIX + step, FAILED);
+        this.dirty = true;
+    }
+
+    /**
+     * Records if every step of the setup is done.
+     *
+     * @param complete true if the setup is complete
+     */
+    public synchronized void setComplete(final boolean complete) {
+        if (complete != isComplete()) {
+            this.entries.setProperty(COMPLETE_KEY, String.valueOf(complete));
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Checks if the setup was completed. A project without journal was set up before the journal existed, it is
+     * complete.
+     *
+     * @return true if no setup step is left to run
+     */
+    public synchronized boolean isComplete() {
+        return !"false".equals(this.entries.getProperty(COMPLETE_KEY));
+    }
+
+    /**
+     * Gets the skipped steps.
+     *
+     * @return the steps found done since the journal was opened, in order
+     */
+    public synchronized List<String> getSkipped() {
+        return new ArrayList<String>(this.skipped);
+    }
+
+    /**
+     * Writes the journal if it has changed.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public synchronized void save() throws IOException {
+        if (this.dirty) {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            this.entries.store(content, "Setup steps done by the JRebirth Forge plugin");
+            AtomicFileWriter.writeAtomically(this.journalFile, content.toString("ISO-8859-1"));
+            this.dirty = false;
+        }
+    }
+
+    /**
+     * Builds the fingerprint of a file.
+     *
+     * @param file the file
+     * @param path the path relative to the project root
+     * @param hash the SHA-1 of the file
+     * @return the fingerprint
+     */
+    private static String fingerprint(final File file, final String path, final String hash) {
+        return path + FIELD_SEPARATOR + file.length() + FIELD_SEPARATOR + file.lastModified() + FIELD_SEPARATOR
+                + (hash == null ? UNREADABLE : hash);
+    }
+
+    /**
+     * Gets the path of a file relative to the project root, with forward slashes.
+     *
+     * @param file the file
+     * @return the relative path
+     */
+    private String relativePath(final File file) {
+        return this.projectRoot.getAbsoluteFile().toURI().relativize(file.getAbsoluteFile().toURI()).getPath()
+                .replaceAll("/$", "");
+    }
+
+    /**
+     * Computes the SHA-1 of a file.
+     *
+     * @param file the file
+     * @return the hexadecimal hash, null if the file can't be read
+     */
+    private static String hash(final File file) {
+        try {
+            return TemplateRegistry.hash(Files.readAllBytes(file.toPath()));
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+}
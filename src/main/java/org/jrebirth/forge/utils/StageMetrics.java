@@ -0,0 +1,306 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and size metrics of the plugin operations, aggregated by stage for the current shell session.
+ *
+ * Each operation is recorded with its duration and the size it handled. Durations are counted in histograms of power
+ * of two buckets of microseconds, which keeps recording lock free and cheap enough for every file of a batch.
+ */
+public final class StageMetrics {
+
+    /** The Constant INSTANCE. */
+    public static final StageMetrics INSTANCE = new StageMetrics();
+
+    /** The number of histogram buckets, the last one holds every duration from 2^(BUCKETS - 2) us. */
+    static final int BUCKETS = 26;
+
+    /** The width of the longest histogram bar. */
+    private static final int BAR_WIDTH = 40;
+
+    /**
+     * The instrumented stages.
+     */
+    public static enum Stage {
+
+        /** Resolution of the available versions of a dependency, sized in versions. */
+        DEPENDENCY_RESOLUTION("dependency-resolution", "versions"),
+
+        /** Rendering of a FreeMarker template, sized in characters. */
+        TEMPLATE_RENDER("template-render", "chars"),
+
+        /** Parsing of a java source, sized in characters. */
+        JAVA_PARSE("java-parse", "chars"),
+
+        /** Saving of a parsed java source by the Forge java facet, sized in characters. */
+        SAVE_JAVA_SOURCE("save-java-source", "chars"),
+
+        /** Writing of a generated file, sized in bytes. */
+        FILE_WRITE("file-write", "bytes"),
+
+        /** Creation of a package or resource folder, sized in folders. */
+        MKDIR("mkdir", "folders"),
+
+        /** Writing of the POM, sized in bytes. */
+        POM_WRITE("pom-write", "bytes");
+
+        /** The displayed name. */
+        private final String label;
+
+        /** The unit of the recorded sizes. */
+        private final String unit;
+
+        /**
+         * Instantiates a new stage.
+         *
+         * @param label the displayed name
+         * @param unit the size unit
+         */
+        private Stage(final String label, final String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+
+        /**
+         * Gets the label.
+         *
+         * @return the displayed name
+         */
+        public String getLabel() {
+            return this.label;
+        }
+
+        /**
+         * Gets the unit.
+         *
+         * @return the unit of the recorded sizes
+         */
+        public String getUnit() {
+            return this.unit;
+        }
+    }
+
+    /** The metrics of each stage. */
+    private final Map<Stage, Histogram> histograms = new EnumMap<Stage, Histogram>(Stage.class);
+
+    /**
+     * Instantiates new stage metrics.
+     */
+    StageMetrics() {
+        for (final Stage stage : Stage.values()) {
+            this.histograms.put(stage, new Histogram());
+        }
+    }
+
+    /**
+     * Records an operation which started at the given time and ends now.
+     *
+     * @param stage the stage
+     * @param startNanos the start time, from {@link System#nanoTime()}
+     * @param size the size handled by the operation
+     */
+    public void record(final Stage stage, final long startNanos, final long size) {
+        this.histograms.get(stage).add(System.nanoTime() - startNanos, size);
+    }
+
+    /**
+     * Gets the number of operations recorded for a stage.
+     *
+     * @param stage the stage
+     * @return the count
+     */
+    public long getCount(final Stage stage) {
+        return this.histograms.get(stage).count.get();
+    }
+
+    /**
+     * Gets the size handled by the operations of a stage.
+     *
+     * @param stage the stage
+     * @return the total size
+     */
+    public long getSize(final Stage stage) {
+        return this.histograms.get(stage).size.get();
+    }
+
+    /**
+     * Gets the number of operations of a stage in a histogram bucket.
+     *
+     * @param stage the stage
+     * @param bucket the bucket index
+     * @return the count
+     */
+    long getBucketCount(final Stage stage, final int bucket) {
+        return this.histograms.get(stage).buckets.get(bucket);
+    }
+
+    /**
+     * Forgets all recorded operations.
+     */
+    public void reset() {
+        for (final Histogram histogram : this.histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Builds the displayable report, a summary line followed by the latency histogram of each stage that recorded an
+     * operation.
+     *
+     * @return the report lines, empty if nothing was recorded
+     */
+    public List<String> getReport() {
+        final List<String> lines = new ArrayList<String>();
+        for (final Map.Entry<Stage, Histogram> entry : this.histograms.entrySet()) {
+            final Histogram histogram = entry.getValue();
+            final long count = histogram.count.get();
+            if (count == 0) {
+                continue;
+            }
+            final Stage stage = entry.getKey();
+            lines.add(PluginUtils.messages.getMessage("stats.stage", stage.getLabel(), count,
+                    histogram.totalNanos.get() / 1000000.0, histogram.percentile(0.5), histogram.percentile(0.99),
+                    histogram.maxNanos.get() / 1000L, histogram.size.get(), stage.getUnit()));
+
+            long highest = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                highest = Math.max(highest, histogram.buckets.get(i));
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                final long bucketCount = histogram.buckets.get(i);
+                if (bucketCount > 0) {
+                    lines.add(PluginUtils.messages.getMessage("stats.bucket", upperBound(i),
+                            bar((int) Math.max(1, bucketCount * BAR_WIDTH / highest)), bucketCount));
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Gets the bucket of a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the index of the smallest bucket whose upper bound is greater or equal to the duration
+     */
+    static int bucket(final long nanos) {
+        final long micros = Math.max(1, (nanos + 999) / 1000);
+        final int index = 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    /**
+     * Gets the upper bound of a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the upper bound in microseconds
+     */
+    static long upperBound(final int bucket) {
+        return 1L << bucket;
+    }
+
+    /**
+     * Draws a histogram bar.
+     *
+     * @param width the bar width
+     * @return the bar
+     */
+    private static String bar(final int width) {
+        final StringBuilder sb = new StringBuilder(width);
+        for (int i = 0; i < width; i++) {
+            sb.append('#');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The metrics of a stage.
+     */
+    private static final class Histogram {
+
+        /** The number of operations. */
+        private final AtomicLong count = new AtomicLong();
+
+        /** The cumulated duration. */
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        /** The longest duration. */
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /** The cumulated size. */
+        private final AtomicLong size = new AtomicLong();
+
+        /** The number of operations by duration bucket. */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        /**
+         * Adds an operation.
+         *
+         * @param nanos the duration
+         * @param operationSize the size
+         */
+        void add(final long nanos, final long operationSize) {
+            this.count.incrementAndGet();
+            this.totalNanos.addAndGet(nanos);
+            this.size.addAndGet(operationSize);
+            this.buckets.incrementAndGet(bucket(nanos));
+            long max = this.maxNanos.get();
+            while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+                max = this.maxNanos.get();
+            }
+        }
+
+        /**
+         * Gets the upper bound of the bucket holding a percentile.
+         *
+         * @param ratio the percentile, between 0 and 1
+         * @return the upper bound in microseconds
+         */
+        long percentile(final double ratio) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += this.buckets.get(i);
+            }
+            final long rank = (long) Math.ceil(total * ratio);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Forgets all operations.
+         */
+        void reset() {
+            this.count.set(0);
+            this.totalNanos.set(0);
+            this.maxNanos.set(0);
+            this.size.set(0);
+            for (int i = 0; i < BUCKETS; i++) {
+                this.buckets.set(i, 0);
+            }
+        }
+    }
+}
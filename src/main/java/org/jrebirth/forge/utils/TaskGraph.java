@@ -0,0 +1,414 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small graph of named steps, each one started as soon as all the steps it depends on are done.
+ *
+ * Concurrent steps run on a {@link RenderEngine} and must only do thread-safe work, like rendering a template: they
+ * must not call Forge facets, resources or the shell. Serial steps run one after another on the thread calling
+ * {@link #run(RenderEngine)}, in the order they become ready, so they can edit the project. Steps depending on a failed
+ * step are not run. Once done, the {@link Report} gives the critical path: the chain of steps which bounded the whole
+ * run, where a serial step also waits for the serial step run before it.
+ */
+public final class TaskGraph {
+
+    /**
+     * A step of the graph.
+     */
+    public static interface Step {
+
+        /**
+         * Runs the step.
+         *
+         * @throws Exception if the step fails
+         */
+        void run() throws Exception;
+    }
+
+    /** The nodes by name, in insertion order. */
+    private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+
+    /** The serial steps ready to run, followed by the end marker once every step is done. */
+    private final BlockingQueue<Node> serialQueue = new LinkedBlockingQueue<Node>();
+
+    /** The marker ending the run of the serial steps. */
+    private final Node end = new Node(null, null, true);
+
+    /** The nodes in completion order, which follows the dependencies. */
+    private final List<Node> completed = new ArrayList<Node>();
+
+    /** The number of steps not done yet. */
+    private final AtomicInteger remaining = new AtomicInteger();
+
+    /** The engine of the current run. */
+    private RenderEngine engine;
+
+    /**
+     * Adds a step which runs concurrently with the other steps. It must be thread-safe.
+     *
+     * @param name the unique step name
+     * @param step the step
+     * @param dependencies the names of the steps to run before, already added
+     * @return this graph
+     */
+    public TaskGraph add(final String name, final Step step, final String... dependencies) {
+        return add(name, step, false, dependencies);
+    }
+
+    /**
+     * Adds a step which runs on the thread calling {@link #run(RenderEngine)}, never at the same time as another serial
+     * step.
+     *
+     * @param name the unique step name
+     * @param step the step
+     * @param dependencies the names of the steps to run before, already added
+     * @return this graph
+     */
+    public TaskGraph addSerial(final String name, final Step step, final String... dependencies) {
+        return add(name, step, true, dependencies);
+    }
+
+    /**
+     * Adds a step.
+     *
+     * @param name the unique step name
+     * @param step the step
+     * @param serial true to run the step on the calling thread
+     * @param dependencies the names of the steps to run before, already added
+     * @return this graph
+     */
+    private TaskGraph add(final String name, final Step step, final boolean serial, final String... dependencies) {
+        if (this.nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Step " + name + " is already defined.");
+        }
+        final Node node = new Node(name, step, serial);
+        for (final String dependency : dependencies) {
+            final Node parent = this.nodes.get(dependency);
+            if (parent == null) {
+                throw new IllegalArgumentException("Step " + name + " depends on unknown step " + dependency + ".");
+            }
+            node.dependencies.add(parent);
+            parent.dependents.add(node);
+        }
+        this.nodes.put(name, node);
+        return this;
+    }
+
+    /**
+     * Runs all the steps and waits for them. The serial steps run on the calling thread.
+     *
+     * @param engine the engine running the concurrent steps
+     * @return the report
+     * @throws GenerationException if at least one step failed
+     */
+    public Report run(final RenderEngine engine) throws GenerationException {
+        this.engine = engine;
+        final long start = System.nanoTime();
+        this.serialQueue.clear();
+        this.completed.clear();
+        this.remaining.set(this.nodes.size());
+        if (this.nodes.isEmpty()) {
+            return new Report(Collections.<Node> emptyList(), Collections.<Node> emptyList(), 0);
+        }
+        for (final Node node : this.nodes.values()) {
+            node.reset();
+        }
+        for (final Node node : this.nodes.values()) {
+            if (node.dependencies.isEmpty()) {
+                schedule(node);
+            }
+        }
+
+        try {
+            Node previousSerial = null;
+            for (Node node = this.serialQueue.take(); node != this.end; node = this.serialQueue.take()) {
+                node.previousSerial = previousSerial;
+                node.run();
+                previousSerial = node;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenerationException(Collections.<Throwable> singletonList(e));
+        }
+
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        for (final Node node : this.nodes.values()) {
+            if (node.failure != null) {
+                failures.add(node.failure);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new GenerationException(failures);
+        }
+        synchronized (this.completed) {
+            return new Report(new ArrayList<Node>(this.nodes.values()), new ArrayList<Node>(this.completed), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Starts a step whose dependencies are done.
+     *
+     * @param node the step
+     */
+    private void schedule(final Node node) {
+        if (node.serial) {
+            this.serialQueue.add(node);
+        } else {
+            this.engine.execute(node);
+        }
+    }
+
+    /**
+     * A step with its dependencies and its execution state.
+     */
+    private final class Node implements Runnable {
+
+        /** The name. */
+        private final String name;
+
+        /** The step. */
+        private final Step step;
+
+        /** The serial flag. */
+        private final boolean serial;
+
+        /** The steps to run before. */
+        private final List<Node> dependencies = new ArrayList<Node>();
+
+        /** The steps waiting for this one. */
+        private final List<Node> dependents = new ArrayList<Node>();
+
+        /** The number of dependencies not done yet. */
+        private int pending;
+
+        /** The serial step run just before this serial step. */
+        private Node previousSerial;
+
+        /** The failure of the step. */
+        private volatile Throwable failure;
+
+        /** Tells if the step has been skipped. */
+        private volatile boolean skipped;
+
+        /** The duration in nanoseconds. */
+        private volatile long duration;
+
+        /**
+         * Instantiates a new node.
+         *
+         * @param name the name
+         * @param step the step
+         * @param serial the serial flag
+         */
+        Node(final String name, final Step step, final boolean serial) {
+            this.name = name;
+            this.step = step;
+            this.serial = serial;
+        }
+
+        /**
+         * Resets the execution state.
+         */
+        void reset() {
+            this.pending = this.dependencies.size();
+            this.previousSerial = null;
+            this.failure = null;
+            this.skipped = false;
+            this.duration = 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            try {
+                this.step.run();
+            } catch (final Exception e) {
+                this.failure = e;
+            } catch (final Error e) {
+                this.failure = e;
+            } finally {
+                this.duration = System.nanoTime() - start;
+            }
+            complete();
+        }
+
+        /**
+         * Releases the dependents of a finished or skipped step.
+         */
+        private void complete() {
+            synchronized (TaskGraph.this.completed) {
+                TaskGraph.this.completed.add(this);
+            }
+            for (final Node dependent : this.dependents) {
+                boolean ready;
+                synchronized (dependent) {
+                    ready = --dependent.pending == 0;
+                }
+                if (!ready) {
+                    continue;
+                }
+                if (dependent.isBlocked()) {
+                    dependent.skipped = true;
+                    dependent.complete();
+                } else {
+                    schedule(dependent);
+                }
+            }
+            if (TaskGraph.this.remaining.decrementAndGet() == 0) {
+                TaskGraph.this.serialQueue.add(TaskGraph.this.end);
+            }
+        }
+
+        /**
+         * Checks if a dependency failed or has been skipped.
+         *
+         * @return true, if the step must be skipped
+         */
+        private boolean isBlocked() {
+            for (final Node dependency : this.dependencies) {
+                if (dependency.failure != null || dependency.skipped) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Durations of a run and its critical path.
+     */
+    public static final class Report {
+
+        /** The steps of the critical path, in execution order. */
+        private final List<String> criticalPath = new ArrayList<String>();
+
+        /** The duration of the critical path in nanoseconds. */
+        private long criticalPathTime;
+
+        /** The sum of all step durations in nanoseconds. */
+        private long totalTime;
+
+        /** The wall time in nanoseconds. */
+        private final long wallTime;
+
+        /** The duration of each step in nanoseconds. */
+        private final Map<String, Long> durations = new LinkedHashMap<String, Long>();
+
+        /**
+         * Instantiates a new report.
+         *
+         * @param nodes the nodes in insertion order
+         * @param completed the nodes in completion order, each one after the steps it waited for
+         * @param wallTime the wall time in nanoseconds
+         */
+        Report(final List<Node> nodes, final List<Node> completed, final long wallTime) {
+            this.wallTime = wallTime;
+            for (final Node node : nodes) {
+                this.durations.put(node.name, node.duration);
+                this.totalTime += node.duration;
+            }
+            final Map<Node, Long> pathTimes = new HashMap<Node, Long>();
+            final Map<Node, Node> previous = new HashMap<Node, Node>();
+            Node last = null;
+            for (final Node node : completed) {
+                final List<Node> predecessors = new ArrayList<Node>(node.dependencies);
+                if (node.previousSerial != null) {
+                    predecessors.add(node.previousSerial);
+                }
+                long longest = 0;
+                Node longestPredecessor = null;
+                for (final Node predecessor : predecessors) {
+                    if (longestPredecessor == null || pathTimes.get(predecessor) > longest) {
+                        longest = pathTimes.get(predecessor);
+                        longestPredecessor = predecessor;
+                    }
+                }
+                previous.put(node, longestPredecessor);
+                pathTimes.put(node, longest + node.duration);
+                if (last == null || pathTimes.get(node) > pathTimes.get(last)) {
+                    last = node;
+                }
+            }
+            if (last != null) {
+                this.criticalPathTime = pathTimes.get(last);
+                for (Node node = last; node != null; node = previous.get(node)) {
+                    this.criticalPath.add(0, node.name);
+                }
+            }
+        }
+
+        /**
+         * Gets the critical path.
+         *
+         * @return the names of the steps of the critical path, in execution order
+         */
+        public List<String> getCriticalPath() {
+            return this.criticalPath;
+        }
+
+        /**
+         * Gets the duration of the critical path.
+         *
+         * @return the duration in milliseconds
+         */
+        public long getCriticalPathMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.criticalPathTime);
+        }
+
+        /**
+         * Gets the sum of all step durations.
+         *
+         * @return the duration in milliseconds
+         */
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.totalTime);
+        }
+
+        /**
+         * Gets the wall time of the run.
+         *
+         * @return the duration in milliseconds
+         */
+        public long getWallMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.wallTime);
+        }
+
+        /**
+         * Gets the duration of each step.
+         *
+         * @return the durations in milliseconds by step name, in insertion order
+         */
+        public Map<String, Long> getDurations() {
+            final Map<String, Long> millis = new LinkedHashMap<String, Long>();
+            for (final Map.Entry<String, Long> entry : this.durations.entrySet()) {
+                millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+            }
+            return millis;
+        }
+    }
+}
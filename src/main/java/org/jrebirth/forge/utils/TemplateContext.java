@@ -0,0 +1,55 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+
+/**
+ * Immutable root data model of a template, exposing its {@link TemplateSettings} as <code>settings</code>.
+ *
+ * A context is built once for a set of settings and can then render any number of templates, from any thread.
+ */
+public final class TemplateContext implements TemplateHashModel {
+
+    /** The name of the settings in templates. */
+    public static final String SETTINGS = "settings";
+
+    /** The settings model. */
+    private final TemplateSettingsModel settings;
+
+    /**
+     * Instantiates a new template context from the current values of the settings.
+     *
+     * @param settings the settings
+     */
+    public TemplateContext(final TemplateSettings settings) {
+        this.settings = new TemplateSettingsModel(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TemplateModel get(final String key) {
+        return SETTINGS.equals(key) ? this.settings : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+}
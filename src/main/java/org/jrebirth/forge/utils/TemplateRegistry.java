@@ -0,0 +1,301 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapper;
+import freemarker.template.Template;
+
+/**
+ * Registry holding every FreeMarker template of the plugin already parsed.
+ *
+ * Templates are read once from the classpath, parsed and kept with the hash of their content. Generation code then
+ * reuses the same compiled {@link Template} instead of asking the {@link Configuration} for it on each file.
+ */
+public final class TemplateRegistry {
+
+    /** The Constant INSTANCE. */
+    public static final TemplateRegistry INSTANCE = new TemplateRegistry();
+
+    /** The classpath folder holding the templates. */
+    private static final String TEMPLATE_FOLDER = "/template/";
+
+    /** The templates shipped with the plugin, parsed by {@link #warmUp()}. */
+    static final String[] TEMPLATE_NAMES = {
+            "TemplateApplication.ftl", "TemplateBean.ftl", "TemplateColorResource.ftl", "TemplateCommand.ftl",
+            "TemplateController.ftl", "TemplateFXML.ftl", "TemplateFontNamesResource.ftl", "TemplateFontsResource.ftl",
+            "TemplateImagesResource.ftl", "TemplateMainProperties.ftl", "TemplateModel.ftl", "TemplateService.ftl",
+            "TemplateView.ftl" };
+
+    /** The freemarker configuration shared by all compiled templates. */
+    private final Configuration cfg;
+
+    /** The compiled templates by name. */
+    private final ConcurrentMap<String, CompiledTemplate> templates = new ConcurrentHashMap<String, CompiledTemplate>();
+
+    /** The number of lookups served from the registry. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of lookups that required a parse. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** The cumulated parse time in nanoseconds. */
+    private final AtomicLong parseTime = new AtomicLong();
+
+    /**
+     * Instantiates a new template registry, only used through {@link #INSTANCE} outside of the tests.
+     */
+    TemplateRegistry() {
+        this.cfg = new Configuration();
+        this.cfg.setClassForTemplateLoading(TemplateRegistry.class, TEMPLATE_FOLDER);
+        this.cfg.setObjectWrapper(new DefaultObjectWrapper());
+        this.cfg.setDefaultEncoding(PluginUtils.TEMPLATE_UNICODE);
+    }
+
+    /**
+     * Gets the freemarker configuration.
+     *
+     * @return the configuration
+     */
+    public Configuration getConfiguration() {
+        return this.cfg;
+    }
+
+    /**
+     * Parses all the templates of the plugin.
+     *
+     * @throws IOException if a template cannot be read or parsed
+     */
+    public void warmUp() throws IOException {
+        for (final String name : TEMPLATE_NAMES) {
+            getCompiledTemplate(name);
+        }
+    }
+
+    /**
+     * Parses all the templates of the plugin in a daemon thread. Failures are left to the first real lookup.
+     */
+    public void warmUpInBackground() {
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    warmUp();
+                } catch (final IOException e) {
+                    // The failing template will be reported when it is used
+                }
+            }
+        }, "jrebirth-template-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the compiled template.
+     *
+     * @param templateName the template file name
+     * @return the template
+     * @throws IOException if the template cannot be read or parsed
+     */
+    public Template getTemplate(final String templateName) throws IOException {
+        return getCompiledTemplate(templateName).getTemplate();
+    }
+
+    /**
+     * Gets the content hash of a template.
+     *
+     * @param templateName the template file name
+     * @return the hexadecimal SHA-1 of the template source
+     * @throws IOException if the template cannot be read or parsed
+     */
+    public String getTemplateHash(final String templateName) throws IOException {
+        return getCompiledTemplate(templateName).getHash();
+    }
+
+    /**
+     * Gets the compiled template, parsing it on first access.
+     *
+     * @param templateName the template file name
+     * @return the compiled template
+     * @throws IOException if the template cannot be read or parsed
+     */
+    private CompiledTemplate getCompiledTemplate(final String templateName) throws IOException {
+        CompiledTemplate compiled = this.templates.get(templateName);
+        if (compiled != null) {
+            this.hits.incrementAndGet();
+            return compiled;
+        }
+        this.misses.incrementAndGet();
+
+        final long start = System.nanoTime();
+        final String source = readTemplate(templateName);
+        compiled = new CompiledTemplate(new Template(templateName, new StringReader(source), this.cfg), hash(source));
+        this.parseTime.addAndGet(System.nanoTime() - start);
+
+        final CompiledTemplate previous = this.templates.putIfAbsent(templateName, compiled);
+        return previous == null ? compiled : previous;
+    }
+
+    /**
+     * Gets the hits.
+     *
+     * @return the number of lookups served without parsing
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the misses.
+     *
+     * @return the number of lookups that parsed a template
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the template count.
+     *
+     * @return the number of templates parsed and kept
+     */
+    int getTemplateCount() {
+        return this.templates.size();
+    }
+
+    /**
+     * Gets the parse time.
+     *
+     * @return the cumulated parse time in milliseconds
+     */
+    public long getParseTimeMillis() {
+        return this.parseTime.get() / 1000000L;
+    }
+
+    /**
+     * Gets the statistics as a displayable message.
+     *
+     * @return the statistics
+     */
+    public String getStatistics() {
+        return PluginUtils.messages.getMessage("template.registry.statistics", getTemplateCount(), getHits(), getMisses(), getParseTimeMillis());
+    }
+
+    /**
+     * Reads a template source from the classpath.
+     *
+     * @param templateName the template file name
+     * @return the template source
+     * @throws IOException if the template is missing or unreadable
+     */
+    static String readTemplate(final String templateName) throws IOException {
+        final InputStream is = TemplateRegistry.class.getResourceAsStream(TEMPLATE_FOLDER + templateName);
+        if (is == null) {
+            throw new FileNotFoundException("Template " + templateName + " not found.");
+        }
+        try {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), Charset.forName(PluginUtils.TEMPLATE_UNICODE));
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Computes the SHA-1 of a text.
+     *
+     * @param text the text
+     * @return the hexadecimal hash
+     */
+    static String hash(final String text) {
+        return hash(text.getBytes(Charset.forName(PluginUtils.TEMPLATE_UNICODE)));
+    }
+
+    /**
+     * Computes the SHA-1 of binary content.
+     *
+     * @param content the content
+     * @return the hexadecimal hash
+     */
+    static String hash(final byte[] content) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A parsed template with the hash of its source.
+     */
+    private static final class CompiledTemplate {
+
+        /** The template. */
+        private final Template template;
+
+        /** The hash. */
+        private final String hash;
+
+        /**
+         * Instantiates a new compiled template.
+         *
+         * @param template the template
+         * @param hash the hash
+         */
+        CompiledTemplate(final Template template, final String hash) {
+            this.template = template;
+            this.hash = hash;
+        }
+
+        /**
+         * Gets the template.
+         *
+         * @return the template
+         */
+        Template getTemplate() {
+            return this.template;
+        }
+
+        /**
+         * Gets the hash.
+         *
+         * @return the hash
+         */
+        String getHash() {
+            return this.hash;
+        }
+    }
+}
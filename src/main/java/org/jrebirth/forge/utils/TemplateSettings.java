@@ -51,6 +51,21 @@ public final class TemplateSettings {
         this.importPackage = importPackage;
     }
 
+    /**
+     * Instantiates a copy of template settings.
+     *
+     * @param settings the settings to copy
+     */
+    public TemplateSettings(TemplateSettings settings) {
+        this.isControllerCreate = settings.isControllerCreate;
+        this.isBeanCreate = settings.isBeanCreate;
+        this.isFXMLCreate = settings.isFXMLCreate;
+        this.name = settings.name;
+        this.topLevelPacakge = settings.topLevelPacakge;
+        this.importPackage = settings.importPackage;
+        this.commandType = settings.commandType;
+    }
+
     /**
      * Checks if is controller create.
      *
@@ -177,6 +192,14 @@ public final class TemplateSettings {
         this.commandType = commandType;
     }
 
-    
-    
+    /**
+     * Gets the fingerprint of all the settings.
+     *
+     * @return a text changing whenever one of the settings changes
+     */
+    public String getFingerprint() {
+        return name + '|' + topLevelPacakge + '|' + importPackage + '|' + commandType + '|'
+                + isControllerCreate + '|' + isBeanCreate + '|' + isFXMLCreate;
+    }
+
 }
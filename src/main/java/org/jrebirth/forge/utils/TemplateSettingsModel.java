@@ -0,0 +1,126 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateBooleanModel;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateMethodModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * Immutable FreeMarker view of {@link TemplateSettings}.
+ *
+ * Every value is wrapped once when the model is built. Templates can read them either as properties, like
+ * <code>${settings.name}</code>, or through the getters they already call, like <code>${settings.getName()}</code>,
+ * without any reflective introspection or invocation.
+ */
+public final class TemplateSettingsModel implements TemplateHashModel {
+
+    /** The models by property and getter name. */
+    private final Map<String, TemplateModel> values;
+
+    /**
+     * Instantiates a new template settings model from the current values of the settings.
+     *
+     * @param settings the settings
+     */
+    public TemplateSettingsModel(final TemplateSettings settings) {
+        final Map<String, TemplateModel> map = new HashMap<String, TemplateModel>(32);
+        putText(map, "name", settings.getName());
+        putText(map, "topLevelPacakge", settings.getTopLevelPacakge());
+        putText(map, "importPackage", settings.getImportPackage());
+        putText(map, "commandType", settings.getCommandType());
+        putFlag(map, "controllerCreate", settings.isControllerCreate());
+        putFlag(map, "beanCreate", settings.isBeanCreate());
+        putFlag(map, "FXMLCreate", settings.isFXMLCreate());
+        this.values = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TemplateModel get(final String key) {
+        return this.values.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    /**
+     * Registers a text property and its getter.
+     *
+     * @param map the models
+     * @param property the property name
+     * @param value the value, may be null
+     */
+    private static void putText(final Map<String, TemplateModel> map, final String property, final String value) {
+        final TemplateModel model = value == null ? null : new SimpleScalar(value);
+        map.put(property, model);
+        map.put("get" + Character.toUpperCase(property.charAt(0)) + property.substring(1), new ConstantMethod(model));
+    }
+
+    /**
+     * Registers a boolean property and its getter.
+     *
+     * @param map the models
+     * @param property the property name
+     * @param value the value
+     */
+    private static void putFlag(final Map<String, TemplateModel> map, final String property, final boolean value) {
+        final TemplateModel model = value ? TemplateBooleanModel.TRUE : TemplateBooleanModel.FALSE;
+        map.put(property, model);
+        map.put("is" + Character.toUpperCase(property.charAt(0)) + property.substring(1), new ConstantMethod(model));
+    }
+
+    /**
+     * A getter without argument returning a precomputed model.
+     */
+    private static final class ConstantMethod implements TemplateMethodModelEx {
+
+        /** The returned model. */
+        private final TemplateModel value;
+
+        /**
+         * Instantiates a new constant method.
+         *
+         * @param value the returned model
+         */
+        ConstantMethod(final TemplateModel value) {
+            this.value = value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object exec(@SuppressWarnings("rawtypes") final List arguments) throws TemplateModelException {
+            if (!arguments.isEmpty()) {
+                throw new TemplateModelException("Template settings getters take no argument.");
+            }
+            return this.value;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * Get more info at : www.jrebirth.org . Copyright JRebirth.org © 2011-2013 Contact : sebastien.bordes@jrebirth.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.jrebirth.forge.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.project.dependencies.Dependency;
+import org.jboss.forge.project.dependencies.DependencyRepository;
+import org.jboss.forge.project.facets.DependencyFacet;
+
+/**
+ * Persistent cache of the versions available for an artifact, stored in <code>~/.forge/jrebirth-versions.properties</code>.
+ *
+ * Versions are cached by <code>groupId:artifactId</code> and by the repositories of the project, and resolved again
+ * from the remote repositories once older than the time to live, 24 hours unless the <code>jrebirth.versions.ttl</code>
+ * system property gives another number of hours.
+ *
+ * In offline mode, or when the remote resolution fails, cached versions are used whatever their age and, for artifacts
+ * never resolved, the versions found in the local repository: <code>~/.m2/repository</code> unless the
+ * <code>jrebirth.local.repository</code> system property points to another folder with the same layout.
+ */
+public final class VersionCache {
+
+    /** The system property giving the time to live of cached versions, in hours. */
+    public static final String TTL_PROPERTY = "jrebirth.versions.ttl";
+
+    /** The system property turning the offline mode on for all commands. */
+    public static final String OFFLINE_PROPERTY = "jrebirth.offline";
+
+    /** The system property locating the local repository. */
+    public static final String LOCAL_REPOSITORY_PROPERTY = "jrebirth.local.repository";
+
+    /** The Constant INSTANCE. */
+    public static final VersionCache INSTANCE = new VersionCache(
+            new File(System.getProperty("user.home"), ".forge/jrebirth-versions.properties"),
+            new File(System.getProperty(LOCAL_REPOSITORY_PROPERTY, System.getProperty("user.home") + "/.m2/repository")),
+            TimeUnit.HOURS.toMillis(Long.getLong(TTL_PROPERTY, 24L)));
+
+    /** Orders versions by their numeric parts, then by their qualifiers. */
+    static final Comparator<String> VERSION_ORDER = new Comparator<String>() {
+
+        @Override
+        public int compare(final String v1, final String v2) {
+            final String[] parts1 = v1.split("[.-]");
+            final String[] parts2 = v2.split("[.-]");
+            for (int i = 0; i < Math.min(parts1.length, parts2.length); i++) {
+                final boolean numeric1 = parts1[i].matches("\\d+");
+                final boolean numeric2 = parts2[i].matches("\\d+");
+                int result;
+                if (numeric1 && numeric2) {
+                    result = Long.valueOf(parts1[i]).compareTo(Long.valueOf(parts2[i]));
+                } else if (numeric1 || numeric2) {
+                    // A release number comes after a qualifier like SNAPSHOT
+                    result = numeric1 ? 1 : -1;
+                } else {
+                    result = parts1[i].compareToIgnoreCase(parts2[i]);
+                }
+                if (result != 0) {
+                    return result;
+                }
+            }
+            if (parts1.length == parts2.length) {
+                return 0;
+            }
+            // 1.0.1 comes after 1.0, which comes after 1.0-SNAPSHOT
+            final boolean longerIsRelease = (parts1.length > parts2.length ? parts1 : parts2)[Math.min(parts1.length, parts2.length)].matches("\\d+");
+            return parts1.length > parts2.length == longerIsRelease ? 1 : -1;
+        }
+    };
+
+    /** The separator of the resolution time and the versions. */
+    private static final String TIME_SEPARATOR = "|";
+
+    /** The separator of versions. */
+    private static final String VERSION_SEPARATOR = ",";
+
+    /** The cache file. */
+    private final File cacheFile;
+
+    /** The local repository. */
+    private final File localRepository;
+
+    /** The time to live in milliseconds. */
+    private final long ttl;
+
+    /** The cached entries, loaded on first use. */
+    private Properties entries;
+
+    /**
+     * Instantiates a new version cache.
+     *
+     * @param cacheFile the cache file
+     * @param localRepository the local repository
+     * @param ttl the time to live in milliseconds
+     */
+    VersionCache(final File cacheFile, final File localRepository, final long ttl) {
+        this.cacheFile = cacheFile;
+        this.localRepository = localRepository;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Gets the versions available for a dependency.
+     *
+     * @param dependencyFacet the dependency facet of the project
+     * @param dependency the dependency
+     * @param offline true to never contact the remote repositories
+     * @return the versions, from the oldest to the newest
+     */
+    public List<String> getVersions(final DependencyFacet dependencyFacet, final Dependency dependency, final boolean offline) {
+        final StringBuilder key = new StringBuilder(dependency.getGroupId()).append(':').append(dependency.getArtifactId());
+        final List<String> urls = new ArrayList<String>();
+        for (final DependencyRepository repository : dependencyFacet.getRepositories()) {
+            urls.add(repository.getUrl());
+        }
+        Collections.sort(urls);
+        for (final String url : urls) {
+            key.append(' ').append(url);
+        }
+
+        return getVersions(key.toString(), dependency.getGroupId(), dependency.getArtifactId(), offline, new Callable<List<String>>() {
+
+            @Override
+            public List<String> call() {
+                final List<String> versions = new ArrayList<String>();
+                for (final Dependency available : dependencyFacet.resolveAvailableVersions(dependency)) {
+                    versions.add(available.getVersion());
+                }
+                return versions;
+            }
+        });
+    }
+
+    /**
+     * Gets the versions of an artifact, from the cache, the remote repositories or the local repository.
+     *
+     * @param key the cache key
+     * @param groupId the group id
+     * @param artifactId the artifact id
+     * @param offline true to never call the remote resolution
+     * @param remote the remote resolution
+     * @return the versions, from the oldest to the newest
+     */
+    synchronized List<String> getVersions(final String key, final String groupId, final String artifactId, final boolean offline,
+            final Callable<List<String>> remote) {
+        final String entry = getEntries().getProperty(key);
+        final int separator = entry == null ? -1 : entry.indexOf(TIME_SEPARATOR);
+        final List<String> cached = separator < 0 ? null : split(entry.substring(separator + 1));
+
+        if (cached != null && (offline || System.currentTimeMillis() - Long.parseLong(entry.substring(0, separator)) < this.ttl)) {
+            return cached;
+        }
+        if (!offline) {
+            try {
+                final List<String> versions = remote.call();
+                if (!versions.isEmpty()) {
+                    store(key, versions);
+                    return versions;
+                }
+            } catch (final Exception e) {
+                // Unreachable repositories, fall back to what is known locally
+            }
+        }
+        return cached != null ? cached : getLocalVersions(groupId, artifactId);
+    }
+
+    /**
+     * Lists the versions of an artifact found in the local repository.
+     *
+     * @param groupId the group id
+     * @param artifactId the artifact id
+     * @return the versions, from the oldest to the newest
+     */
+    List<String> getLocalVersions(final String groupId, final String artifactId) {
+        final File artifactFolder = new File(this.localRepository, groupId.replace('.', '/') + '/' + artifactId);
+        final List<String> versions = new ArrayList<String>();
+        final File[] folders = artifactFolder.listFiles();
+        if (folders != null) {
+            for (final File folder : folders) {
+                if (new File(folder, artifactId + '-' + folder.getName() + ".pom").isFile()) {
+                    versions.add(folder.getName());
+                }
+            }
+        }
+        Collections.sort(versions, VERSION_ORDER);
+        return versions;
+    }
+
+    /**
+     * Stores the versions of an artifact and saves the cache.
+     *
+     * @param key the cache key
+     * @param versions the versions
+     */
+    private void store(final String key, final List<String> versions) {
+        final StringBuilder value = new StringBuilder().append(System.currentTimeMillis()).append(TIME_SEPARATOR);
+        for (int i = 0; i < versions.size(); i++) {
+            value.append(i == 0 ? "" : VERSION_SEPARATOR).append(versions.get(i));
+        }
+        getEntries().setProperty(key, value.toString());
+        try {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            getEntries().store(content, "Versions resolved by the JRebirth Forge plugin");
+            AtomicFileWriter.writeAtomically(this.cacheFile, content.toString("ISO-8859-1"));
+        } catch (final IOException e) {
+            // The versions will be resolved again next time
+        }
+    }
+
+    /**
+     * Gets the cached entries, loading them on first use.
+     *
+     * @return the entries
+     */
+    private Properties getEntries() {
+        if (this.entries == null) {
+            this.entries = new Properties();
+            if (this.cacheFile.isFile()) {
+                try {
+                    final InputStream is = new FileInputStream(this.cacheFile);
+                    try {
+                        this.entries.load(is);
+                    } finally {
+                        is.close();
+                    }
+                } catch (final IOException e) {
+                    // Start again from an empty cache
+                }
+            }
+        }
+        return this.entries;
+    }
+
+    /**
+     * Splits the cached versions.
+     *
+     * @param versions the joined versions
+     * @return the versions
+     */
+    private static List<String> split(final String versions) {
+        return versions.isEmpty() ? new ArrayList<String>() : new ArrayList<String>(Arrays.asList(versions.split(VERSION_SEPARATOR)));
+    }
+}
@@ -1,12 +1,19 @@
 package ${settings.getTopLevelPacakge()};
 
+import java.lang.management.ManagementFactory;
 import java.util.Collections;
 import java.util.List;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+import javafx.util.Duration;
 
 import org.jrebirth.core.application.AbstractApplication;
 import org.jrebirth.core.resource.font.FontItem;
@@ -19,6 +26,9 @@ import org.jrebirth.core.ui.DefaultModel;
  */
 public final class ${settings.getName()} extends AbstractApplication<StackPane> {
 
+    /** The system property printing the startup time and exiting after the given delay in ms, used by the appcds profile. */
+    private static final String STARTUP_EXIT_PROPERTY = "jrebirth.startup.exit";
+
     /**
      * The main method triggered by Java Runtime.
      * 
@@ -51,6 +61,26 @@ public final class ${settings.getName()} extends AbstractApplication<StackPane>
     protected void customizeStage(final Stage stage) {
         stage.setFullScreen(false);
         stage.setResizable(false);
+
+        final Long exitDelay = Long.getLong(STARTUP_EXIT_PROPERTY);
+        if (exitDelay != null) {
+            stage.addEventHandler(WindowEvent.WINDOW_SHOWN, new EventHandler<WindowEvent>() {
+
+                @Override
+                public void handle(final WindowEvent event) {
+                    System.out.println("Started in " + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms");
+                    final PauseTransition exit = new PauseTransition(Duration.millis(exitDelay));
+                    exit.setOnFinished(new EventHandler<ActionEvent>() {
+
+                        @Override
+                        public void handle(final ActionEvent finished) {
+                            Platform.exit();
+                        }
+                    });
+                    exit.play();
+                }
+            });
+        }
     }
 
     /**
@@ -1,5 +1,6 @@
 package org.jrebirth.forge.commands;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -66,6 +67,17 @@ public class ColorAddTest extends AbstractJRebirthPluginTest {
         assertTrue(jInterface.hasField("WINDOW_BORDER"));
     }
 
+    @Test
+    public void testUpdatedVariableKeepsItsPlace() throws Exception {
+        executeColorAddWindowBorderWebCCCCCC();
+        getShell().execute("jrebirth color-add --name windowBackground --value FFFFFF --colorType web");
+        queueInputLines("y");
+        getShell().execute("jrebirth color-add --name windowBorder --value 000000 --colorType web");
+        final JavaInterface jInterface = parseJavaInterface(this.topLevelPackage + CreationType.RESOURCE.getPackageName() + ".", this.projectName + "Colors.java");
+        assertEquals("WINDOW_BORDER", jInterface.getFields().get(0).getName());
+        assertEquals("create(new WebColor(\"000000\"))", jInterface.getField("WINDOW_BORDER").getLiteralInitializer());
+    }
+
     /* *********************************** *************************************** */
 
     private void executeColorAddWindowBorderWebCCCCCC() throws Exception {
@@ -3,10 +3,13 @@ package org.jrebirth.forge.commands;
 import static org.jrebirth.forge.utils.PluginUtils.javafxDependency;
 import static org.jrebirth.forge.utils.PluginUtils.jrebirthCoreDependency;
 import static org.jrebirth.forge.utils.PluginUtils.slf4jDependency;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
+import org.apache.maven.model.Profile;
+import org.jboss.forge.maven.MavenCoreFacet;
 import org.jboss.forge.project.facets.DependencyFacet;
 import org.jboss.forge.project.facets.ResourceFacet;
 import org.jboss.forge.resources.DirectoryResource;
@@ -51,10 +54,27 @@ public class JRebirthPluginSetupTest extends AbstractJRebirthPluginTest {
     }
 
     @Test
-    public void testHasJavaFXDependency() {
+    public void testDeclaresJavaFXPerJdkProfiles() {
         final DependencyFacet dependencyFacet = this.project
                 .getFacet(DependencyFacet.class);
-        assertTrue(dependencyFacet.hasDirectDependency(javafxDependency()));
+        assertFalse(dependencyFacet.hasDirectDependency(javafxDependency()));
+
+        boolean javafxRuntime = false;
+        boolean openjfx = false;
+        for (final Profile profile : this.project.getFacet(MavenCoreFacet.class).getPOM().getProfiles()) {
+            if ("javafx-runtime".equals(profile.getId())) {
+                assertEquals(javafxDependency().getSystemPath(), profile.getActivation().getFile().getExists());
+                assertEquals("jfxrt", profile.getDependencies().get(0).getArtifactId());
+                javafxRuntime = true;
+            } else if ("openjfx".equals(profile.getId())) {
+                assertEquals("[11,)", profile.getActivation().getJdk());
+                assertEquals("javafx-controls", profile.getDependencies().get(0).getArtifactId());
+                assertEquals("javafx.controls,javafx.fxml,javafx.media,javafx.web", profile.getProperties().getProperty("javafx.modules"));
+                openjfx = true;
+            }
+        }
+        assertTrue(javafxRuntime);
+        assertTrue(openjfx);
     }
 
     @Test
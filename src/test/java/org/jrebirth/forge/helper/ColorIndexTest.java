@@ -0,0 +1,97 @@
+package org.jrebirth.forge.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.JavaInterface;
+import org.jrebirth.forge.helper.ColorValue.Type;
+import org.junit.Test;
+
+/**
+ * Test cases for the color index.
+ */
+public class ColorIndexTest {
+
+    @Test
+    public void testSameColorWrittenDifferently() {
+        final int white = 0xFFFFFFFF;
+        assertEquals(white, ColorIndex.toArgb("create(new WebColor(\"FFFFFF\"))").intValue());
+        assertEquals(white, ColorIndex.toArgb("create(new RGB255Color(255, 255, 255))").intValue());
+        assertEquals(white, ColorIndex.toArgb("create(new GrayColor(1.0))").intValue());
+        assertEquals(white, ColorIndex.toArgb("create(new RGB01Color(1.0, 1.0, 1.0))").intValue());
+        assertEquals(white, ColorIndex.toArgb("create(new HSBColor(120.0, 0.0, 1.0))").intValue());
+        assertEquals(0x80FF0000, ColorIndex.toArgb("create(new HSBColor(0.0, 1.0, 1.0,0.5))").intValue());
+        assertEquals(0xFF00FF00, ColorParser.parse(Type.HSB, "120_1_1").toArgb(1.0));
+        assertEquals(0xFFCC11AA, ColorParser.parse(Type.WEB, "CC11AA").toArgb(1.0));
+    }
+
+    @Test
+    public void testPrecomputedWebColor() {
+        assertEquals("create(new WebColor(\"00FF00\"));", ColorParser.parse(Type.HSB, "120_1_1").toWeb().toConstructor(1.0));
+        assertEquals("create(new WebColor(\"808080\",0.5));", ColorParser.parse(Type.GRAY, "0.5").toWeb().toConstructor(0.5));
+        final ColorValue web = ColorParser.parse(Type.WEB, "CC11AA");
+        assertSame(web, web.toWeb());
+
+        final ColorValue rgb = ColorParser.parse(Type.RGB01, "0.2_0.4_0.6");
+        assertEquals(rgb.toArgb(0.5), rgb.toWeb().toArgb(0.5));
+    }
+
+    @Test
+    public void testUnsupportedInitializers() {
+        assertNull(ColorIndex.toArgb("BACKGROUND"));
+        assertNull(ColorIndex.toArgb("create(new CustomColor(1.0))"));
+        assertNull(ColorIndex.toArgb("create(new WebColor(\"FFFFFF\", 1.0, 2.0))"));
+        assertNull(ColorIndex.toArgb(null));
+    }
+
+    @Test
+    public void testDuplicates() {
+        final ColorIndex index = new ColorIndex();
+        assertNull(index.add("BACKGROUND", "create(new WebColor(\"FFFFFF\"))"));
+        assertNull(index.add("BORDER", "create(new WebColor(\"CCCCCC\"))"));
+        assertEquals("BACKGROUND", index.add("WHITE", "create(new GrayColor(1.0))"));
+        assertEquals("BACKGROUND", index.add("TEXT_BACKGROUND", "create(new RGB255Color(255, 255, 255))"));
+        assertNull(index.add("SHADOW", "create(new WebColor(\"FFFFFF\",0.5))"));
+
+        final Map<Integer, List<String>> duplicates = index.getDuplicates();
+        assertEquals(1, duplicates.size());
+        assertEquals(Arrays.asList("BACKGROUND", "WHITE", "TEXT_BACKGROUND"), duplicates.get(0xFFFFFFFF));
+
+        index.remove("BACKGROUND");
+        assertEquals("WHITE", index.find(0xFFFFFFFF));
+
+        // A replaced constant no longer owns its former value
+        assertNull(index.add("WHITE", "create(new WebColor(\"000000\"))"));
+        assertEquals("TEXT_BACKGROUND", index.find(0xFFFFFFFF));
+    }
+
+    @Test
+    public void testMergeDuplicates() {
+        final JavaInterface colors = JavaParser.parse(JavaInterface.class, "public interface SampleColors {\n"
+                + "    ColorItem BACKGROUND = create(new WebColor(\"FFFFFF\"));\n"
+                + "    ColorItem BORDER = create(new WebColor(\"CCCCCC\"));\n"
+                + "    ColorItem WHITE = create(new GrayColor(1.0));\n"
+                + "    ColorItem SHADOW = create(new WebColor(\"FFFFFF\",0.5));\n"
+                + "    ColorItem TEXT_BACKGROUND = create(new RGB255Color(255, 255, 255));\n"
+                + "}\n");
+        assertEquals(2, ColorIndex.of(colors).mergeDuplicates(colors));
+
+        final List<String> names = new ArrayList<String>();
+        for (final Field<JavaInterface> field : colors.getFields()) {
+            names.add(field.getName());
+        }
+        assertEquals(Arrays.asList("BACKGROUND", "BORDER", "WHITE", "SHADOW", "TEXT_BACKGROUND"), names);
+        assertEquals("BACKGROUND", colors.getField("WHITE").getLiteralInitializer());
+        assertEquals("BACKGROUND", colors.getField("TEXT_BACKGROUND").getLiteralInitializer());
+        assertEquals("create(new WebColor(\"FFFFFF\",0.5))", colors.getField("SHADOW").getLiteralInitializer());
+        assertEquals(0, ColorIndex.of(colors).mergeDuplicates(colors));
+    }
+}
@@ -0,0 +1,63 @@
+package org.jrebirth.forge.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.jrebirth.forge.helper.ColorValue.Type;
+import org.junit.Test;
+
+/**
+ * Test cases for the color parser.
+ */
+public class ColorParserTest {
+
+    @Test
+    public void testWeb() {
+        assertEquals("create(new WebColor(\"CC11AA\"));", ColorParser.parse("web", "cc11aa").toConstructor(1.0));
+        assertEquals("create(new WebColor(\"CC11AA\",0.5));", ColorParser.parse("WEB", "CC11AA").toConstructor(0.5));
+        assertEquals(ColorParser.parse(Type.WEB, "CC11AA"), ColorParser.parse(Type.WEB, "cC11aA"));
+        assertNull(ColorParser.parse(Type.WEB, "CC11A"));
+        assertNull(ColorParser.parse(Type.WEB, "CC11AG"));
+    }
+
+    @Test
+    public void testGray() {
+        assertEquals("create(new GrayColor(0.5));", ColorParser.parse(Type.GRAY, "0.5").toConstructor(1.0));
+        assertEquals("create(new GrayColor(1.0));", ColorParser.parse(Type.GRAY, "1").toConstructor(1.0));
+        assertNull(ColorParser.parse(Type.GRAY, "1.1"));
+        assertNull(ColorParser.parse(Type.GRAY, ".5"));
+        assertNull(ColorParser.parse(Type.GRAY, "0.5 "));
+    }
+
+    @Test
+    public void testHsb() {
+        assertEquals("create(new HSBColor(200.0, 0.6, 1.0));", ColorParser.parse(Type.HSB, "200_0.6_1.0").toConstructor(1.0));
+        assertEquals(360.0, ColorParser.parse(Type.HSB, "360.0_0_0").getComponent(0), 0.0);
+        assertNull(ColorParser.parse(Type.HSB, "360.5_0.6_1.0"));
+        assertNull(ColorParser.parse(Type.HSB, "200_1.6_1.0"));
+        assertNull(ColorParser.parse(Type.HSB, "200_0.6"));
+    }
+
+    @Test
+    public void testRgb01() {
+        assertEquals("create(new RGB01Color(0.0, 0.3, 1.0,0.8));", ColorParser.parse(Type.RGB01, "0 _ 0.3_ 1.0").toConstructor(0.8));
+        assertEquals(0.123456789012345678, ColorParser.parse(Type.RGB01, "0.123456789012345678_0_0").getComponent(0), 0.0);
+        assertNull(ColorParser.parse(Type.RGB01, "0_0.3_1.0_1.0"));
+        assertNull(ColorParser.parse(Type.RGB01, "0_0.3.1_1.0"));
+    }
+
+    @Test
+    public void testRgb255() {
+        assertEquals("create(new RGB255Color(100, 45, 200));", ColorParser.parse(Type.RGB255, "100_45_200").toConstructor(1.0));
+        assertEquals(ColorParser.parse(Type.RGB255, "100_45_200"), ColorParser.parse(Type.RGB255, "0100_045_200"));
+        assertNull(ColorParser.parse(Type.RGB255, "256_45_200"));
+        assertNull(ColorParser.parse(Type.RGB255, "100_4.5_200"));
+        assertNull(ColorParser.parse(Type.RGB255, "100__200"));
+    }
+
+    @Test
+    public void testUnknownType() {
+        assertNull(ColorParser.parse("cmyk", "0_0_0_0"));
+        assertNull(ColorParser.parse((String) null, "CC11AA"));
+    }
+}
@@ -0,0 +1,125 @@
+package org.jrebirth.forge.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.junit.Test;
+
+/**
+ * Test cases for the plugin configuration fragments.
+ */
+public class ConfigurationFragmentTest {
+
+    private static Xpp3Dom parse(final String xml) throws Exception {
+        return Xpp3DomBuilder.build(new StringReader(xml));
+    }
+
+    @Test
+    public void testCompilerMatchesParsedXml() throws Exception {
+        assertEquals(parse("<configuration><source>${javaVersion}</source><target>${javaVersion}</target>"
+                + "<encoding>UTF-8</encoding><debug>false</debug><showDeprecation>true</showDeprecation></configuration>"),
+                ConfigurationFragments.COMPILER.toDom());
+    }
+
+    @Test
+    public void testJarMatchesParsedXml() throws Exception {
+        assertEquals(parse("<configuration><archive><manifestEntries><JavaFX-Version>2.0</JavaFX-Version>"
+                + "<Main-Class>${appMainClass}</Main-Class><JavaFX-Application-Class>${appMainClass}</JavaFX-Application-Class>"
+                + "<implementation-version>1.0</implementation-version><JavaFX-Class-Path></JavaFX-Class-Path>"
+                + "</manifestEntries><manifest><addClasspath>true</addClasspath></manifest></archive></configuration>"),
+                ConfigurationFragments.JAR.toDom());
+    }
+
+    @Test
+    public void testWebstartMatchesParsedXml() throws Exception {
+        assertEquals(parse("<configuration><jnlpFiles>${jrebirth.jnlp.filename}</jnlpFiles><excludeTransitive>false</excludeTransitive>"
+                + "<libPath>lib</libPath><resourcesDirectory>${project.basedir}/src/main/jnlp/resources</resourcesDirectory>"
+                + "<codebase>${deployUrl}/${deployPath}</codebase><jnlp><outputFile>${jnlpFilename}</outputFile>"
+                + "<mainClass>${appMainClass}</mainClass><offlineAllowed>true</offlineAllowed></jnlp><sign><keystore></keystore>"
+                + "<keypass></keypass><storepass></storepass><alias></alias><validity>360</validity><dnameCn></dnameCn>"
+                + "<dnameOu></dnameOu><dnameO></dnameO><dnameL></dnameL><dnameSt></dnameSt><dnameC></dnameC><verify>true</verify>"
+                + "<keystoreConfig><delete>true</delete><gen>true</gen></keystoreConfig></sign><pack200>true</pack200>"
+                + "<gzip>true</gzip><outputJarVersions>false</outputJarVersions><install>false</install><verbose>true</verbose>"
+                + "</configuration>"),
+                ConfigurationFragments.WEBSTART.toDom());
+    }
+
+    @Test
+    public void testFragmentsAreNotShared() {
+        final Xpp3Dom first = ConfigurationFragments.get("compiler").toDom();
+        first.getChild("source").setValue("1.8");
+        final Xpp3Dom second = ConfigurationFragments.COMPILER.toDom();
+        assertNotSame(first, second);
+        assertEquals("${javaVersion}", second.getChild("source").getValue());
+    }
+
+    @Test
+    public void testAttributes() throws Exception {
+        assertEquals(parse("<java classname=\"Main\" fork=\"true\"><jvmarg value=\"-Xshare:off\"/></java>"),
+                ConfigurationFragment.builder("java", "classname", "Main", "fork", "true")
+                        .element("jvmarg", "value", "-Xshare:off")
+                        .build().toDom());
+    }
+
+    @Test
+    public void testAppCdsRuns() {
+        final Xpp3Dom target = ConfigurationFragments.APPCDS.toDom().getChild("target");
+        final Xpp3Dom[] runs = target.getChildren("java");
+        assertEquals(4, runs.length);
+        assertEquals("-XX:DumpLoadedClassList=classes.lst", runs[0].getChildren("jvmarg")[1].getAttribute("value"));
+        assertEquals("-Xshare:dump", runs[1].getChildren("jvmarg")[0].getAttribute("value"));
+        assertEquals(ConfigurationFragments.STARTUP_EXIT_PROPERTY, runs[3].getChild("sysproperty").getAttribute("key"));
+        for (final Xpp3Dom run : runs) {
+            assertEquals("${appcds.timeout}", run.getAttribute("timeout"));
+        }
+        assertEquals("${appcds.javafxOptions}", runs[1].getChildren("jvmarg")[3].getAttribute("line"));
+        assertTrue(target.getChildren("echo")[2].getAttribute("message").contains("${appcds.javafxOptions}"));
+        assertEquals("true", runs[0].getAttribute("failonerror"));
+        assertEquals("true", runs[1].getAttribute("failonerror"));
+        assertEquals("false", runs[2].getAttribute("failonerror"));
+        assertEquals("[11,)", ConfigurationFragments.get("appcds.enforcer").toDom().getChild("rules")
+                .getChild("requireJavaVersion").getChild("version").getValue());
+    }
+
+    @Test
+    public void testRuntimeImageLinksJdepsModules() {
+        final Xpp3Dom target = ConfigurationFragments.get("runtime-image").toDom().getChild("target");
+        assertEquals("javafx-*.jar", target.getChild("move").getChild("fileset").getAttribute("includes"));
+        final Xpp3Dom[] tools = target.getChildren("exec");
+        assertEquals(3, tools.length);
+        assertEquals("runtime.modules", tools[0].getAttribute("outputproperty"));
+        assertEquals("${javafx.modules}", tools[0].getChildren("arg")[5].getAttribute("value"));
+        assertEquals("${runtime.modules},${javafx.modules}", tools[1].getChildren("arg")[3].getAttribute("value"));
+        assertEquals("app-image", tools[2].getChildren("arg")[1].getAttribute("value"));
+        assertEquals("[14,)", ConfigurationFragments.get("runtime-image.enforcer").toDom().getChild("rules")
+                .getChild("requireJavaVersion").getChild("version").getValue());
+    }
+
+    @Test
+    public void testShadedJarPutsHotClassesFirst() {
+        final Xpp3Dom target = ConfigurationFragments.get("shaded.order").toDom().getChild("target");
+        assertEquals("${shade.javafxOptions}", target.getChild("java").getChildren("jvmarg")[0].getAttribute("line"));
+        assertEquals("${shade.directory}/hot-classes.txt", target.getChild("fail").getChild("condition").getChild("length").getAttribute("file"));
+        final Xpp3Dom jar = target.getChild("jar");
+        assertEquals("true", jar.getAttribute("index"));
+        final Xpp3Dom[] filesets = jar.getChildren("fileset");
+        assertEquals("${shade.directory}/hot-classes.txt", filesets[0].getAttribute("includesfile"));
+        assertEquals("${shade.directory}/hot-classes.txt", filesets[1].getAttribute("excludesfile"));
+        assertEquals("true", ConfigurationFragments.SHADE.toDom().getChild("minimizeJar").getValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnclosedElement() {
+        ConfigurationFragment.configuration().begin("archive").build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFragment() {
+        ConfigurationFragments.get("missing");
+    }
+}
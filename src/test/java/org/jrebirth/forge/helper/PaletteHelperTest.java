@@ -0,0 +1,92 @@
+package org.jrebirth.forge.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jrebirth.forge.helper.PaletteHelper.Entry;
+import org.jrebirth.forge.helper.PaletteHelper.Format;
+import org.jrebirth.forge.helper.PaletteHelper.PaletteColor;
+import org.junit.Test;
+
+/**
+ * Test cases for the palette import.
+ */
+public class PaletteHelperTest {
+
+    private static List<PaletteColor> importColors(final String palette, final Format format) throws Exception {
+        return PaletteHelper.validate(PaletteHelper.read(new StringReader(palette), format));
+    }
+
+    @Test
+    public void testCss() throws Exception {
+        final List<PaletteColor> colors = importColors(":root {\n  /* --not-a-color: #000; */\n"
+                + "  --window-background: #CCCCCC;\n  --shadow: rgba(0, 0, 0, 0.5); --accent: #f0a;\n"
+                + "  --overlay: #00000080;\n  --spacing: 4px;\n}\n", Format.CSS);
+        assertEquals(5, colors.size());
+        assertEquals("WINDOW_BACKGROUND", colors.get(0).constantName);
+        assertEquals("create(new WebColor(\"CCCCCC\"));", colors.get(0).color.toConstructor(colors.get(0).opacity));
+        assertEquals("create(new RGB255Color(0, 0, 0,0.5));", colors.get(1).color.toConstructor(colors.get(1).opacity));
+        assertEquals("create(new WebColor(\"FF00AA\"));", colors.get(2).color.toConstructor(colors.get(2).opacity));
+        assertEquals(0.502, colors.get(3).opacity, 0.0);
+        assertNull(colors.get(4).color);
+        assertEquals(6, colors.get(4).line);
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        final List<PaletteColor> colors = importColors("[\n{\"name\" : \"windowBackground\", \"value\" : \"#CCCCCC\"},\n"
+                + "{\"name\" : \"shadow\", \"type\" : \"gray\", \"value\" : \"0.2\", \"opacity\" : 0.5},\n{\"name\" : }\n]\n", Format.JSON);
+        assertEquals(3, colors.size());
+        assertEquals("WINDOW_BACKGROUND", colors.get(0).constantName);
+        assertEquals("create(new GrayColor(0.2,0.5));", colors.get(1).color.toConstructor(colors.get(1).opacity));
+        assertNotNull(colors.get(2).error);
+    }
+
+    @Test
+    public void testJsonTruncatedUnicodeEscape() throws Exception {
+        final List<PaletteColor> colors = importColors("[\n{\"name\" : \"shadow\\u12\"\n"
+                + "{\"name\" : \"windowBackground\", \"value\" : \"#CCCCCC\"}\n]\n", Format.JSON);
+        assertEquals(2, colors.size());
+        assertNotNull(colors.get(0).error);
+        assertEquals(2, colors.get(0).line);
+        assertEquals("WINDOW_BACKGROUND", colors.get(1).constantName);
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        final List<PaletteColor> colors = importColors("name,type,value,opacity\n# brand colors\n"
+                + "primary,rgb255,\"100_45_200\",0.9\nsecondary,CC11AA\ntertiary,hsb,400_0_0\nquaternary,web,CC11AA,2\n", Format.CSV);
+        assertEquals(4, colors.size());
+        assertEquals("create(new RGB255Color(100, 45, 200,0.9));", colors.get(0).color.toConstructor(colors.get(0).opacity));
+        assertEquals("SECONDARY", colors.get(1).constantName);
+        assertNotNull(colors.get(2).error);
+        assertNotNull(colors.get(3).error);
+    }
+
+    @Test
+    public void testParallelValidationKeepsOrder() throws Exception {
+        final List<Entry> entries = new ArrayList<Entry>();
+        for (int i = 0; i < 3000; i++) {
+            entries.add(new Entry(i + 1, "color" + i, "rgb255", i % 256 + "_0_0", null));
+        }
+        final List<PaletteColor> colors = PaletteHelper.validate(entries);
+        assertEquals(3000, colors.size());
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(i + 1, colors.get(i).line);
+        }
+    }
+
+    @Test
+    public void testConstantName() {
+        assertEquals("WINDOW_BACKGROUND", PaletteHelper.constantName("windowBackground"));
+        assertEquals("PRIMARY_500", PaletteHelper.constantName("primary-500"));
+        assertNull(PaletteHelper.constantName("500-primary"));
+        assertEquals(Format.CSV, Format.fromFileName("brand.palette.csv"));
+        assertNull(Format.fromFileName("palette"));
+    }
+}
@@ -0,0 +1,65 @@
+package org.jrebirth.forge.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the scaffold manifest parsing.
+ */
+public class ScaffoldHelperTest {
+
+    @Test
+    public void testPropertiesEntry() {
+        final Map<String, String> entry = ScaffoldHelper.parseEntry("ui = Intro, controller = true, bean=false");
+        assertEquals("ui", entry.get(ScaffoldHelper.KIND));
+        assertEquals("Intro", entry.get(ScaffoldHelper.NAME));
+        assertEquals("true", entry.get("controller"));
+        assertEquals("false", entry.get("bean"));
+    }
+
+    @Test
+    public void testJsonEntry() {
+        final Map<String, String> entry = ScaffoldHelper.parseEntry("  {\"kind\" : \"command\", \"name\" : \"Save\\u0041ll\", \"type\" : \"DefaultPoolCommand\"},");
+        assertEquals("command", entry.get(ScaffoldHelper.KIND));
+        assertEquals("SaveAll", entry.get(ScaffoldHelper.NAME));
+        assertEquals("DefaultPoolCommand", entry.get("type"));
+    }
+
+    @Test
+    public void testJsonBooleanEntry() {
+        final Map<String, String> entry = ScaffoldHelper.parseEntry("{\"kind\":\"ui\",\"name\":\"Login\",\"fxml\":true}");
+        assertEquals("true", entry.get("fxml"));
+    }
+
+    @Test
+    public void testIgnoredLines() {
+        assertNull(ScaffoldHelper.parseEntry(""));
+        assertNull(ScaffoldHelper.parseEntry("# a comment"));
+        assertNull(ScaffoldHelper.parseEntry("["));
+        assertNull(ScaffoldHelper.parseEntry("]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedPropertiesEntry() {
+        ScaffoldHelper.parseEntry("ui Intro");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedJsonEntry() {
+        ScaffoldHelper.parseEntry("{\"kind\" \"ui\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedUnicodeEscape() {
+        ScaffoldHelper.parseEntry("{\"kind\":\"ui\",\"name\":\"\\u12\"");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidUnicodeEscape() {
+        ScaffoldHelper.parseEntry("{\"kind\":\"ui\",\"name\":\"\\u+1A2\"}");
+    }
+}
@@ -0,0 +1,74 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for the atomic file writer.
+ */
+public class AtomicFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteUtf8() throws Exception {
+        final File target = new File(this.folder.getRoot(), "ui/fxml/Intro.fxml");
+        final String content = "<Label text=\"Déjà vu ✓\"/>";
+        AtomicFileWriter.writeAtomically(target, content);
+        assertArrayEquals(content.getBytes(Charset.forName("UTF-8")), Files.readAllBytes(target.toPath()));
+        assertEquals(1, target.getParentFile().list().length);
+    }
+
+    @Test
+    public void testWriteLargerThanBuffer() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 200 * 1024) {
+            sb.append("color.é=#FFFFFF\n");
+        }
+        final File target = new File(this.folder.getRoot(), "large.properties");
+        AtomicFileWriter.writeAtomically(target, sb);
+        assertEquals(sb.toString(), new String(Files.readAllBytes(target.toPath()), Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void testPermissions() throws Exception {
+        if (!this.folder.getRoot().toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        final File probe = this.folder.newFile("probe");
+        final File created = new File(this.folder.getRoot(), "Created.java");
+        AtomicFileWriter.writeAtomically(created, "class Created {}");
+        assertEquals(Files.getPosixFilePermissions(probe.toPath()), Files.getPosixFilePermissions(created.toPath()));
+
+        final File rewritten = this.folder.newFile("run.sh");
+        Files.setPosixFilePermissions(rewritten.toPath(), PosixFilePermissions.fromString("rwxr-x---"));
+        AtomicFileWriter.writeAtomically(rewritten, "exit 0");
+        assertEquals(PosixFilePermissions.fromString("rwxr-x---"), Files.getPosixFilePermissions(rewritten.toPath()));
+    }
+
+    @Test
+    public void testAbortKeepsTarget() throws Exception {
+        final File target = this.folder.newFile("jrebirth.properties");
+        Files.write(target.toPath(), "key=old".getBytes(Charset.forName("UTF-8")));
+
+        final AtomicFileWriter writer = new AtomicFileWriter(true);
+        writer.write(target, "key=new");
+        writer.write(new File(this.folder.getRoot(), "Other.fxml"), "<VBox/>");
+        writer.abort();
+
+        assertEquals("key=old", new String(Files.readAllBytes(target.toPath()), Charset.forName("UTF-8")));
+        assertFalse(new File(this.folder.getRoot(), "Other.fxml").exists());
+        assertEquals(1, this.folder.getRoot().list().length);
+    }
+}
@@ -0,0 +1,169 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.jboss.forge.project.Project;
+import org.jboss.forge.resources.DirectoryResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for the generation batch.
+ */
+public class GenerationBatchTest {
+
+    private static final String TEMPLATE = "TemplateFXML.ftl";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    private Project project;
+
+    @Before
+    public void setUp() {
+        this.root = this.folder.getRoot();
+        final DirectoryResource rootResource = new DirectoryResource(null, this.root);
+        this.project = (Project) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Project.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getProjectRoot".equals(method.getName())) {
+                    return rootResource;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static TemplateSettings settings(final String name) {
+        final TemplateSettings settings = new TemplateSettings(name, "com.example.ui");
+        settings.setTopLevelPacakge("com.example.ui");
+        settings.setControllerCreate(true);
+        return settings;
+    }
+
+    private File file(final String path) {
+        return new File(this.root, path);
+    }
+
+    @Test
+    public void testConflictsAgainstSnapshot() throws Exception {
+        final File existing = this.folder.newFile("Intro.fxml");
+        final File created = file("Outro.fxml");
+        final GenerationBatch batch = new GenerationBatch(this.project)
+                .addResource(existing, TEMPLATE, settings("Intro"))
+                .addResource(created, TEMPLATE, settings("Outro"));
+        assertEquals(Arrays.asList(existing), batch.getConflicts());
+
+        // The folder is listed once, files created after the first check are not seen
+        assertTrue(created.createNewFile());
+        assertEquals(Arrays.asList(existing), batch.getConflicts());
+    }
+
+    @Test
+    public void testDuplicateTargets() throws Exception {
+        final File target = file("ui/Intro.fxml");
+        final GenerationBatch batch = new GenerationBatch(this.project)
+                .addResource(target, TEMPLATE, settings("Intro"))
+                .addResource(target, TEMPLATE, settings("Intro"));
+        assertEquals(Arrays.asList(target), batch.getConflicts());
+        try {
+            batch.commit();
+            fail("A file planned twice must not be written");
+        } catch (final IOException e) {
+            assertFalse(target.exists());
+        }
+        assertEquals(Arrays.asList(target), batch.dropConflicts());
+        assertEquals(Arrays.asList(target), batch.commit());
+    }
+
+    @Test
+    public void testRollback() throws Exception {
+        final File sourceFolder = this.folder.newFolder("src", "main", "java");
+        final File regenerated = file("Intro.fxml");
+        final GenerationManifest manifest = GenerationManifest.load(this.project);
+        new GenerationBatch(this.project).setManifest(manifest).addResource(regenerated, TEMPLATE, settings("Intro")).commit();
+        final byte[] previousContent = Files.readAllBytes(regenerated.toPath());
+
+        final File created = file("ui/fxml/Outro.fxml");
+        final File blocked = file("Blocked.fxml");
+        final GenerationBatch batch = new GenerationBatch(this.project)
+                .setManifest(manifest)
+                .setIncremental(true)
+                .addPackages(sourceFolder, "com.example.ui")
+                .addResource(regenerated, TEMPLATE, settings("Start"))
+                .addResource(created, TEMPLATE, settings("Outro"))
+                .addResource(blocked, TEMPLATE, settings("Blocked"));
+        assertTrue(batch.getConflicts().isEmpty());
+
+        // A folder appearing after the check makes the last rename fail
+        assertTrue(new File(blocked, "content").mkdirs());
+        try {
+            batch.commit();
+            fail("A file cannot replace a folder");
+        } catch (final IOException e) {
+            assertArrayEquals(previousContent, Files.readAllBytes(regenerated.toPath()));
+            assertFalse(created.exists());
+            assertFalse(file("ui").exists());
+            assertFalse(new File(sourceFolder, "com").exists());
+            assertTrue(sourceFolder.isDirectory());
+        }
+    }
+
+    @Test
+    public void testIncrementalSkipsUpToDate() throws Exception {
+        final File target = file("Intro.fxml");
+        new GenerationBatch(this.project).addResource(target, TEMPLATE, settings("Intro")).commit();
+        final long lastModified = target.lastModified();
+
+        final GenerationBatch batch = new GenerationBatch(this.project).setIncremental(true).addResource(target, TEMPLATE, settings("Intro"));
+        assertEquals(1, batch.plan().getCount(GenerationPlan.Status.SKIP));
+        assertTrue(batch.commit().isEmpty());
+        assertEquals(1, batch.getSkipped());
+        assertEquals(lastModified, target.lastModified());
+    }
+
+    @Test
+    public void testIncrementalRegeneratesStale() throws Exception {
+        final File target = file("Intro.fxml");
+        new GenerationBatch(this.project).addResource(target, TEMPLATE, settings("Intro")).commit();
+
+        final GenerationBatch batch = new GenerationBatch(this.project).setIncremental(true).addResource(target, TEMPLATE, settings("Start"));
+        assertEquals(1, batch.plan().getCount(GenerationPlan.Status.REGENERATE));
+        assertEquals(Arrays.asList(target), batch.commit());
+        assertEquals(0, batch.getSkipped());
+        assertTrue(GenerationManifest.load(this.project).isUpToDate(target, TEMPLATE, settings("Start")));
+    }
+
+    @Test
+    public void testIncrementalReportsEditedFile() throws Exception {
+        final File target = file("Intro.fxml");
+        new GenerationBatch(this.project).addResource(target, TEMPLATE, settings("Intro")).commit();
+        Files.write(target.toPath(), "<Group/>".getBytes("UTF-8"));
+
+        final GenerationBatch batch = new GenerationBatch(this.project).setIncremental(true).addResource(target, TEMPLATE, settings("Intro"));
+        assertEquals(1, batch.plan().getCount(GenerationPlan.Status.CONFLICT));
+        try {
+            batch.commit();
+            fail("A file edited by hand must not be overwritten");
+        } catch (final IOException e) {
+            assertEquals("<Group/>", new String(Files.readAllBytes(target.toPath()), "UTF-8"));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the generation plan.
+ */
+public class GenerationPlanTest {
+
+    private final File root = new File("project").getAbsoluteFile();
+
+    @Test
+    public void testEmptyPlan() {
+        final GenerationPlan plan = new GenerationPlan(this.root);
+        assertFalse(plan.hasConflicts());
+        assertEquals("{\n  \"packages\" : [],\n  \"packageConflicts\" : [],\n  \"files\" : [],\n"
+                + "  \"summary\" : { \"create\" : 0, \"regenerate\" : 0, \"skip\" : 0, \"conflict\" : 0, \"conflicts\" : false }\n}",
+                plan.toJson());
+    }
+
+    @Test
+    public void testRelativePaths() {
+        final GenerationPlan plan = new GenerationPlan(this.root);
+        plan.addPackage(new File(this.root, "src/main/java/com/example/ui"));
+        plan.addFile(new File(this.root, "src/main/java/com/example/ui/IntroModel.java"), "TemplateModel.ftl", GenerationPlan.Status.CREATE);
+        final String json = plan.toJson();
+        assertTrue(json.contains("\"packages\" : [ \"src/main/java/com/example/ui\" ]"));
+        assertTrue(json.contains("{ \"path\" : \"src/main/java/com/example/ui/IntroModel.java\", \"template\" : \"TemplateModel.ftl\", \"status\" : \"create\" }"));
+        assertEquals(1, plan.getCount(GenerationPlan.Status.CREATE));
+    }
+
+    @Test
+    public void testConflicts() {
+        final GenerationPlan plan = new GenerationPlan(this.root);
+        plan.addPackageConflict(new File(this.root, "src/main/java/com/example/ui/intro"));
+        assertTrue(plan.hasConflicts());
+
+        final GenerationPlan filePlan = new GenerationPlan(this.root);
+        filePlan.addFile(new File(this.root, "Intro.fxml"), "TemplateFXML.ftl", GenerationPlan.Status.CONFLICT);
+        assertTrue(filePlan.hasConflicts());
+        assertTrue(filePlan.toJson().contains("\"conflicts\" : true"));
+    }
+}
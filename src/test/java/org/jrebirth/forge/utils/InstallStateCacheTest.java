@@ -0,0 +1,77 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the install state cache.
+ */
+public class InstallStateCacheTest {
+
+    private final InstallStateCache cache = new InstallStateCache();
+
+    private File pom;
+
+    @Before
+    public void setUp() throws IOException {
+        this.pom = File.createTempFile("pom", ".xml");
+        write("<project>one</project>");
+    }
+
+    @After
+    public void tearDown() {
+        this.pom.delete();
+    }
+
+    private void write(final String content) throws IOException {
+        Files.write(this.pom.toPath(), content.getBytes(Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void testUnchangedPomIsHit() {
+        assertNull(this.cache.get(this.pom));
+        this.cache.put(this.pom, true);
+        assertTrue(this.cache.get(this.pom));
+        assertTrue(this.cache.get(this.pom));
+        assertEquals(2, this.cache.getHits());
+        assertEquals(1, this.cache.getMisses());
+    }
+
+    @Test
+    public void testTouchedPomIsCheckedByHash() {
+        this.cache.put(this.pom, true);
+        this.pom.setLastModified(this.pom.lastModified() - 10000);
+        assertTrue(this.cache.get(this.pom));
+        assertEquals(1, this.cache.getHashHits());
+        assertTrue(this.cache.get(this.pom));
+        assertEquals(1, this.cache.getHashHits());
+    }
+
+    @Test
+    public void testChangedPomIsMissed() throws IOException {
+        this.cache.put(this.pom, true);
+        final long lastModified = this.pom.lastModified();
+        write("<project>two</project>");
+        this.pom.setLastModified(lastModified - 10000);
+        assertNull(this.cache.get(this.pom));
+        assertNull(this.cache.get(this.pom));
+        assertEquals(2, this.cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+        this.cache.put(this.pom, false);
+        this.cache.invalidate(this.pom);
+        assertNull(this.cache.get(this.pom));
+    }
+}
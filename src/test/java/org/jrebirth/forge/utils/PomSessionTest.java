@@ -0,0 +1,111 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.Profile;
+import org.jboss.forge.project.dependencies.DependencyBuilder;
+import org.junit.Test;
+
+/**
+ * Test cases for the POM editing session.
+ */
+public class PomSessionTest {
+
+    private final Model model = new Model();
+
+    private final PomSession session = new PomSession(null, this.model);
+
+    private static DependencyBuilder core(final String version) {
+        return DependencyBuilder.create().setGroupId("org.jrebirth").setArtifactId("core").setVersion(version);
+    }
+
+    private static Plugin plugin(final String artifactId) {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId(artifactId);
+        return plugin;
+    }
+
+    @Test
+    public void testUnchangedModelIsNotWritten() {
+        this.session.addRepository("jrebirth", "http://repo.jrebirth.org/libs-release");
+        this.session.addDependency(core("7.0.0"));
+        this.session.setProperty("javaVersion", "1.7");
+        assertTrue(this.session.commit());
+
+        assertFalse(this.session.addRepository("other", "http://repo.jrebirth.org/libs-release"));
+        assertFalse(this.session.addDependency(core("7.0.0")));
+        assertFalse(this.session.setProperty("javaVersion", "1.7"));
+        assertFalse(this.session.commit());
+    }
+
+    @Test
+    public void testDependencyIsUpdatedInPlace() {
+        this.session.addDependency(core("7.0.0"));
+        assertTrue(this.session.addDependency(core("7.1.0")));
+        assertEquals(1, this.model.getDependencies().size());
+        assertEquals("7.1.0", this.model.getDependencies().get(0).getVersion());
+        assertTrue(this.session.hasDependency(core(null)));
+    }
+
+    @Test
+    public void testRemoveDependency() {
+        assertFalse(this.session.removeDependency(core(null)));
+        assertFalse(this.session.isDirty());
+        this.session.addDependency(core("7.0.0"));
+        assertTrue(this.session.removeDependency(core(null)));
+        assertTrue(this.model.getDependencies().isEmpty());
+    }
+
+    @Test
+    public void testRemoveSameDependency() {
+        this.session.addDependency(core("7.1.0"));
+        assertFalse(this.session.removeSameDependency(core("7.0.0")));
+        assertEquals(1, this.model.getDependencies().size());
+        assertTrue(this.session.removeSameDependency(core("7.1.0")));
+        assertTrue(this.model.getDependencies().isEmpty());
+    }
+
+    @Test
+    public void testDeclaredPluginIsKept() {
+        final Plugin declared = plugin("maven-jar-plugin");
+        declared.setVersion("2.4");
+        declared.setGroupId(null);
+        final Build build = new Build();
+        build.addPlugin(declared);
+        this.model.setBuild(build);
+
+        assertFalse(this.session.addPlugin(plugin("maven-jar-plugin")));
+        assertTrue(this.session.addPlugin(plugin("maven-compiler-plugin")));
+        assertEquals(2, this.model.getBuild().getPlugins().size());
+        assertEquals("2.4", this.model.getBuild().getPlugins().get(0).getVersion());
+    }
+
+    @Test
+    public void testDeclaredProfileIsKept() {
+        final Profile profile = new Profile();
+        profile.setId("appcds");
+        assertTrue(this.session.addProfile(profile));
+        this.session.commit();
+
+        final Profile other = new Profile();
+        other.setId("appcds");
+        assertFalse(this.session.addProfile(other));
+        assertFalse(this.session.isDirty());
+        assertEquals(1, this.model.getProfiles().size());
+    }
+
+    @Test
+    public void testRemoveRepository() {
+        assertFalse(this.session.removeRepository("http://repo.jrebirth.org/libs-snapshot"));
+        assertFalse(this.session.isDirty());
+        this.session.addRepository("snapshot", "http://repo.jrebirth.org/libs-snapshot");
+        assertTrue(this.session.removeRepository("http://repo.jrebirth.org/libs-snapshot"));
+        assertTrue(this.model.getRepositories().isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the render engine.
+ */
+public class RenderEngineTest {
+
+    private static final int TASKS = 4;
+
+    private final RenderEngine engine = new RenderEngine(TASKS);
+
+    private final List<Integer> completions = Collections.synchronizedList(new ArrayList<Integer>());
+
+    /**
+     * Builds tasks finishing in reverse order: each task waits for the next one to finish.
+     */
+    private List<Callable<String>> reverseTasks(final Exception... failures) {
+        final List<CountDownLatch> done = new ArrayList<CountDownLatch>();
+        for (int i = 0; i <= TASKS; i++) {
+            done.add(new CountDownLatch(i == TASKS ? 0 : 1));
+        }
+        final List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+        for (int i = 0; i < TASKS; i++) {
+            final int index = i;
+            tasks.add(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    try {
+                        assertTrue(done.get(index + 1).await(10, TimeUnit.SECONDS));
+                        RenderEngineTest.this.completions.add(index);
+                        if (index < failures.length && failures[index] != null) {
+                            throw failures[index];
+                        }
+                        return "task" + index;
+                    } finally {
+                        done.get(index).countDown();
+                    }
+                }
+            });
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testResultsInTaskOrder() throws Exception {
+        assertEquals(Arrays.asList("task0", "task1", "task2", "task3"), this.engine.invokeAll(reverseTasks()));
+        assertEquals(Arrays.asList(3, 2, 1, 0), this.completions);
+    }
+
+    @Test
+    public void testFailuresAggregated() throws Exception {
+        final Exception first = new IllegalStateException("Intro.fxml");
+        final Exception second = new IllegalStateException("Outro.fxml");
+        try {
+            this.engine.invokeAll(reverseTasks(null, first, null, second));
+            fail("Both failures must be reported");
+        } catch (final GenerationException e) {
+            assertEquals(Arrays.asList(3, 2, 1, 0), this.completions);
+            assertSame(first, e.getCause());
+            assertEquals(1, e.getSuppressed().length);
+            assertSame(second, e.getSuppressed()[0]);
+            assertTrue(e.getMessage().startsWith("2 "));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.jboss.forge.parser.java.JavaInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the resource model cache.
+ */
+public class ResourceModelCacheTest {
+
+    private final ResourceModelCache cache = new ResourceModelCache();
+
+    private File colors;
+
+    @Before
+    public void setUp() throws IOException {
+        this.colors = File.createTempFile("SampleColors", ".java");
+        write("public interface SampleColors {\n}\n");
+    }
+
+    @After
+    public void tearDown() {
+        this.colors.delete();
+    }
+
+    private void write(final String content) throws IOException {
+        Files.write(this.colors.toPath(), content.getBytes(Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void testUnchangedFileIsParsedOnce() throws IOException {
+        final JavaInterface model = this.cache.get(this.colors, JavaInterface.class);
+        assertSame(model, this.cache.get(this.colors, JavaInterface.class));
+        assertEquals(1, this.cache.getMisses());
+        assertEquals(1, this.cache.getHits());
+    }
+
+    @Test
+    public void testTouchedFileIsCheckedByHash() throws IOException {
+        final JavaInterface model = this.cache.get(this.colors, JavaInterface.class);
+        assertTrue(this.colors.setLastModified(this.colors.lastModified() - 10000));
+        assertSame(model, this.cache.get(this.colors, JavaInterface.class));
+        assertEquals(1, this.cache.getHashHits());
+    }
+
+    @Test
+    public void testChangedFileIsParsedAgain() throws IOException {
+        final JavaInterface model = this.cache.get(this.colors, JavaInterface.class);
+        write("public interface SampleColors {\n  String NAME = \"x\";\n}\n");
+        final JavaInterface changed = this.cache.get(this.colors, JavaInterface.class);
+        assertNotSame(model, changed);
+        assertTrue(changed.hasField("NAME"));
+        assertEquals(2, this.cache.getMisses());
+    }
+
+    @Test
+    public void testOldFileIsNotHashed() throws IOException {
+        assertTrue(this.colors.setLastModified(System.currentTimeMillis() - 10000));
+        final JavaInterface model = this.cache.get(this.colors, JavaInterface.class);
+        assertSame(model, this.cache.get(this.colors, JavaInterface.class));
+        assertEquals(1, this.cache.getHits());
+        assertEquals(0, this.cache.getHashHits());
+    }
+
+    @Test
+    public void testSameSizeEditInSameTickIsParsedAgain() throws IOException {
+        final JavaInterface model = this.cache.get(this.colors, JavaInterface.class);
+        final long lastModified = this.colors.lastModified();
+        write("public interface SampleImages {\n}\n");
+        assertTrue(this.colors.setLastModified(lastModified));
+        final JavaInterface changed = this.cache.get(this.colors, JavaInterface.class);
+        assertNotSame(model, changed);
+        assertEquals("SampleImages", changed.getName());
+        assertEquals(2, this.cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        final JavaInterface model = this.cache.get(this.colors, JavaInterface.class);
+        this.cache.invalidate(this.colors);
+        assertNotSame(model, this.cache.get(this.colors, JavaInterface.class));
+    }
+}
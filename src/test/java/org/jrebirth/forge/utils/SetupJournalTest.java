@@ -0,0 +1,107 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the setup journal.
+ */
+public class SetupJournalTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        this.root = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.root);
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File write(final String path, final String content) throws IOException {
+        final File file = new File(this.root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(Charset.forName("UTF-8")));
+        return file;
+    }
+
+    @Test
+    public void testDoneStepsAreSkippedAfterReopening() throws IOException {
+        final File app = write("src/main/java/App.java", "class App {}");
+        final File folder = new File(this.root, "src/main/resources/fonts");
+        folder.mkdirs();
+
+        final SetupJournal journal = SetupJournal.open(this.root);
+        journal.setComplete(false);
+        journal.markDone("main-app", app);
+        journal.markDone("resource-folders", folder);
+        journal.markFailed("jnlp");
+        journal.save();
+        assertTrue(new File(this.root, SetupJournal.JOURNAL_PATH).isFile());
+
+        final SetupJournal reopened = SetupJournal.open(this.root);
+        assertFalse(reopened.isComplete());
+        assertTrue(reopened.isDone("main-app", true));
+        assertTrue(reopened.isDone("resource-folders", true));
+        assertFalse(reopened.isDone("jnlp", true));
+        assertFalse(reopened.isDone("properties", true));
+        assertEquals(Arrays.asList("main-app", "resource-folders"), reopened.getSkipped());
+    }
+
+    @Test
+    public void testMissingResultRunsAgain() throws IOException {
+        final File app = write("App.java", "class App {}");
+        final SetupJournal journal = SetupJournal.open(this.root);
+        journal.markDone("main-app", app);
+
+        app.delete();
+        assertFalse(journal.isDone("main-app", true));
+    }
+
+    @Test
+    public void testChangedResult() throws IOException {
+        final File pom = write("pom.xml", "<project/>");
+        final SetupJournal journal = SetupJournal.open(this.root);
+        journal.markDone("pom", pom);
+
+        // Same content saved again
+        assertTrue(pom.setLastModified(pom.lastModified() - 10000));
+        assertTrue(journal.isDone("pom", false));
+
+        write("pom.xml", "<project><modules/></project>");
+        assertFalse(journal.isDone("pom", false));
+        assertTrue(journal.isDone("pom", true));
+    }
+
+    @Test
+    public void testProjectWithoutJournalIsComplete() throws IOException {
+        final SetupJournal journal = SetupJournal.open(this.root);
+        assertTrue(journal.isComplete());
+
+        journal.save();
+        assertFalse(new File(this.root, SetupJournal.JOURNAL_PATH).exists());
+    }
+}
@@ -0,0 +1,55 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.jrebirth.forge.utils.StageMetrics.Stage;
+import org.junit.Test;
+
+/**
+ * Test cases for the stage metrics.
+ */
+public class StageMetricsTest {
+
+    private final StageMetrics metrics = new StageMetrics();
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, StageMetrics.bucket(0));
+        assertEquals(0, StageMetrics.bucket(1000));
+        assertEquals(1, StageMetrics.bucket(1001));
+        assertEquals(2, StageMetrics.bucket(4000));
+        assertEquals(10, StageMetrics.bucket(1024000));
+        assertEquals(StageMetrics.BUCKETS - 1, StageMetrics.bucket(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void testRecord() {
+        final long now = System.nanoTime();
+        this.metrics.record(Stage.FILE_WRITE, now, 120);
+        this.metrics.record(Stage.FILE_WRITE, now, 80);
+        assertEquals(2, this.metrics.getCount(Stage.FILE_WRITE));
+        assertEquals(200, this.metrics.getSize(Stage.FILE_WRITE));
+        assertEquals(0, this.metrics.getCount(Stage.POM_WRITE));
+
+        long bucketed = 0;
+        for (int i = 0; i < StageMetrics.BUCKETS; i++) {
+            bucketed += this.metrics.getBucketCount(Stage.FILE_WRITE, i);
+        }
+        assertEquals(2, bucketed);
+    }
+
+    @Test
+    public void testReportAndReset() {
+        assertTrue(this.metrics.getReport().isEmpty());
+        this.metrics.record(Stage.TEMPLATE_RENDER, System.nanoTime(), 10);
+        final List<String> report = this.metrics.getReport();
+        assertEquals(2, report.size());
+        assertTrue(report.get(0).startsWith("template-render: 1 calls"));
+
+        this.metrics.reset();
+        assertTrue(this.metrics.getReport().isEmpty());
+    }
+}
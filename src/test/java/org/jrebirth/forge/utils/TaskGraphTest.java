@@ -0,0 +1,137 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the task graph.
+ */
+public class TaskGraphTest {
+
+    private final RenderEngine engine = new RenderEngine(4);
+
+    private final List<String> order = new CopyOnWriteArrayList<String>();
+
+    private TaskGraph.Step step(final String name, final long millis) {
+        return new TaskGraph.Step() {
+
+            @Override
+            public void run() throws InterruptedException {
+                Thread.sleep(millis);
+                TaskGraphTest.this.order.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void testDependenciesAndCriticalPath() throws Exception {
+        final TaskGraph.Report report = new TaskGraph()
+                .add("a", step("a", 50))
+                .add("b", step("b", 10), "a")
+                .add("c", step("c", 5))
+                .add("d", step("d", 10), "b", "c")
+                .run(this.engine);
+
+        assertTrue(this.order.indexOf("a") < this.order.indexOf("b"));
+        assertTrue(this.order.indexOf("b") < this.order.indexOf("d"));
+        assertTrue(this.order.indexOf("c") < this.order.indexOf("d"));
+        assertEquals(Arrays.asList("a", "b", "d"), report.getCriticalPath());
+        assertTrue(report.getCriticalPathMillis() <= report.getTotalMillis());
+    }
+
+    @Test
+    public void testSerialStepsRunOnCallingThread() throws Exception {
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean overlap = new AtomicBoolean();
+        final AtomicBoolean otherThread = new AtomicBoolean();
+        final TaskGraph graph = new TaskGraph();
+        for (int i = 0; i < 6; i++) {
+            graph.addSerial("pom" + i, new TaskGraph.Step() {
+
+                @Override
+                public void run() throws InterruptedException {
+                    if (running.incrementAndGet() > 1) {
+                        overlap.set(true);
+                    }
+                    if (Thread.currentThread() != caller) {
+                        otherThread.set(true);
+                    }
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                }
+            });
+        }
+        final TaskGraph.Report report = graph.run(this.engine);
+        assertFalse(overlap.get());
+        assertFalse(otherThread.get());
+        // Serial steps wait for each other, so they all are on the critical path
+        assertEquals(6, report.getCriticalPath().size());
+    }
+
+    @Test
+    public void testConcurrentWithSerialSteps() throws Exception {
+        final CountDownLatch rendered = new CountDownLatch(1);
+        final TaskGraph.Report report = new TaskGraph()
+                .add("render", new TaskGraph.Step() {
+
+                    @Override
+                    public void run() throws InterruptedException {
+                        Thread.sleep(30);
+                        rendered.countDown();
+                    }
+                })
+                .addSerial("pom", new TaskGraph.Step() {
+
+                    @Override
+                    public void run() throws InterruptedException {
+                        // Only returns if the rendering runs at the same time
+                        assertTrue(rendered.await(10, TimeUnit.SECONDS));
+                    }
+                })
+                .addSerial("write", step("write", 1), "render")
+                .run(this.engine);
+        assertEquals(Arrays.asList("write"), this.order);
+        assertEquals("write", report.getCriticalPath().get(report.getCriticalPath().size() - 1));
+    }
+
+    @Test
+    public void testFailureSkipsDependents() {
+        final IllegalStateException failure = new IllegalStateException("boom");
+        final TaskGraph graph = new TaskGraph()
+                .add("fails", new TaskGraph.Step() {
+
+                    @Override
+                    public void run() {
+                        throw failure;
+                    }
+                })
+                .addSerial("skipped", step("skipped", 1), "fails")
+                .addSerial("independent", step("independent", 1));
+        try {
+            graph.run(this.engine);
+            fail();
+        } catch (final GenerationException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(Arrays.asList("independent"), this.order);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        new TaskGraph().add("a", step("a", 1), "missing");
+    }
+}
@@ -0,0 +1,49 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import freemarker.template.Template;
+
+/**
+ * Test cases for the precomputed template context.
+ */
+public class TemplateContextTest {
+
+    @Test
+    public void testSameOutputAsObjectWrapper() throws Exception {
+        final TemplateSettings settings = new TemplateSettings("Intro", "com.example");
+        settings.setTopLevelPacakge("com.example.ui.intro");
+        settings.setFXMLCreate(true);
+        settings.setCommandType("DefaultCommand");
+        final Map<String, TemplateSettings> map = new HashMap<String, TemplateSettings>();
+        map.put(TemplateContext.SETTINGS, settings);
+        final TemplateContext context = new TemplateContext(settings);
+
+        for (final String name : TemplateRegistry.TEMPLATE_NAMES) {
+            final Template template = TemplateRegistry.INSTANCE.getTemplate(name);
+            final StringWriter expected = new StringWriter();
+            template.process(map, expected);
+            final StringWriter actual = new StringWriter();
+            template.process(context, actual);
+            assertEquals(name, expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    public void testPropertyAccess() throws Exception {
+        final TemplateSettings settings = new TemplateSettings("Intro", "com.example");
+        settings.setBeanCreate(false);
+        final Template template = new Template("inline", new StringReader("${settings.name}<#if !settings.beanCreate> nobean</#if>"),
+                TemplateRegistry.INSTANCE.getConfiguration());
+        final StringWriter writer = new StringWriter();
+        template.process(new TemplateContext(settings), writer);
+        assertEquals("Intro nobean", writer.toString());
+    }
+}
@@ -0,0 +1,73 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import freemarker.template.Template;
+
+/**
+ * Test cases for the template registry.
+ */
+public class TemplateRegistryTest {
+
+    private final TemplateRegistry registry = new TemplateRegistry();
+
+    @Test
+    public void testHash() {
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", TemplateRegistry.hash(""));
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", TemplateRegistry.hash("abc"));
+        assertEquals(TemplateRegistry.hash("é"), TemplateRegistry.hash("é".getBytes(Charset.forName("UTF-8"))));
+        assertEquals(40, TemplateRegistry.hash(new byte[] { 0, 1, 2 }).length());
+    }
+
+    @Test
+    public void testTemplateParsedOnce() throws Exception {
+        final Template first = this.registry.getTemplate("TemplateBean.ftl");
+        assertEquals(0, this.registry.getHits());
+        assertEquals(1, this.registry.getMisses());
+
+        assertSame(first, this.registry.getTemplate("TemplateBean.ftl"));
+        assertEquals(40, this.registry.getTemplateHash("TemplateBean.ftl").length());
+        assertEquals(2, this.registry.getHits());
+        assertEquals(1, this.registry.getMisses());
+        assertEquals(1, this.registry.getTemplateCount());
+    }
+
+    @Test
+    public void testTemplatesHaveDistinctHashes() throws Exception {
+        assertTrue(!this.registry.getTemplateHash("TemplateBean.ftl").equals(this.registry.getTemplateHash("TemplateModel.ftl")));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingTemplate() throws Exception {
+        this.registry.getTemplate("Missing.ftl");
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        this.registry.warmUp();
+        assertEquals(TemplateRegistry.TEMPLATE_NAMES.length, this.registry.getTemplateCount());
+
+        final long misses = this.registry.getMisses();
+        for (final String name : TemplateRegistry.TEMPLATE_NAMES) {
+            this.registry.getTemplate(name);
+        }
+        assertEquals(misses, this.registry.getMisses());
+    }
+
+    @Test
+    public void testWarmUpInBackground() throws Exception {
+        this.registry.warmUpInBackground();
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (this.registry.getTemplateCount() < TemplateRegistry.TEMPLATE_NAMES.length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(TemplateRegistry.TEMPLATE_NAMES.length, this.registry.getTemplateCount());
+    }
+}
@@ -0,0 +1,107 @@
+package org.jrebirth.forge.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for the version cache.
+ */
+public class VersionCacheTest {
+
+    private static final String KEY = "org.jrebirth:presentation http://repo.jrebirth.org/libs-release";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+
+    private Callable<List<String>> remote(final String... versions) {
+        return new Callable<List<String>>() {
+
+            @Override
+            public List<String> call() {
+                VersionCacheTest.this.remoteCalls.incrementAndGet();
+                return Arrays.asList(versions);
+            }
+        };
+    }
+
+    private Callable<List<String>> unreachable() {
+        return new Callable<List<String>>() {
+
+            @Override
+            public List<String> call() throws IOException {
+                VersionCacheTest.this.remoteCalls.incrementAndGet();
+                throw new IOException("Network is unreachable");
+            }
+        };
+    }
+
+    private VersionCache newCache(final long ttl) {
+        return new VersionCache(new File(this.folder.getRoot(), "versions.properties"), new File(this.folder.getRoot(), "repository"), ttl);
+    }
+
+    private void installLocally(final String version) throws IOException {
+        final File versionFolder = new File(this.folder.getRoot(), "repository/org/jrebirth/presentation/" + version);
+        versionFolder.mkdirs();
+        new File(versionFolder, "presentation-" + version + ".pom").createNewFile();
+    }
+
+    @Test
+    public void testFreshEntryIsPersisted() {
+        assertEquals(Arrays.asList("0.7.3", "0.7.4"), newCache(60000).getVersions(KEY, "org.jrebirth", "presentation", false, remote("0.7.3", "0.7.4")));
+        assertEquals(Arrays.asList("0.7.3", "0.7.4"), newCache(60000).getVersions(KEY, "org.jrebirth", "presentation", false, remote("0.8.0")));
+        assertEquals(1, this.remoteCalls.get());
+    }
+
+    @Test
+    public void testExpiredEntryIsResolvedAgain() {
+        newCache(-1).getVersions(KEY, "org.jrebirth", "presentation", false, remote("0.7.4"));
+        assertEquals(Arrays.asList("0.8.0"), newCache(-1).getVersions(KEY, "org.jrebirth", "presentation", false, remote("0.8.0")));
+        assertEquals(2, this.remoteCalls.get());
+    }
+
+    @Test
+    public void testOfflineUsesExpiredEntry() {
+        newCache(-1).getVersions(KEY, "org.jrebirth", "presentation", false, remote("0.7.4"));
+        assertEquals(Arrays.asList("0.7.4"), newCache(-1).getVersions(KEY, "org.jrebirth", "presentation", true, remote("0.8.0")));
+        assertEquals(1, this.remoteCalls.get());
+    }
+
+    @Test
+    public void testOfflineFallsBackToLocalRepository() throws IOException {
+        installLocally("0.7.10");
+        installLocally("0.7.4");
+        installLocally("0.7.4-SNAPSHOT");
+        new File(this.folder.getRoot(), "repository/org/jrebirth/presentation/maven-metadata-local.xml").createNewFile();
+        assertEquals(Arrays.asList("0.7.4-SNAPSHOT", "0.7.4", "0.7.10"),
+                newCache(60000).getVersions(KEY, "org.jrebirth", "presentation", true, remote("0.8.0")));
+        assertEquals(0, this.remoteCalls.get());
+    }
+
+    @Test
+    public void testUnreachableRepositories() throws IOException {
+        assertTrue(newCache(60000).getVersions(KEY, "org.jrebirth", "presentation", false, unreachable()).isEmpty());
+        installLocally("0.7.4");
+        assertEquals(Collections.singletonList("0.7.4"), newCache(60000).getVersions(KEY, "org.jrebirth", "presentation", false, unreachable()));
+    }
+
+    @Test
+    public void testVersionOrder() {
+        final List<String> versions = Arrays.asList("1.0.1", "1.0", "0.9", "1.0-SNAPSHOT", "1.0-alpha-1");
+        Collections.sort(versions, VersionCache.VERSION_ORDER);
+        assertEquals(Arrays.asList("0.9", "1.0-alpha-1", "1.0-SNAPSHOT", "1.0", "1.0.1"), versions);
+    }
+}